@@ -0,0 +1,75 @@
+package io.github.fhnaumann.arithmetic;
+
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.UCUMExpression.Term;
+import io.github.fhnaumann.persistence.PersistenceRegistry;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefixes and <code>10*</code> exponents are powers of ten. The terms are canonicalized without the cache, so every
+ * prefix and exponent is applied again.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkPowerOfTen {
+
+    private PreciseDecimal third;
+    private PreciseDecimal kilo;
+    private PreciseDecimal ten;
+
+    private Term umolPerLiter;
+    private Term tenPow9PerLiter;
+    private Term cubicMillimeter;
+
+    @Setup
+    public void setup() {
+        PersistenceRegistry.disableInMemoryCache(true);
+        third = new PreciseDecimal("1").divide(new PreciseDecimal("3"));
+        kilo = new PreciseDecimal("1e3");
+        ten = new PreciseDecimal("10");
+        umolPerLiter = ((Validator.Success) Validator.validate("umol/L")).term();
+        tenPow9PerLiter = ((Validator.Success) Validator.validate("10*9/L")).term();
+        cubicMillimeter = ((Validator.Success) Validator.validate("mm3")).term();
+    }
+
+    @Benchmark
+    public PreciseDecimal multiplyByPrefix() {
+        return third.multiply(kilo);
+    }
+
+    @Benchmark
+    public PreciseDecimal divideByPrefix() {
+        return third.divide(kilo);
+    }
+
+    @Benchmark
+    public PreciseDecimal negativeExponent() {
+        return ten.pow(-6);
+    }
+
+    @Benchmark
+    public Canonicalizer.CanonicalizationResult canonicalizeUmolPerLiter() {
+        return UCUMService.canonicalize(umolPerLiter);
+    }
+
+    @Benchmark
+    public Canonicalizer.CanonicalizationResult canonicalizeTenPow9PerLiter() {
+        return UCUMService.canonicalize(tenPow9PerLiter);
+    }
+
+    @Benchmark
+    public Canonicalizer.CanonicalizationResult canonicalizeCubicMillimeter() {
+        return UCUMService.canonicalize(cubicMillimeter);
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.fhnaumann.arithmetic;
+
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PreciseDecimal operations that are used during canonicalization. Run with <code>-prof gc</code> to see the
+ * allocations per operation.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkPreciseDecimal {
+
+    private PreciseDecimal inch;
+    private PreciseDecimal milli;
+    private PreciseDecimal deci;
+    private PreciseDecimal limited;
+    private PreciseDecimal three;
+
+    @Setup
+    public void setup() {
+        inch = new PreciseDecimal("2.54");
+        milli = new PreciseDecimal("0.001");
+        deci = new PreciseDecimal("0.1");
+        limited = new PreciseDecimal("1.50", true);
+        three = new PreciseDecimal("3");
+    }
+
+    @Benchmark
+    public PreciseDecimal multiply() {
+        return inch.multiply(milli);
+    }
+
+    @Benchmark
+    public PreciseDecimal divide() {
+        return milli.divide(deci);
+    }
+
+    @Benchmark
+    public PreciseDecimal divideRepeating() {
+        return inch.divide(three);
+    }
+
+    @Benchmark
+    public PreciseDecimal pow() {
+        return deci.pow(3);
+    }
+
+    @Benchmark
+    public PreciseDecimal add() {
+        return limited.add(inch);
+    }
+}
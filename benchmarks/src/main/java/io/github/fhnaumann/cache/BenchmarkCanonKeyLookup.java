@@ -0,0 +1,80 @@
+package io.github.fhnaumann.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.UCUMExpression;
+import io.github.fhnaumann.persistence.InMemoryPersistenceProvider;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up terms in a Caffeine cache keyed by {@link CanonKey} and in the {@link InMemoryPersistenceProvider}, which
+ * interns the cached terms. The looked up terms are parsed separately, so they are equal to the cached ones but not the
+ * same instances.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkCanonKeyLookup {
+
+    private static final int TERMS = 10_000;
+    private static final String[] PREFIXES = {"", "k", "m", "u", "c", "d"};
+    private static final String[] ATOMS = {"m", "g", "s", "L", "mol", "K", "h", "min", "Pa", "J", "W", "N", "[in_i]", "[lb_av]", "eq", "osm"};
+
+    @Param({"false", "true"})
+    private boolean provider;
+
+    private Cache<CanonKey, Canonicalizer.CanonicalStepResult> cache;
+    private InMemoryPersistenceProvider persistenceProvider;
+    private UCUMExpression.Term[] terms;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = Caffeine.newBuilder().maximumSize(TERMS).build();
+        persistenceProvider = new InMemoryPersistenceProvider(TERMS, TERMS, false);
+        persistenceProvider.setEnabled(true);
+        terms = new UCUMExpression.Term[TERMS];
+        for(int i = 0; i < TERMS; i++) {
+            String expression = term(i);
+            UCUMExpression.Term cached = Validator.parseByPassChecks(expression);
+            Canonicalizer.CanonicalStepResult result = new Canonicalizer.CanonicalStepResult(cached, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null);
+            if(provider) {
+                persistenceProvider.saveCanonical(CanonKey.of(cached), result);
+            }
+            else {
+                cache.put(CanonKey.of(cached), result);
+            }
+            terms[i] = Validator.parseByPassChecks(expression);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TERMS)
+    public void lookup(Blackhole blackhole) {
+        for(UCUMExpression.Term term : terms) {
+            blackhole.consume(provider ? persistenceProvider.getCanonical(CanonKey.of(term)) : cache.getIfPresent(CanonKey.of(term)));
+        }
+    }
+
+    /*
+    Distinct terms with 4 atoms, an exponent, parentheses and an annotation, i.e. "kg.mm/(us2.cL){7}".
+     */
+    private static String term(int i) {
+        return atom(i) + "." + atom(i / 7) + "/(" + atom(i / 13) + "2." + atom(i / 29) + "){" + i % 17 + "}";
+    }
+
+    private static String atom(int i) {
+        return PREFIXES[i % PREFIXES.length] + ATOMS[(i / PREFIXES.length) % ATOMS.length];
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.fhnaumann.cache;
+
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.persistence.PersistenceProvider;
+import io.github.fhnaumann.persistence.PersistenceRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Saves validation results while a provider is registered that takes 100 microseconds per write (like a remote
+ * database), with and without the write-behind queue.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkWriteBehind {
+
+    private static final int DISTINCT_KEYS = 1000;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private ValKey[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties props = new Properties();
+        props.setProperty("ucumate.persistence.writeBehind.enable", String.valueOf(writeBehind));
+        PersistenceRegistry.initWriteBehind(props);
+        PersistenceRegistry.register("slow", new SlowProvider());
+        keys = new ValKey[DISTINCT_KEYS];
+        for(int i = 0; i < DISTINCT_KEYS; i++) {
+            keys[i] = ValKey.of(i + "m");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PersistenceRegistry.getInstance().close();
+        PersistenceRegistry.initWriteBehind(new Properties());
+    }
+
+    @Benchmark
+    public void saveValidated() {
+        PersistenceRegistry.getInstance().saveValidated(keys[next], new Validator.Failure());
+        next = (next + 1) % DISTINCT_KEYS;
+    }
+
+    private static class SlowProvider implements PersistenceProvider {
+
+        @Override
+        public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
+            LockSupport.parkNanos(100_000);
+        }
+
+        @Override
+        public Canonicalizer.CanonicalStepResult getCanonical(CanonKey key) {
+            return null;
+        }
+
+        @Override
+        public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical() {
+            return Map.of();
+        }
+
+        @Override
+        public void saveValidated(ValKey key, Validator.ValidationResult value) {
+            LockSupport.parkNanos(100_000);
+        }
+
+        @Override
+        public Validator.ValidationResult getValidated(ValKey key) {
+            return null;
+        }
+
+        @Override
+        public Map<ValKey, Validator.ValidationResult> getAllValidated() {
+            return Map.of();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.fhnaumann.conversion;
+
+import io.github.fhnaumann.funcs.ConversionPlan;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a column of lab values from mg/dL to g/L (linear) and from [degF] to Cel (special unit), either as one bulk
+ * call or one call per value. The per value benchmarks are slow for large arrays and are usually only run with the
+ * smaller sizes.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkBulkConversion {
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"mg/dL>g/L", "[degF]>Cel"})
+    public String units;
+
+    private String from;
+    private String to;
+    private ConversionPlan plan;
+    private double[] values;
+    private double[] out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] pair = units.split(">");
+        from = pair[0];
+        to = pair[1];
+        plan = UCUMService.plan(from, to);
+        Random random = new Random(42);
+        values = new double[size];
+        for(int i = 0; i < size; i++) {
+            values[i] = Math.round(random.nextDouble() * 20000) / 100.0;
+        }
+        out = new double[size];
+    }
+
+    @Benchmark
+    public double[] benchmarkBulk() {
+        plan.applyAll(values, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] benchmarkPlanPerValue() {
+        for(int i = 0; i < size; i++) {
+            out[i] = ((Converter.Success) plan.apply(new PreciseDecimal(BigDecimal.valueOf(values[i]).toPlainString()))).conversionFactor().getValue().doubleValue();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] benchmarkConvertPerValue() {
+        for(int i = 0; i < size; i++) {
+            out[i] = ((Converter.Success) UCUMService.convert(new PreciseDecimal(BigDecimal.valueOf(values[i]).toPlainString()), from, to)).conversionFactor().getValue().doubleValue();
+        }
+        return out;
+    }
+}
@@ -58,4 +58,11 @@ public class BenchmarkConversionJSON {
             //logger.warn("After Cache size: " + PersistenceRegistry.getInstance().getAllValidated().size());
         }
     }
+
+    @Benchmark
+    public void benchmarkUcumateFastConversion() {
+        for (TestCase.ConvertTestCase testCase : data.convertCases()) {
+            UCUMService.fast().convert(Double.parseDouble(testCase.conversionFactor()), testCase.from(), testCase.to());
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package io.github.fhnaumann.conversion;
+
+import io.github.fhnaumann.BenchmarkSetup;
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.UCUMService;
+import org.fhir.ucum.UcumException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts all JSON test cases with and without exact rational magnitudes.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkExactRationalMagnitudes {
+
+    private BenchmarkSetup.Data data;
+
+    @Param({"false", "true"})
+    public boolean exactRationalMagnitudes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, UcumException {
+        data = BenchmarkSetup.loadSetup("enable");
+        ConfigurationRegistry.initialize(Configuration.builder().enableExactRationalMagnitudes(exactRationalMagnitudes).build());
+    }
+
+    @Benchmark
+    public void convert() {
+        for (TestCase.ConvertTestCase testCase : data.convertCases()) {
+            UCUMService.convert(testCase.conversionFactor(), testCase.from(), testCase.to());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.fhnaumann.conversion;
+
+import io.github.fhnaumann.PreciseSpecialUnitsFunctionProvider;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.model.special.SpecialUnits;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts special units with the arbitrary precision provider of ucumate-core-exact-special-math. The inputs of
+ * <code>distinctInputs</code> rotate through more values than the provider caches, <code>repeatedInput</code> always
+ * converts the same value.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkPreciseSpecialFunctions {
+
+    private static final int DISTINCT_INPUTS = 4096;
+
+    @Param({"[pH]>mol/l", "[hp'_C]>1", "B[SPL]>Pa"})
+    public String units;
+
+    @Param({"20", "50", "100"})
+    public int unlimitedPrecision;
+
+    private String from;
+    private String to;
+    private PreciseDecimal[] inputs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SpecialUnits.setProvider(new PreciseSpecialUnitsFunctionProvider());
+        PreciseDecimal.setUnlimitedPrecision(unlimitedPrecision);
+        String[] split = units.split(">");
+        from = split[0];
+        to = split[1];
+        BigDecimal base = switch(from) {
+            case "[pH]" -> new BigDecimal("7");
+            case "[hp'_C]" -> new BigDecimal("3");
+            default -> new BigDecimal("60");
+        };
+        inputs = new PreciseDecimal[DISTINCT_INPUTS];
+        for(int i = 0; i < DISTINCT_INPUTS; i++) {
+            inputs[i] = new PreciseDecimal(base.add(BigDecimal.valueOf(i + 1, 4)));
+        }
+        if(!(UCUMService.convert(inputs[0], from, to) instanceof Converter.Success)) {
+            throw new IllegalStateException("Can't convert %s to %s".formatted(from, to));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PreciseDecimal.resetToDefault();
+        SpecialUnits.setProvider(null);
+    }
+
+    @Benchmark
+    public Converter.ConversionResult distinctInputs() {
+        PreciseDecimal input = inputs[next];
+        next = (next + 1) % DISTINCT_INPUTS;
+        return UCUMService.convert(input, from, to);
+    }
+
+    @Benchmark
+    public Converter.ConversionResult repeatedInput() {
+        return UCUMService.convert(inputs[0], from, to);
+    }
+}
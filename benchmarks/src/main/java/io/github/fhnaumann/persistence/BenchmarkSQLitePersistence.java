@@ -0,0 +1,107 @@
+package io.github.fhnaumann.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.fhnaumann.ConnectionPoolFactory;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.providers.SQLitePersistenceProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves and reads validation results with a local SQLite database, one entry per call or the whole batch with
+ * {@code saveAllValidated}/{@code getAllValidated}. {@code readConcurrently} reads single entries from 4 threads
+ * at once, either with a connection borrowed from the pool per read or with one shared connection.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkSQLitePersistence {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    private Path dbFile;
+    private SQLitePersistenceProvider provider;
+    private Map<ValKey, Validator.ValidationResult> entries;
+    private List<ValKey> keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        dbFile = Files.createTempFile("ucumate-bench", ".db");
+        HikariDataSource dataSource = ConnectionPoolFactory.getOrCreate("jdbc:sqlite:" + dbFile.toAbsolutePath(), "", "");
+        provider = pooled
+                ? new SQLitePersistenceProvider(dataSource, null, null)
+                : new SQLitePersistenceProvider(dataSource.getConnection(), null, null);
+        entries = new LinkedHashMap<>();
+        for(int i = 0; i < size; i++) {
+            entries.put(ValKey.of(i + "m"), new Validator.Failure());
+        }
+        keys = new ArrayList<>(entries.keySet());
+        provider.saveAllValidated(entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        provider.close();
+        ConnectionPoolFactory.shutdownAll();
+        Files.deleteIfExists(dbFile);
+    }
+
+    @Benchmark
+    public void saveOneByOne() {
+        entries.forEach(provider::saveValidated);
+    }
+
+    @Benchmark
+    public void saveBatch() {
+        provider.saveAllValidated(entries);
+    }
+
+    @Benchmark
+    public int readOneByOne() {
+        int found = 0;
+        for(ValKey key : keys) {
+            if(provider.getValidated(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int readBatch() {
+        return provider.getAllValidated(keys).size();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Validator.ValidationResult readConcurrently(ThreadIndex index) {
+        ValKey key = keys.get(index.next);
+        index.next = (index.next + 1) % size;
+        return provider.getValidated(key);
+    }
+}
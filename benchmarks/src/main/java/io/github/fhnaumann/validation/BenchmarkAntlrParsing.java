@@ -0,0 +1,90 @@
+package io.github.fhnaumann.validation;
+
+import io.github.fhnaumann.BenchmarkSetup;
+import io.github.fhnaumann.NewUCUMLexer;
+import io.github.fhnaumann.NewUCUMParser;
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.UCUMSyntaxVisitor;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.antlr.v4.runtime.*;
+import org.fhir.ucum.UcumException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares creating a new ANTLR lexer/parser per input with LL prediction ("fresh", the previous behaviour) against the
+ * per-thread reused lexer/parser with SLL->LL prediction ("reused") that is now used by the validator.
+ * Run with <code>-prof gc</code> to see the allocation per parse.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkAntlrParsing {
+
+    private BenchmarkSetup.Data data;
+    private UCUMSyntaxVisitor visitor;
+
+    @Param({"fresh", "reused"})
+    public String parsingContext;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, UcumException {
+        data = BenchmarkSetup.loadSetup("disable");
+        ConfigurationRegistry.initialize(Configuration.builder().parserMode(Configuration.ParserMode.ANTLR).build());
+        visitor = new UCUMSyntaxVisitor(UCUMRegistry.getInstance());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThreaded(Blackhole blackhole) {
+        parseAll(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void multiThreaded(Blackhole blackhole) {
+        parseAll(blackhole);
+    }
+
+    private void parseAll(Blackhole blackhole) {
+        boolean fresh = parsingContext.equals("fresh");
+        for (TestCase.ValidateTestCase testCase : data.validateCases()) {
+            try {
+                blackhole.consume(fresh ? parseFresh(testCase.inputExpression()) : Validator.parseByPassChecks(testCase.inputExpression()));
+            } catch (Validator.LexerException | Validator.ParserException | NumberFormatException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    private Object parseFresh(String input) {
+        NewUCUMLexer lexer = new NewUCUMLexer(CharStreams.fromString(input));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                throw new Validator.LexerException("Lexical error at line " + line + ":" + charPositionInLine + ": " + msg);
+            }
+        });
+        NewUCUMParser parser = new NewUCUMParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                throw new Validator.ParserException("Syntax error at line " + line + ":" + charPositionInLine + ": " + msg);
+            }
+        });
+        return visitor.visit(parser.mainTerm());
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.fhnaumann.validation;
+
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time until the first validation returns in a fresh JVM and the time to load the UCUM registry alone,
+ * either from the precompiled snapshot or by parsing ucum-essence.xml and every unit definition. Every fork only runs a single
+ * invocation, nothing in here may touch ucumate before the benchmark method runs.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class BenchmarkColdStart {
+
+    @Param({"snapshot", "xml"})
+    public String registry;
+
+    @Benchmark
+    public Validator.ValidationResult benchmarkFirstValidate() {
+        System.setProperty("ucumate.registry.snapshot", String.valueOf(registry.equals("snapshot")));
+        return UCUMService.validate("mg/dL");
+    }
+
+    @Benchmark
+    public UCUMRegistry benchmarkRegistryLoad() {
+        System.setProperty("ucumate.registry.snapshot", String.valueOf(registry.equals("snapshot")));
+        return UCUMRegistry.getInstance();
+    }
+}
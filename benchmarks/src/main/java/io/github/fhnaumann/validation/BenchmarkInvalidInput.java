@@ -0,0 +1,79 @@
+package io.github.fhnaumann.validation;
+
+import io.github.fhnaumann.BenchmarkSetup;
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.UCUMExpression;
+import org.fhir.ucum.UcumException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the cost of the failure path. The corpus consists of the invalid validation cases of ucum-tests.json and
+ * hand-typed looking typos of the valid ones, so roughly 90% of the inputs are invalid. The canonicalization benchmark
+ * uses valid terms that contain arbitrary units, which can never be canonicalized.
+ * Caching is disabled so every iteration actually runs into the failure.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkInvalidInput {
+
+    private static final String TYPOS = "µ/*^ ()[]{}.0x";
+
+    private final List<String> inputs = new ArrayList<>();
+    private final List<UCUMExpression.Term> arbitraryTerms = new ArrayList<>();
+
+    @Param({"FAST", "ANTLR"})
+    public String parserMode;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, UcumException {
+        BenchmarkSetup.Data data = BenchmarkSetup.loadSetup("disable");
+        ConfigurationRegistry.initialize(Configuration.builder()
+                .parserMode(Configuration.ParserMode.valueOf(parserMode))
+                .build());
+        Random random = new Random(42);
+        for (TestCase.ValidateTestCase testCase : data.validateCases()) {
+            String input = testCase.inputExpression();
+            inputs.add(input);
+            if (testCase.valid() && !input.isEmpty()) {
+                for (int i = 0; i < 8; i++) {
+                    int pos = random.nextInt(input.length() + 1);
+                    inputs.add(input.substring(0, pos) + TYPOS.charAt(random.nextInt(TYPOS.length())) + input.substring(pos));
+                }
+            }
+        }
+        for (String arbitrary : List.of("[IU]", "[IU]/L", "[iU]/mL", "[arb'U]", "[USP'U]/g", "[GPL'U]", "[todd'U]", "[beth'U]/(kg.s)")) {
+            arbitraryTerms.add(((Validator.Success) Validator.validate(arbitrary)).term());
+        }
+    }
+
+    @Benchmark
+    public void benchmarkValidation(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(UCUMService.validate(input));
+        }
+    }
+
+    @Benchmark
+    public void benchmarkCanonicalizeArbitrary(Blackhole blackhole) {
+        for (UCUMExpression.Term term : arbitraryTerms) {
+            blackhole.consume(UCUMService.canonicalize(term));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.fhnaumann.validation;
+
+import io.github.fhnaumann.BenchmarkSetup;
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.UCUMService;
+import org.fhir.ucum.UcumException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written parser with the ANTLR parser on the validation cases of ucum-tests.json.
+ * Caching is disabled so every iteration actually parses the input.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkParser {
+
+    private BenchmarkSetup.Data data;
+
+    @Param({"FAST", "ANTLR"})
+    public String parserMode;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, UcumException {
+        data = BenchmarkSetup.loadSetup("disable");
+        ConfigurationRegistry.initialize(Configuration.builder()
+                .parserMode(Configuration.ParserMode.valueOf(parserMode))
+                .build());
+    }
+
+    @Benchmark
+    public void benchmarkValidation(Blackhole blackhole) {
+        for (TestCase.ValidateTestCase testCase : data.validateCases()) {
+            blackhole.consume(UCUMService.validate(testCase.inputExpression()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.fhnaumann.validation;
+
+import io.github.fhnaumann.BenchmarkSetup;
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.FastUCUMRecognizer;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.fhir.ucum.UcumException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares mapping the full {@link Validator#validate(String)} result to a boolean ("validate") against the
+ * {@link FastUCUMRecognizer} that never builds a term ("recognize"). Run with <code>-prof gc</code> to see the
+ * allocation per call.
+ *
+ * @author Felix Naumann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkValidateToBool {
+
+    private BenchmarkSetup.Data data;
+    private UCUMRegistry registry;
+
+    @Param({"validate", "recognize"})
+    public String strategy;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, UcumException {
+        data = BenchmarkSetup.loadSetup("disable");
+        ConfigurationRegistry.initialize(Configuration.builder().build());
+        registry = UCUMRegistry.getInstance();
+    }
+
+    @Benchmark
+    public void benchmarkValidateToBool(Blackhole blackhole) {
+        boolean recognize = strategy.equals("recognize");
+        for (TestCase.ValidateTestCase testCase : data.validateCases()) {
+            String input = testCase.inputExpression();
+            blackhole.consume(recognize ? FastUCUMRecognizer.recognize(input, registry) : Validator.validate(input) instanceof Validator.Success);
+        }
+    }
+}
@@ -1,97 +1,159 @@
 package io.github.fhnaumann;
 
 import ch.obermuhlner.math.big.BigDecimalMath;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider;
 import io.github.fhnaumann.util.PreciseDecimal;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
+/**
+ * Evaluates the special functions with arbitrary precision. The precision follows the input: limited values are
+ * computed with their significant digits, unlimited values with {@link PreciseDecimal#getUnlimitedPrecision()}, both
+ * plus {@link #GUARD_DIGITS}. The logarithms of the bases are only computed once and the results of repeated inputs
+ * are cached per function.
+ */
 public class PreciseSpecialUnitsFunctionProvider implements SpecialUnitsFunctionProvider {
 
-    private static final MathContext mathContext = new MathContext(200);
-    private static final Map<String, ConversionFunction> funcs = createFuncs();
+    static final int GUARD_DIGITS = 10;
+    private static final int MAX_CACHED_RESULTS = 1_000;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private static final LogConstant LOG_TWO = new LogConstant(BigDecimal.TWO);
+    private static final LogConstant LOG_TEN = new LogConstant(BigDecimal.TEN);
+
+    private static final Map<String, ConversionFunction> funcs = Map.copyOf(createFuncs());
 
     private static Map<String, ConversionFunction> createFuncs() {
         Map<String, ConversionFunction> tmpMap = new HashMap<>();
-        tmpMap.put("Cel", SpecialUnitsFunctionProvider.of(
-                preciseDecimal -> preciseDecimal.subtract(new PreciseDecimal("273.15")),
-                preciseDecimal -> preciseDecimal.add(new PreciseDecimal("273.15"))
-        ));
-        tmpMap.put("degF", SpecialUnitsFunctionProvider.of(
-                        preciseDecimal -> preciseDecimal.subtract(new PreciseDecimal("459.67")), // K to [degF]
-                                preciseDecimal -> preciseDecimal.add(new PreciseDecimal("459.67") // [degF] to K
-                )
-        ));
-        tmpMap.put("degRe", SpecialUnitsFunctionProvider.of(
-                preciseDecimal -> preciseDecimal.subtract(new PreciseDecimal("218.52")), // K to [degF]
-                preciseDecimal -> preciseDecimal.add(new PreciseDecimal("218.52") // [degF] to K
-                )
-        ));
+        tmpMap.put("Cel", SpecialUnitsFunctionProvider.offset(new PreciseDecimal("273.15"))); // K to Cel and back
+        tmpMap.put("degF", SpecialUnitsFunctionProvider.offset(new PreciseDecimal("459.67"))); // K to [degF] and back
+        tmpMap.put("degRe", SpecialUnitsFunctionProvider.offset(new PreciseDecimal("218.52"))); // K to [degRe] and back
         tmpMap.put("tanTimes100", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.tan(bigDecimal, mathContext).multiply(new BigDecimal("100"), mathContext),
-                bigDecimal -> BigDecimalMath.atan(bigDecimal.divide(new BigDecimal("100"), mathContext), mathContext)
+                (bigDecimal, mc) -> BigDecimalMath.tan(bigDecimal, mc).multiply(HUNDRED, mc),
+                (bigDecimal, mc) -> BigDecimalMath.atan(bigDecimal.divide(HUNDRED, mc), mc)
         ));
         tmpMap.put("100tan", tmpMap.get("tanTimes100"));
         tmpMap.put("hpX", negLogAnd10NegX());
-        tmpMap.put("hpC", homeopathicPotency("100"));
-        tmpMap.put("hpM", homeopathicPotency("1000"));
-        tmpMap.put("hpQ", homeopathicPotency("50000"));
+        tmpMap.put("hpC", homeopathicPotency(new LogConstant(HUNDRED)));
+        tmpMap.put("hpM", homeopathicPotency(new LogConstant(BigDecimal.valueOf(1000))));
+        tmpMap.put("hpQ", homeopathicPotency(new LogConstant(BigDecimal.valueOf(50000))));
         tmpMap.put("pH", negLogAnd10NegX());
         tmpMap.put("ln", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.log(bigDecimal, mathContext),
-                bigDecimal -> BigDecimalMath.exp(bigDecimal, mathContext)
+                BigDecimalMath::log,
+                BigDecimalMath::exp
         ));
         tmpMap.put("lg", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.log10(bigDecimal, mathContext),
-                bigDecimal -> BigDecimalMath.pow(BigDecimal.TEN, bigDecimal, mathContext)
+                BigDecimalMath::log10,
+                (bigDecimal, mc) -> pow(LOG_TEN, bigDecimal, mc)
         ));
         tmpMap.put("lgTimes2", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.log10(bigDecimal, mathContext).multiply(BigDecimal.TWO, mathContext),
-                bigDecimal -> BigDecimalMath.pow(BigDecimal.TEN, bigDecimal.divide(BigDecimal.TWO, mathContext), mathContext)
+                (bigDecimal, mc) -> BigDecimalMath.log10(bigDecimal, mc).multiply(BigDecimal.TWO, mc),
+                (bigDecimal, mc) -> pow(LOG_TEN, bigDecimal.divide(BigDecimal.TWO, mc), mc)
         ));
         tmpMap.put("sqrt", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.sqrt(bigDecimal, mathContext),
-                bigDecimal -> BigDecimalMath.pow(bigDecimal, BigDecimal.TWO, mathContext)
+                BigDecimalMath::sqrt,
+                (bigDecimal, mc) -> BigDecimalMath.pow(bigDecimal, BigDecimal.TWO, mc)
         ));
         tmpMap.put("ld", ofBigDecimal(
-                bigDecimal -> BigDecimalMath.log(bigDecimal, mathContext).divide(BigDecimalMath.log(BigDecimal.TWO, mathContext), mathContext),
-                bigDecimal -> BigDecimalMath.pow(bigDecimal, BigDecimal.TWO, mathContext)
+                (bigDecimal, mc) -> BigDecimalMath.log(bigDecimal, mc).divide(LOG_TWO.get(mc), mc),
+                (bigDecimal, mc) -> BigDecimalMath.pow(bigDecimal, BigDecimal.TWO, mc)
         ));
         return tmpMap;
     }
 
     private static ConversionFunction negLogAnd10NegX() {
         return ofBigDecimal(
-                bigDecimal -> bigDecimal.compareTo(BigDecimal.ZERO) != 0 ? BigDecimalMath.log10(bigDecimal, mathContext).negate(mathContext) : BigDecimal.ZERO,
-                bigDecimal -> BigDecimalMath.pow(BigDecimal.TEN, bigDecimal.negate(mathContext), mathContext)
+                (bigDecimal, mc) -> bigDecimal.compareTo(BigDecimal.ZERO) != 0 ? BigDecimalMath.log10(bigDecimal, mc).negate(mc) : BigDecimal.ZERO,
+                (bigDecimal, mc) -> pow(LOG_TEN, bigDecimal.negate(mc), mc)
         );
     }
 
-    private static ConversionFunction homeopathicPotency(String basis) {
+    private static ConversionFunction homeopathicPotency(LogConstant logBasis) {
         return ofBigDecimal(
-                bigDecimal -> bigDecimal.compareTo(BigDecimal.ZERO) != 0 ? (BigDecimalMath.log(bigDecimal, mathContext).negate(mathContext).divide(BigDecimalMath.log(new BigDecimal(basis), mathContext), mathContext)) : BigDecimal.ZERO,
-                bigDecimal -> BigDecimalMath.pow(new BigDecimal(basis), bigDecimal.negate(mathContext), mathContext)
+                (bigDecimal, mc) -> bigDecimal.compareTo(BigDecimal.ZERO) != 0 ? (BigDecimalMath.log(bigDecimal, mc).negate(mc).divide(logBasis.get(mc), mc)) : BigDecimal.ZERO,
+                (bigDecimal, mc) -> pow(logBasis, bigDecimal.negate(mc), mc)
         );
     }
 
+    /*
+    The same as BigDecimalMath#pow, but the logarithm of the basis is not computed again for every non-integer exponent.
+     */
+    private static BigDecimal pow(LogConstant logBasis, BigDecimal exponent, MathContext mathContext) {
+        if(exponent.signum() == 0 || exponent.stripTrailingZeros().scale() <= 0) {
+            // integer powers are computed exactly by multiplying
+            return BigDecimalMath.pow(logBasis.basis, exponent, mathContext);
+        }
+        MathContext mc = new MathContext(mathContext.getPrecision() + 6, mathContext.getRoundingMode());
+        return BigDecimalMath.exp(exponent.multiply(logBasis.get(mc), mc), mc).round(mathContext);
+    }
+
     @Override public Map<String, ConversionFunction> getConversionFuncs() {
-        return Map.copyOf(funcs);
+        return funcs;
+    }
+
+    /**
+     * @return The precision a special function is evaluated with for the given input.
+     */
+    static MathContext mathContext(PreciseDecimal value) {
+        int precision = value.isLimited() ? Math.max(value.getPrecision(), 1) : PreciseDecimal.getUnlimitedPrecision();
+        return new MathContext(precision + GUARD_DIGITS);
     }
 
-    private static ConversionFunction ofBigDecimal(Function<BigDecimal, BigDecimal> fromCanonical, Function<BigDecimal, BigDecimal> toCanonical) {
+    private static ConversionFunction ofBigDecimal(BiFunction<BigDecimal, MathContext, BigDecimal> fromCanonical, BiFunction<BigDecimal, MathContext, BigDecimal> toCanonical) {
+        Cache<CacheKey, PreciseDecimal> fromCanonicalResults = Caffeine.newBuilder().maximumSize(MAX_CACHED_RESULTS).build();
+        Cache<CacheKey, PreciseDecimal> toCanonicalResults = Caffeine.newBuilder().maximumSize(MAX_CACHED_RESULTS).build();
         return new ConversionFunction() {
             @Override public PreciseDecimal fromCanonical(PreciseDecimal value) {
-                return new PreciseDecimal(fromCanonical.apply(value.getValue()).toPlainString());
+                return evaluate(fromCanonical, fromCanonicalResults, value);
             }
 
             @Override public PreciseDecimal toCanonical(PreciseDecimal value) {
-                return new PreciseDecimal(toCanonical.apply(value.getValue()).toPlainString());
+                return evaluate(toCanonical, toCanonicalResults, value);
             }
         };
     }
+
+    private static PreciseDecimal evaluate(BiFunction<BigDecimal, MathContext, BigDecimal> function, Cache<CacheKey, PreciseDecimal> results, PreciseDecimal value) {
+        MathContext mc = mathContext(value);
+        return results.get(
+                new CacheKey(value.getValue(), mc.getPrecision()),
+                key -> new PreciseDecimal(function.apply(key.value(), mc))
+        );
+    }
+
+    /*
+    The precision is part of the key because the unlimited precision can be changed at runtime.
+     */
+    private record CacheKey(BigDecimal value, int precision) {}
+
+    /*
+    The natural logarithm of a basis. Only the most precise value that has been computed so far is kept, every lower
+    precision is rounded from it.
+     */
+    private static final class LogConstant {
+
+        private final BigDecimal basis;
+        private volatile BigDecimal log;
+
+        private LogConstant(BigDecimal basis) {
+            this.basis = basis;
+        }
+
+        BigDecimal get(MathContext mathContext) {
+            BigDecimal current = log;
+            if(current == null || current.precision() < mathContext.getPrecision()) {
+                // a benign race, every thread computes a correct value
+                current = BigDecimalMath.log(basis, mathContext);
+                log = current;
+            }
+            return current.round(mathContext);
+        }
+    }
 }
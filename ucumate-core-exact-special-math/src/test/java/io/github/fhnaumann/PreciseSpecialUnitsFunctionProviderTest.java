@@ -0,0 +1,64 @@
+package io.github.fhnaumann;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider.ConversionFunction;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreciseSpecialUnitsFunctionProviderTest {
+
+    private static final PreciseSpecialUnitsFunctionProvider provider = new PreciseSpecialUnitsFunctionProvider();
+
+    @Test
+    public void precision_follows_input() {
+        assertThat(PreciseSpecialUnitsFunctionProvider.mathContext(new PreciseDecimal("0.5")).getPrecision())
+                .isEqualTo(PreciseDecimal.getUnlimitedPrecision() + PreciseSpecialUnitsFunctionProvider.GUARD_DIGITS);
+        assertThat(PreciseSpecialUnitsFunctionProvider.mathContext(new PreciseDecimal("0.500", true)).getPrecision())
+                .isEqualTo(3 + PreciseSpecialUnitsFunctionProvider.GUARD_DIGITS);
+    }
+
+    @Test
+    public void repeated_input_is_cached() {
+        ConversionFunction pH = provider.getFunction("pH");
+        PreciseDecimal first = pH.toCanonical(new PreciseDecimal("7.4"));
+        assertThat(pH.toCanonical(new PreciseDecimal("7.4"))).isSameAs(first);
+    }
+
+    @Test
+    public void integer_powers_stay_exact() {
+        assertThat(provider.getFunction("pH").toCanonical(new PreciseDecimal("7")).getValue()).isEqualByComparingTo("0.0000001");
+        assertThat(provider.getFunction("hpC").toCanonical(new PreciseDecimal("3")).getValue()).isEqualByComparingTo("0.000001");
+        assertThat(provider.getFunction("hpC").fromCanonical(new PreciseDecimal("0.0001")).getValue()).isEqualByComparingTo("2");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "pH, 7.4",
+            "hpX, 0.25",
+            "hpC, 1.5",
+            "hpM, 2.75",
+            "hpQ, 0.5",
+            "lgTimes2, 3.3",
+    })
+    public void memoized_logarithms_match_direct_evaluation(String function, String value) {
+        int precision = PreciseDecimal.getUnlimitedPrecision() + PreciseSpecialUnitsFunctionProvider.GUARD_DIGITS;
+        BigDecimal basis = switch(function) {
+            case "hpC" -> BigDecimal.valueOf(100);
+            case "hpM" -> BigDecimal.valueOf(1000);
+            case "hpQ" -> BigDecimal.valueOf(50000);
+            default -> BigDecimal.TEN;
+        };
+        BigDecimal exponent = function.equals("lgTimes2") ? new BigDecimal(value).divide(BigDecimal.TWO) : new BigDecimal(value).negate();
+        BigDecimal expected = BigDecimalMath.pow(basis, exponent, new MathContext(200)).round(new MathContext(precision - 2));
+
+        BigDecimal actual = provider.getFunction(function).toCanonical(new PreciseDecimal(value)).getValue();
+        assertThat(actual.round(new MathContext(precision - 2))).isEqualTo(expected);
+    }
+}
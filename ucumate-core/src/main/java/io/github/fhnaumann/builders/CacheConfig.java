@@ -29,6 +29,7 @@ public interface CacheConfig {
     interface SizeStep extends FinishStep, RecordStatsStep, PreHeatStep {
         RecordStatsStep size(int maxSize);
         RecordStatsStep size(int maxValSize, int maxCanonSize);
+        RecordStatsStep size(int maxValSize, int maxCanonSize, int maxValBoolSize);
     }
 
     interface EnableStep {
@@ -74,6 +75,12 @@ public interface CacheConfig {
             return this;
         }
 
+        @Override
+        public RecordStatsStep size(int maxValSize, int maxCanonSize, int maxValBoolSize) {
+            props.put("ucumate.cache.maxValBoolSize", maxValBoolSize);
+            return size(maxValSize, maxCanonSize);
+        }
+
         @Override
         public Properties build() {
             return props;
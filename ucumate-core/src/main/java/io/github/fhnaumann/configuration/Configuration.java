@@ -7,18 +7,40 @@ import java.util.stream.Collectors;
 
 public class Configuration {
 
+    /**
+     * Selects the parser that is used by {@link io.github.fhnaumann.funcs.Validator#validate(String)}.
+     */
+    public enum ParserMode {
+        /**
+         * The hand-written recursive-descent parser. Default.
+         */
+        FAST,
+        /**
+         * The parser generated by ANTLR from the grammar.
+         */
+        ANTLR,
+        /**
+         * Runs both parsers, logs any disagreement and returns the result of the ANTLR parser.
+         */
+        DIFFERENTIAL
+    }
+
     private final boolean enablePrefixOnNonMetricUnits;
     private final boolean enableMolMassConversion;
     private final boolean allowAnnotAfterParens;
     private final boolean enableSQLitePersistence;
     private final String sqliteDBPath;
+    private final ParserMode parserMode;
+    private final boolean enableExactRationalMagnitudes;
 
-    private Configuration(boolean enablePrefixOnNonMetricUnits, boolean enableMolMassConversion, boolean allowAnnotAfterParens, boolean enableSQLitePersistence, String sqliteDBPath) {
+    private Configuration(boolean enablePrefixOnNonMetricUnits, boolean enableMolMassConversion, boolean allowAnnotAfterParens, boolean enableSQLitePersistence, String sqliteDBPath, ParserMode parserMode, boolean enableExactRationalMagnitudes) {
         this.enablePrefixOnNonMetricUnits = enablePrefixOnNonMetricUnits;
         this.enableMolMassConversion = enableMolMassConversion;
         this.allowAnnotAfterParens = allowAnnotAfterParens;
         this.enableSQLitePersistence = enableSQLitePersistence;
         this.sqliteDBPath = sqliteDBPath;
+        this.parserMode = parserMode;
+        this.enableExactRationalMagnitudes = enableExactRationalMagnitudes;
     }
 
     public FeatureFlags asFeatureFlags() {
@@ -45,6 +67,19 @@ public class Configuration {
         return sqliteDBPath;
     }
 
+    public ParserMode getParserMode() {
+        return parserMode;
+    }
+
+    /**
+     * If enabled, conversions without special units compute the magnitudes of both terms as exact fractions and only
+     * divide once at the end, instead of rounding every division to the unlimited precision of
+     * {@link io.github.fhnaumann.util.PreciseDecimal}. The results can differ in the last digits.
+     */
+    public boolean isEnableExactRationalMagnitudes() {
+        return enableExactRationalMagnitudes;
+    }
+
     @Override
     public String toString() {
         return "Configuration{" +
@@ -53,6 +88,8 @@ public class Configuration {
                 ", allowAnnotAfterParens=" + allowAnnotAfterParens +
                 ", enableSQLitePersistence=" + enableSQLitePersistence +
                 ", sqliteDBPath='" + sqliteDBPath + '\'' +
+                ", parserMode=" + parserMode +
+                ", enableExactRationalMagnitudes=" + enableExactRationalMagnitudes +
                 '}';
     }
 
@@ -68,7 +105,9 @@ public class Configuration {
                 Boolean.parseBoolean(interpolatedProps.getProperty("ucumate.enableMolMassConversion")),
                 Boolean.parseBoolean(interpolatedProps.getProperty("ucumate.allowAnnotAfterParens")),
                 Boolean.parseBoolean(interpolatedProps.getProperty("ucumate.persistence.sqlite.enable")),
-                interpolatedProps.getProperty("ucumate.persistence.sqlite.dbpath")
+                interpolatedProps.getProperty("ucumate.persistence.sqlite.dbpath"),
+                ParserMode.valueOf(interpolatedProps.getProperty("ucumate.parser", ParserMode.FAST.name()).toUpperCase()),
+                Boolean.parseBoolean(interpolatedProps.getProperty("ucumate.enableExactRationalMagnitudes"))
                 );
     }
 
@@ -96,6 +135,8 @@ public class Configuration {
         private boolean allowAnnotAfterParens = true;
         private boolean enableSQLitePersistence;
         private String sqliteDBPath;
+        private ParserMode parserMode = ParserMode.FAST;
+        private boolean enableExactRationalMagnitudes;
 
         public Builder enablePrefixOnNonMetricUnits(boolean value) {
             this.enablePrefixOnNonMetricUnits = value;
@@ -122,8 +163,18 @@ public class Configuration {
             return this;
         }
 
+        public Builder parserMode(ParserMode value) {
+            this.parserMode = value;
+            return this;
+        }
+
+        public Builder enableExactRationalMagnitudes(boolean value) {
+            this.enableExactRationalMagnitudes = value;
+            return this;
+        }
+
         public Configuration build() {
-            return new Configuration(enablePrefixOnNonMetricUnits, enableMolMassConversion, allowAnnotAfterParens, enableSQLitePersistence, sqliteDBPath);
+            return new Configuration(enablePrefixOnNonMetricUnits, enableMolMassConversion, allowAnnotAfterParens, enableSQLitePersistence, sqliteDBPath, parserMode, enableExactRationalMagnitudes);
         }
     }
 }
@@ -0,0 +1,59 @@
+package io.github.fhnaumann.funcs;
+
+import io.github.fhnaumann.funcs.Canonicalizer.UnitDirection;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider.ConversionFunction;
+import io.github.fhnaumann.util.PreciseDecimal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * <code>x * scale + offset</code> with doubles. One side of a conversion is such a transform if it has no special
+ * function or one that only shifts the value (Cel, [degF] and [degRe]), and so is the whole conversion. Converting
+ * with it only multiplies and adds once instead of applying the magnitudes and the function one after another.
+ *
+ * @author Felix Naumann
+ */
+record AffineTransform(double scale, double offset) {
+
+    /**
+     * Combines both sides of a conversion into one transform. The scale and the offset are computed from the exact
+     * magnitudes and offsets and are only rounded to doubles at the end, so i.e. 0 Cel is still exactly 32 [degF].
+     *
+     * @return The same as applying {@link Canonicalizer.ResolvedFactor#apply(PreciseDecimal, UnitDirection)} for both
+     * sides as a transform or null if a special function is not a shift.
+     */
+    static AffineTransform of(Canonicalizer.ResolvedFactor from, Canonicalizer.ResolvedFactor to) {
+        PreciseDecimal fromOffset = offsetOf(from.specialFunction());
+        PreciseDecimal toOffset = offsetOf(to.specialFunction());
+        if(fromOffset == null || toOffset == null) {
+            return null;
+        }
+        // magnitude * (x * cfPrefix + offset), the prefix only applies to special units
+        BigDecimal fromMagnitude = from.magnitude().getValue();
+        BigDecimal fromScale = from.isSpecial() ? fromMagnitude.multiply(from.cfPrefix().getValue()) : fromMagnitude;
+        BigDecimal fromShift = fromMagnitude.multiply(fromOffset.getValue());
+        // (y / magnitude - offset) / cfPrefix
+        BigDecimal toPrefix = to.isSpecial() ? to.cfPrefix().getValue() : BigDecimal.ONE;
+        BigDecimal toDivisor = to.magnitude().getValue().multiply(toPrefix);
+        BigDecimal scale = fromScale.divide(toDivisor, MathContext.DECIMAL128);
+        BigDecimal offset = fromShift.divide(toDivisor, MathContext.DECIMAL128)
+                .subtract(toOffset.getValue().divide(toPrefix, MathContext.DECIMAL128), MathContext.DECIMAL128);
+        return new AffineTransform(scale.doubleValue(), offset.doubleValue());
+    }
+
+    private static PreciseDecimal offsetOf(ConversionFunction specialFunction) {
+        return specialFunction == null ? PreciseDecimal.ZERO : specialFunction.offset();
+    }
+
+    double apply(double value) {
+        return value * scale + offset;
+    }
+
+    /**
+     * Neither the scale nor the offset over- or underflowed.
+     */
+    boolean isRepresentable() {
+        return Double.isFinite(scale) && scale != 0d && Double.isFinite(offset);
+    }
+}
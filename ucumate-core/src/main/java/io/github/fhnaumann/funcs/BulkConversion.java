@@ -0,0 +1,136 @@
+package io.github.fhnaumann.funcs;
+
+import io.github.fhnaumann.util.PreciseDecimal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts whole arrays with a {@link ConversionPlan}. Linear (and exact ratio) plans are reduced to a single ratio, which is applied to
+ * double arrays with a plain loop the JIT can vectorize. Special units that only shift the value (Cel, [degF] and [degRe]) are fused with the
+ * magnitudes into a single {@link AffineTransform} for double arrays. Other special units and BigDecimal arrays are
+ * converted one value at a time with the same arithmetic as {@link Converter}.
+ *
+ * @author Felix Naumann
+ */
+final class BulkConversion {
+
+    private BulkConversion() {}
+
+    static Converter.ConversionResult convert(ConversionPlan plan, double[] values, double[] out) {
+        checkLengths(values.length, out.length);
+        Converter.ConversionResult unit = plan.apply(PreciseDecimal.ONE);
+        if(!(unit instanceof Converter.Success)) {
+            return unit;
+        }
+        BigDecimal exactRatio = ratio(plan);
+        if(exactRatio != null) {
+            double ratio = exactRatio.doubleValue();
+            for(int i = 0; i < values.length; i++) {
+                out[i] = values[i] * ratio;
+            }
+        }
+        else if(affine(plan) instanceof AffineTransform transform) {
+            for(int i = 0; i < values.length; i++) {
+                out[i] = transform.apply(values[i]);
+            }
+        }
+        else {
+            for(int i = 0; i < values.length; i++) {
+                // NaN and infinite values have no BigDecimal, they convert to NaN like in FastConverter
+                out[i] = Double.isFinite(values[i]) ? convertOne(plan, BigDecimal.valueOf(values[i])).doubleValue() : Double.NaN;
+            }
+        }
+        return unit;
+    }
+
+    static Converter.ConversionResult convert(ConversionPlan plan, long[] values, int scale, long[] out, int outScale) {
+        checkLengths(values.length, out.length);
+        Converter.ConversionResult unit = plan.apply(PreciseDecimal.ONE);
+        if(!(unit instanceof Converter.Success)) {
+            return unit;
+        }
+        BigDecimal ratio = ratio(plan);
+        if(ratio != null) {
+            BigDecimal scaledRatio = ratio.movePointRight(outScale - scale);
+            if(isLong(scaledRatio)) {
+                // i.e. mg -> ug at the same scale, which stays exact
+                long multiplier = scaledRatio.longValueExact();
+                for(int i = 0; i < values.length; i++) {
+                    out[i] = Math.multiplyExact(values[i], multiplier);
+                }
+            }
+            else {
+                for(int i = 0; i < values.length; i++) {
+                    out[i] = BigDecimal.valueOf(values[i]).multiply(scaledRatio).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+                }
+            }
+        }
+        else {
+            for(int i = 0; i < values.length; i++) {
+                out[i] = convertOne(plan, BigDecimal.valueOf(values[i], scale)).setScale(outScale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+            }
+        }
+        return unit;
+    }
+
+    static Converter.ConversionResult convert(ConversionPlan plan, BigDecimal[] values, BigDecimal[] out) {
+        checkLengths(values.length, out.length);
+        Converter.ConversionResult unit = plan.apply(PreciseDecimal.ONE);
+        if(!(unit instanceof Converter.Success)) {
+            return unit;
+        }
+        // the values are exact, so they are converted exactly like UCUMService.convert would do it
+        for(int i = 0; i < values.length; i++) {
+            out[i] = convertOne(plan, values[i]);
+        }
+        return unit;
+    }
+
+    private static BigDecimal convertOne(ConversionPlan plan, BigDecimal value) {
+        return switch(plan.apply(new PreciseDecimal(value))) {
+            case Converter.Success success -> success.conversionFactor().getValue();
+            // a plan either fails for every factor or for none
+            case Converter.FailedConversion failedConversion -> throw new IllegalStateException("Conversion of %s failed: %s".formatted(value, failedConversion));
+        };
+    }
+
+    /*
+    The ratio of a plan without special units or null.
+     */
+    private static BigDecimal ratio(ConversionPlan plan) {
+        if(plan instanceof ConversionPlan.Linear linear) {
+            return PreciseDecimal.ONE.multiply(linear.fromMagnitude()).divide(linear.toMagnitude()).getValue();
+        }
+        if(plan instanceof ConversionPlan.ExactRatio exactRatio) {
+            return exactRatio.ratio().toPreciseDecimal().getValue();
+        }
+        return null;
+    }
+
+    /*
+    The transform of a plan with special functions that only shift the value (i.e. Cel -> [degF]) or null.
+     */
+    private static AffineTransform affine(ConversionPlan plan) {
+        if(!(plan instanceof ConversionPlan.Special special)) {
+            return null;
+        }
+        AffineTransform transform = AffineTransform.of(special.from(), special.to());
+        return transform != null && transform.isRepresentable() ? transform : null;
+    }
+
+    private static boolean isLong(BigDecimal value) {
+        try {
+            value.longValueExact();
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    private static void checkLengths(int valuesLength, int outLength) {
+        if(outLength < valuesLength) {
+            throw new IllegalArgumentException("The output array has length %d, but %d values are converted.".formatted(outLength, valuesLength));
+        }
+    }
+}
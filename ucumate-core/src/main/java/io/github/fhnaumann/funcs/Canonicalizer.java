@@ -3,9 +3,9 @@ package io.github.fhnaumann.funcs;
 import io.github.fhnaumann.compounds.CompoundUtil;
 import io.github.fhnaumann.configuration.ConfigurationRegistry;
 import io.github.fhnaumann.funcs.sorter.AlphabeticalSorter;
+import io.github.fhnaumann.model.TermSummary;
 import io.github.fhnaumann.model.UCUMDefinition.*;
 import io.github.fhnaumann.persistence.PersistenceRegistry;
-import io.github.fhnaumann.util.MolMassUtil;
 import io.github.fhnaumann.util.UCUMRegistry;
 import io.github.fhnaumann.builders.CombineTermBuilder;
 import io.github.fhnaumann.builders.SoloTermBuilder;
@@ -17,11 +17,31 @@ import io.github.fhnaumann.util.PreciseDecimal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class Canonicalizer {
 
     private static final UCUMRegistry registry = UCUMRegistry.getInstance();
     private static final Logger log = LoggerFactory.getLogger(Canonicalizer.class);
 
+    private final boolean useAtomTable;
+
+    private int atomHits;
+    private int inMemoryLookups;
+    private int allProviderLookups;
+
+    public Canonicalizer() {
+        this(true);
+    }
+
+    private Canonicalizer(boolean useAtomTable) {
+        this.useAtomTable = useAtomTable;
+    }
+
     public record CanonicalStepResult(
         Term term,
         PreciseDecimal magnitude,
@@ -132,6 +152,52 @@ public class Canonicalizer {
         FROM, TO
     }
 
+    /*
+    Where the canonical form of a (sub-)term is looked up before it is computed. Only the term that is canonicalized is
+    looked up in every registered PersistenceProvider, which may be a database. Its sub-terms are only looked up in the
+    in-memory cache, otherwise a single canonicalization could query a provider for every step of the recursion.
+     */
+    private enum CacheLookup {
+        ALL_PROVIDERS, IN_MEMORY
+    }
+
+    /**
+     * The number of lookups during the last canonicalization with this instance.
+     *
+     * @param atomHits The units (with an optional prefix) that were taken from the precomputed table.
+     * @param inMemoryLookups The sub-terms that were looked up in the in-memory cache only.
+     * @param allProviderLookups The terms that were looked up in the in-memory cache and then in every registered
+     *                           {@link io.github.fhnaumann.persistence.PersistenceProvider}. At most 1.
+     */
+    public record LookupCounts(int atomHits, int inMemoryLookups, int allProviderLookups) {}
+
+    /**
+     * @return The lookups of the last {@link #canonicalize(PreciseDecimal, Term, boolean, boolean, UnitDirection, PreciseDecimal)}
+     * (or any of its overloads) with this instance.
+     */
+    public LookupCounts lookupCounts() {
+        return new LookupCounts(atomHits, inMemoryLookups, allProviderLookups);
+    }
+
+    private void resetLookupCounts() {
+        atomHits = 0;
+        inMemoryLookups = 0;
+        allProviderLookups = 0;
+    }
+
+    private CanonicalStepResult lookupCached(Term term, CacheLookup cacheLookup) {
+        return switch (cacheLookup) {
+            case ALL_PROVIDERS -> {
+                allProviderLookups++;
+                yield PersistenceRegistry.getInstance().getCanonical(term);
+            }
+            case IN_MEMORY -> {
+                inMemoryLookups++;
+                yield PersistenceRegistry.getInstance().getCanonicalInMemory(term);
+            }
+        };
+    }
+
     public CanonicalizationResult canonicalize(Term term) {
         return canonicalize(PreciseDecimal.ONE, term);
     }
@@ -150,8 +216,17 @@ public class Canonicalizer {
     }
 
     public CanonicalizationResult canonicalize(PreciseDecimal factor, Term term, boolean normalize, boolean flatten, UnitDirection unitDirection, PreciseDecimal substanceMolarMassCoeff) {
+        resetLookupCounts();
+        TermSummary summary = TermSummary.of(term);
+        if(summary.containsArbitraryUnit()) {
+            // fail before any arithmetic is done, arbitrary units can never be canonicalized
+            ArbitraryUnit arbitraryUnit = firstArbitraryUnit(term, substanceMolarMassCoeff);
+            if(arbitraryUnit != null) {
+                return new TermHasArbitraryUnit(arbitraryUnit);
+            }
+        }
         try {
-            CanonicalStepResult canonicalStep = canonicalizeImpl(term, new CanonicalStepResult(term, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null), substanceMolarMassCoeff);
+            CanonicalStepResult canonicalStep = canonicalizeImpl(term, new CanonicalStepResult(term, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null), substanceMolarMassCoeff, CacheLookup.ALL_PROVIDERS);
             if(!(canonicalStep.term() instanceof CanonicalTerm canonicalTerm)) {
                 throw new RuntimeException("Expected CanonicalTerm, got " + canonicalStep.term());
             }
@@ -167,7 +242,7 @@ public class Canonicalizer {
 
 
             boolean isSpecial = canonicalStep.specialHandlingActive() && canonicalStep.specialFunction() != null;
-            boolean isMolInvolved = MolMassUtil.containsMol(term);
+            boolean isMolInvolved = summary.containsMol();
             if(isSpecial && isMolInvolved && substanceMolarMassCoeff != null && ConfigurationRegistry.get().isEnableMolMassConversion()) {
                 // as for UCUM version 2.2 this only affects "[pH]"
                 log.warn("Conversion involving the special unit '[pH]' to a mass unit is not supported.");
@@ -193,34 +268,158 @@ public class Canonicalizer {
                 log.debug("Not saving {} in cache because the mole unit requires additional properties to be stored in the key, which is not currently implemented.", UCUMService.print(term));
             }
 
-            PreciseDecimal resultFactor = switch (unitDirection) {
+            PreciseDecimal resultFactor = resultFactor(factor, canonicalStep, unitDirection);
+
+            return new Success(resultFactor, resultTerm);
+        } catch (TermHasArbitraryUnitException e) {
+            return new TermHasArbitraryUnit(e.arbitraryUnit);
+        }
+    }
+
+    /**
+     * Only computes the factor that {@link #canonicalize(PreciseDecimal, Term, boolean, boolean, UnitDirection, PreciseDecimal)}
+     * would return (without a substance's molar mass), but never builds the canonical term. There is no flattening,
+     * normalizing or sorting and nothing is cached. The arithmetic is the same, so the factor is identical.
+     *
+     * @return The factor or null if the term contains an arbitrary unit.
+     */
+    PreciseDecimal canonicalizeFactor(PreciseDecimal factor, Term term, UnitDirection unitDirection) {
+        ResolvedFactor resolvedFactor = resolveFactor(term);
+        return resolvedFactor != null ? resolvedFactor.apply(factor, unitDirection) : null;
+    }
+
+    /**
+     * Everything that {@link #canonicalizeFactor(PreciseDecimal, Term, UnitDirection)} needs from the term, so the factor
+     * can be applied repeatedly without walking the term again.
+     *
+     * @return The resolved factor or null if the term contains an arbitrary unit.
+     */
+    ResolvedFactor resolveFactor(Term term) {
+        resetLookupCounts();
+        try {
+            return ResolvedFactor.of(magnitudeImpl(term, new CanonicalStepResult(term, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null), CacheLookup.ALL_PROVIDERS));
+        } catch (TermHasArbitraryUnitException e) {
+            return null;
+        }
+    }
+
+    private PreciseDecimal resultFactor(PreciseDecimal factor, CanonicalStepResult canonicalStep, UnitDirection unitDirection) {
+        return ResolvedFactor.of(canonicalStep).apply(factor, unitDirection);
+    }
+
+    /**
+     * The values of a canonicalized term that its conversion factor is computed from. The special function (if any) is
+     * already looked up.
+     */
+    record ResolvedFactor(PreciseDecimal magnitude, PreciseDecimal cfPrefix, SpecialUnitsFunctionProvider.ConversionFunction specialFunction) {
+
+        static ResolvedFactor of(CanonicalStepResult canonicalStep) {
+            boolean isSpecial = canonicalStep.specialHandlingActive() && canonicalStep.specialFunction() != null;
+            return new ResolvedFactor(
+                canonicalStep.magnitude(),
+                canonicalStep.cfPrefix(),
+                isSpecial ? SpecialUnits.getFunction(canonicalStep.specialFunction().name()) : null
+            );
+        }
+
+        boolean isSpecial() {
+            return specialFunction != null;
+        }
+
+        PreciseDecimal apply(PreciseDecimal factor, UnitDirection unitDirection) {
+            return switch (unitDirection) {
                 case FROM -> {
-                    if (isSpecial) {
-                        SpecialUnitsFunctionProvider.ConversionFunction specialConvFunc = SpecialUnits.getFunction(canonicalStep.specialFunction().name());
-                        PreciseDecimal factorAsInputForSpecialFunc = factor.multiply(canonicalStep.cfPrefix());
-                        PreciseDecimal scaledRatio = specialConvFunc.toCanonical(factorAsInputForSpecialFunc);
-                        yield canonicalStep.magnitude().multiply(scaledRatio);
+                    if (isSpecial()) {
+                        PreciseDecimal factorAsInputForSpecialFunc = factor.multiply(cfPrefix);
+                        PreciseDecimal scaledRatio = specialFunction.toCanonical(factorAsInputForSpecialFunc);
+                        yield magnitude.multiply(scaledRatio);
                     } else {
-                        yield factor.multiply(canonicalStep.magnitude());
+                        yield factor.multiply(magnitude);
                     }
                 }
                 case TO -> {
-                    if (isSpecial) {
-                        SpecialUnitsFunctionProvider.ConversionFunction specialConvFunc = SpecialUnits.getFunction(canonicalStep.specialFunction().name());
-                        PreciseDecimal factorAsInputForSpecialFunc = factor.divide(canonicalStep.magnitude());
-                        PreciseDecimal scaledRatio = specialConvFunc.fromCanonical(factorAsInputForSpecialFunc);
-                        scaledRatio = scaledRatio.multiply(PreciseDecimal.ONE.divide(canonicalStep.cfPrefix()));
+                    if (isSpecial()) {
+                        PreciseDecimal factorAsInputForSpecialFunc = factor.divide(magnitude);
+                        PreciseDecimal scaledRatio = specialFunction.fromCanonical(factorAsInputForSpecialFunc);
+                        scaledRatio = scaledRatio.multiply(PreciseDecimal.ONE.divide(cfPrefix));
                         yield scaledRatio;
                     } else {
-                        yield factor.divide(canonicalStep.magnitude());
+                        yield factor.divide(magnitude);
                     }
                 }
             };
+        }
+    }
 
-            return new Success(resultFactor, resultTerm);
-        } catch (TermHasArbitraryUnitException e) {
-            return new TermHasArbitraryUnit(e.arbitraryUnit);
+    /*
+    Same as canonicalizeImpl, but only the values of the step results are combined. Their terms are never built.
+     */
+    private CanonicalStepResult magnitudeImpl(Term term, CanonicalStepResult canonicalStep)
+        throws TermHasArbitraryUnitException {
+        return magnitudeImpl(term, canonicalStep, CacheLookup.IN_MEMORY);
+    }
+
+    private CanonicalStepResult magnitudeImpl(Term term, CanonicalStepResult canonicalStep, CacheLookup cacheLookup)
+        throws TermHasArbitraryUnitException {
+        if(term instanceof ComponentTerm componentTerm) {
+            CanonicalStepResult atom = AtomTable.lookup(componentTerm.component().unit(), null);
+            if(atom != null) {
+                atomHits++;
+                return powValueOf(componentTerm, atom);
+            }
         }
+        CanonicalStepResult cached = lookupCached(term, cacheLookup);
+        if(cached != null) {
+            return cached;
+        }
+        return switch (term) {
+            case ComponentTerm componentTerm -> powValueOf(componentTerm, canonicalizeUnit(componentTerm.component().unit(), canonicalStep, null));
+            case BinaryTerm binaryTerm -> {
+                CanonicalStepResult leftStep = magnitudeImpl(binaryTerm.left(), canonicalStep);
+                CanonicalStepResult rightStep = magnitudeImpl(binaryTerm.right(), canonicalStep);
+                yield switch (binaryTerm.operator()) {
+                    case MUL -> multiplyValues(leftStep, rightStep);
+                    case DIV -> divideValues(leftStep, rightStep);
+                };
+            }
+            // canonicalizeImpl rewrites /x to 1/x
+            case UnaryDivTerm unaryDivTerm -> divideValues(magnitudeImpl(SoloTermBuilder.UNITY, canonicalStep), magnitudeImpl(unaryDivTerm.term(), canonicalStep));
+            case ParenTerm parenTerm -> magnitudeImpl(parenTerm.term(), canonicalStep);
+            case AnnotTerm annotTerm -> magnitudeImpl(annotTerm.term(), canonicalStep);
+            case AnnotOnlyTerm annotOnlyTerm -> new CanonicalStepResult(null, PreciseDecimal.ONE, PreciseDecimal.ONE, canonicalStep.specialHandlingActive(), canonicalStep.specialFunction());
+        };
+    }
+
+    private CanonicalStepResult powValueOf(ComponentTerm componentTerm, CanonicalStepResult unitStep) {
+        return switch (componentTerm.component()) {
+            case ComponentNoExponent componentNoExponent -> unitStep;
+            case ComponentExponent componentExponent -> powValue(unitStep, componentExponent.exponent().exponent());
+        };
+    }
+
+    /*
+    Finds the arbitrary unit in the same order in which canonicalizeImpl would run into it.
+     */
+    private ArbitraryUnit firstArbitraryUnit(Term term, PreciseDecimal substanceMolarMassCoeff) {
+        return switch (term) {
+            case ComponentTerm componentTerm -> switch (componentTerm.component().unit()) {
+                case IntegerUnit integerUnit -> null;
+                case SimpleUnit simpleUnit -> switch (simpleUnit.ucumUnit()) {
+                    case ArbitraryUnit arbitraryUnit -> arbitraryUnit;
+                    case DefinedUnit definedUnit when (registry.getUnitFlags(definedUnit) & TermSummary.CONTAINS_ARBITRARY_UNIT) != 0 ->
+                        firstArbitraryUnit(registry.getDefinedUnitSourceDefinition(definedUnit, substanceMolarMassCoeff != null), substanceMolarMassCoeff);
+                    default -> null;
+                };
+            };
+            case BinaryTerm binaryTerm -> {
+                ArbitraryUnit left = firstArbitraryUnit(binaryTerm.left(), substanceMolarMassCoeff);
+                yield left != null ? left : firstArbitraryUnit(binaryTerm.right(), substanceMolarMassCoeff);
+            }
+            case UnaryDivTerm unaryDivTerm -> firstArbitraryUnit(unaryDivTerm.term(), substanceMolarMassCoeff);
+            case ParenTerm parenTerm -> firstArbitraryUnit(parenTerm.term(), substanceMolarMassCoeff);
+            case AnnotTerm annotTerm -> firstArbitraryUnit(annotTerm.term(), substanceMolarMassCoeff);
+            case AnnotOnlyTerm annotOnlyTerm -> null;
+        };
     }
 
     private PreciseDecimal extractPrefixOrDimlessFactorFromSpecialUnit(String specialUnitFunctionUnit) {
@@ -267,7 +466,19 @@ public class Canonicalizer {
 
     private CanonicalStepResult canonicalizeImpl(Term term, CanonicalStepResult canonicalStep, PreciseDecimal substanceMolarMassCoeff)
         throws TermHasArbitraryUnitException {
-        CanonicalStepResult cached = PersistenceRegistry.getInstance().getCanonical(term);
+        return canonicalizeImpl(term, canonicalStep, substanceMolarMassCoeff, CacheLookup.IN_MEMORY);
+    }
+
+    private CanonicalStepResult canonicalizeImpl(Term term, CanonicalStepResult canonicalStep, PreciseDecimal substanceMolarMassCoeff, CacheLookup cacheLookup)
+        throws TermHasArbitraryUnitException {
+        if(useAtomTable && term instanceof ComponentTerm componentTerm) {
+            CanonicalStepResult atom = AtomTable.lookup(componentTerm.component().unit(), substanceMolarMassCoeff);
+            if(atom != null) {
+                atomHits++;
+                return applyExponent(componentTerm, atom);
+            }
+        }
+        CanonicalStepResult cached = lookupCached(term, cacheLookup);
         if(cached != null) {
             return cached;
         }
@@ -305,6 +516,10 @@ public class Canonicalizer {
     private CanonicalStepResult handleCompTerm(ComponentTerm componentTerm, CanonicalStepResult canonicalStep, PreciseDecimal substanceMolarMassCoeff)
         throws TermHasArbitraryUnitException {
         CanonicalStepResult unitStep = canonicalizeUnit(componentTerm.component().unit(), canonicalStep, substanceMolarMassCoeff);
+        return applyExponent(componentTerm, unitStep);
+    }
+
+    private CanonicalStepResult applyExponent(ComponentTerm componentTerm, CanonicalStepResult unitStep) {
         return switch (componentTerm.component()) {
             case ComponentNoExponent componentNoExponent -> unitStep;
             case ComponentExponent componentExponent -> {
@@ -427,10 +642,79 @@ public class Canonicalizer {
         }
     }
 
+    /*
+    The precomputed step of a unit with an optional prefix (without a substance's molar mass), or null for arbitrary
+    units. FastConverter builds its own table of doubles from these.
+     */
+    static CanonicalStepResult atom(UCUMUnit unit, UCUMPrefix prefix) {
+        AtomTable.Atom atom = AtomTable.ATOMS.get(unit);
+        if(atom == null) {
+            return null;
+        }
+        return prefix != null ? atom.prefixed().get(prefix) : atom.unprefixed();
+    }
+
+    /*
+    Every prefix and unit (an atom) is canonicalized the same way, no matter where it appears in a term: The step that is
+    passed into an atom never carries a magnitude, prefix or special function. The results are therefore computed once
+    for all prefix and unit combinations instead of recursing through the source definitions (and the cache) every time.
+    Atoms that involve mol depend on the substance's molar mass when it is given and are still computed every time.
+    Arbitrary units have no entry. The table is built on first use because it needs the registry instance, which is
+    not available while the registry itself is being loaded.
+     */
+    private static final class AtomTable {
+
+        private record Atom(CanonicalStepResult unprefixed, Map<UCUMPrefix, CanonicalStepResult> prefixed) {}
+
+        private static final Map<UCUMUnit, Atom> ATOMS = build();
+
+        private static CanonicalStepResult lookup(Unit unit, PreciseDecimal substanceMolarMassCoeff) {
+            return switch (unit) {
+                case IntegerUnit integerUnit -> null;
+                case SimpleUnit simpleUnit -> {
+                    if(substanceMolarMassCoeff != null && (registry.getUnitFlags(simpleUnit.ucumUnit()) & TermSummary.CONTAINS_MOL) != 0) {
+                        yield null;
+                    }
+                    Atom atom = ATOMS.get(simpleUnit.ucumUnit());
+                    if(atom == null) {
+                        yield null;
+                    }
+                    yield simpleUnit instanceof PrefixSimpleUnit prefixSimpleUnit
+                        ? atom.prefixed().get(prefixSimpleUnit.prefix())
+                        : atom.unprefixed();
+                }
+            };
+        }
+
+        private static Map<UCUMUnit, Atom> build() {
+            Canonicalizer canonicalizer = new Canonicalizer(false);
+            CanonicalStepResult initial = new CanonicalStepResult(SoloTermBuilder.UNITY, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null);
+            // the units are registry singletons, so they are compared by identity instead of comparing all components
+            Map<UCUMUnit, Atom> atoms = new IdentityHashMap<>();
+            List<UCUMUnit> units = new ArrayList<>(registry.getBaseUnits());
+            units.addAll(registry.getDefinedUnits());
+            for(UCUMUnit unit : units) {
+                try {
+                    CanonicalStepResult unprefixed = canonicalizer.canonicalizeUCUMConcept(unit, initial, null);
+                    Map<UCUMPrefix, CanonicalStepResult> prefixed = new IdentityHashMap<>();
+                    for(UCUMPrefix prefix : registry.getPrefixes()) {
+                        prefixed.put(prefix, canonicalizer.composeConsideringSpecial(unprefixed, prefix.value().conversionFactor()));
+                    }
+                    atoms.put(unit, new Atom(unprefixed, Collections.unmodifiableMap(prefixed)));
+                } catch (TermHasArbitraryUnitException e) {
+                    // arbitrary units can't be canonicalized
+                }
+            }
+            return Collections.unmodifiableMap(atoms);
+        }
+    }
+
     private static class TermHasArbitraryUnitException extends Throwable {
         private final ArbitraryUnit arbitraryUnit;
 
         public TermHasArbitraryUnitException(ArbitraryUnit arbitraryUnit) {
+            // only used for control flow, a stack trace is never looked at
+            super(null, null, false, false);
             this.arbitraryUnit = arbitraryUnit;
         }
     }
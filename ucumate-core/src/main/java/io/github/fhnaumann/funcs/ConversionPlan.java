@@ -0,0 +1,158 @@
+package io.github.fhnaumann.funcs;
+
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Canonicalizer.ResolvedFactor;
+import io.github.fhnaumann.funcs.Canonicalizer.UnitDirection;
+import io.github.fhnaumann.funcs.Converter.ConversionResult;
+import io.github.fhnaumann.model.UCUMExpression.Term;
+import io.github.fhnaumann.util.PreciseDecimal;
+import io.github.fhnaumann.util.Rational;
+
+import java.math.BigDecimal;
+
+/**
+ * A conversion between two fixed terms that is resolved once and can then be applied to any number of factors. Parsing
+ * both terms, comparing their dimensions and computing their magnitudes is done when the plan is created. Applying
+ * the plan only does the remaining arithmetic, which is the same as in {@link Converter}, so the results are identical.
+ * <br>
+ * I.e. <code>UCUMService.plan("mg/dL", "g/L").apply(new PreciseDecimal("5"))</code> is the same as
+ * <code>UCUMService.convert("5", "mg/dL", "g/L")</code>.
+ *
+ * @author Felix Naumann
+ */
+public sealed interface ConversionPlan {
+
+    /**
+     * Converts <code>factor * from</code> to <code>x * to</code>.
+     *
+     * @return A ConversionResult either containing <code>x</code> or an error with more details.
+     */
+    ConversionResult apply(PreciseDecimal factor);
+
+    /**
+     * Converts every value of the array. A linear conversion multiplies every value with the same ratio and Cel, [degF]
+     * or [degRe] additionally add the same offset. The ratio and the offset are computed exactly and rounded to doubles
+     * once, so a result may differ from {@link #apply(PreciseDecimal)} by a few ulps of the scaled value or the offset,
+     * whichever is larger (i.e. 37 Cel is 98.60000000000001 [degF]). Other special units are converted one value at a
+     * time and are accurate to the double precision of their function.
+     *
+     * @param values The values in the <code>from</code> unit. NaN or infinite values may convert to NaN.
+     * @param out The array the converted values are written to. May be <code>values</code> to convert in place.
+     * @return The result of converting 1. Nothing is written if it is not a {@link Converter.Success}.
+     */
+    default ConversionResult applyAll(double[] values, double[] out) {
+        return BulkConversion.convert(this, values, out);
+    }
+
+    /**
+     * Converts every value of the array where each value is an unscaled long, i.e. <code>1234</code> with the scale
+     * <code>2</code> is <code>12.34</code>. Results are rounded half even to <code>outScale</code>.
+     *
+     * @param values The unscaled values in the <code>from</code> unit.
+     * @param scale The scale of <code>values</code>.
+     * @param out The array the unscaled converted values are written to. May be <code>values</code> to convert in place.
+     * @param outScale The scale of <code>out</code>.
+     * @return The result of converting 1. Nothing is written if it is not a {@link Converter.Success}.
+     * @throws ArithmeticException If a converted value does not fit into a long.
+     */
+    default ConversionResult applyAll(long[] values, int scale, long[] out, int outScale) {
+        return BulkConversion.convert(this, values, scale, out, outScale);
+    }
+
+    /**
+     * Converts every value of the array. The results are the same as {@link #apply(PreciseDecimal)} for each value.
+     *
+     * @param values The values in the <code>from</code> unit.
+     * @param out The array the converted values are written to. May be <code>values</code> to convert in place.
+     * @return The result of converting 1. Nothing is written if it is not a {@link Converter.Success}.
+     */
+    default ConversionResult applyAll(BigDecimal[] values, BigDecimal[] out) {
+        return BulkConversion.convert(this, values, out);
+    }
+
+    /**
+     * Creates a plan for two parsed terms. Use {@link UCUMService#plan(String, String)} for plans that are cached.
+     */
+    static ConversionPlan of(Term from, Term to) {
+        long fromDimensions = DimensionEvaluator.evaluate(from);
+        long toDimensions = DimensionEvaluator.evaluate(to);
+        if(fromDimensions == DimensionEvaluator.UNKNOWN || toDimensions == DimensionEvaluator.UNKNOWN) {
+            // i.e. arbitrary units, which fail the same way for every factor
+            if(new Converter().convert(from, to) instanceof Converter.FailedConversion failure) {
+                return new Failed(failure);
+            }
+            return new Deferred(from, to);
+        }
+        if(fromDimensions != toDimensions) {
+            return new Failed(new Converter.BaseDimensionMismatch(new DimensionAnalyzer.Failure(DimensionVector.lazyDifference(fromDimensions, toDimensions))));
+        }
+        if(ConfigurationRegistry.get().isEnableExactRationalMagnitudes()) {
+            Rational ratio = RationalMagnitude.exactRatio(from, to);
+            if(ratio != null) {
+                return new ExactRatio(ratio);
+            }
+        }
+        Canonicalizer canonicalizer = new Canonicalizer();
+        ResolvedFactor fromFactor = canonicalizer.resolveFactor(from);
+        ResolvedFactor toFactor = canonicalizer.resolveFactor(to);
+        if(fromFactor == null || toFactor == null) {
+            return new Deferred(from, to);
+        }
+        if(!fromFactor.isSpecial() && !toFactor.isSpecial()) {
+            return new Linear(fromFactor.magnitude(), toFactor.magnitude());
+        }
+        return new Special(fromFactor, toFactor);
+    }
+
+    /**
+     * Neither term contains a special unit, the factor is only multiplied and divided by the magnitudes.
+     */
+    record Linear(PreciseDecimal fromMagnitude, PreciseDecimal toMagnitude) implements ConversionPlan {
+        @Override
+        public ConversionResult apply(PreciseDecimal factor) {
+            return new Converter.Success(factor.multiply(fromMagnitude).divide(toMagnitude));
+        }
+    }
+
+    /**
+     * Neither term contains a special unit and exact rational magnitudes are enabled, the magnitudes have already been
+     * divided exactly. The ratio is multiplied exactly with the factor and only the result is rounded.
+     */
+    record ExactRatio(Rational ratio) implements ConversionPlan {
+        @Override
+        public ConversionResult apply(PreciseDecimal factor) {
+            return new Converter.Success(RationalMagnitude.apply(factor, ratio));
+        }
+    }
+
+    /**
+     * At least one term contains a special unit (i.e. Cel, [degF] or [pH]), its function has already been looked up.
+     */
+    record Special(ResolvedFactor from, ResolvedFactor to) implements ConversionPlan {
+        @Override
+        public ConversionResult apply(PreciseDecimal factor) {
+            return new Converter.Success(to.apply(from.apply(factor, UnitDirection.FROM), UnitDirection.TO));
+        }
+    }
+
+    /**
+     * The conversion fails for every factor.
+     */
+    record Failed(Converter.FailedConversion failure) implements ConversionPlan {
+        @Override
+        public ConversionResult apply(PreciseDecimal factor) {
+            return failure;
+        }
+    }
+
+    /**
+     * The terms can only be converted by canonicalizing them every time because they contain exponents that are too
+     * large to resolve them upfront.
+     */
+    record Deferred(Term from, Term to) implements ConversionPlan {
+        @Override
+        public ConversionResult apply(PreciseDecimal factor) {
+            return new Converter().convert(factor, from, to);
+        }
+    }
+}
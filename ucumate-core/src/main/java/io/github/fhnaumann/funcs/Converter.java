@@ -34,6 +34,12 @@ public class Converter {
             log.warn("Mol <-> Mass conversion enabled and either from or to contains mol but no substanceMolarMassCoeff has been given. It is highly unlikely that a coefficient of 1 is desired.");
         }
         Canonicalizer canonicalizer = new Canonicalizer();
+        if(substanceMolarMassCoeff == null || !(fromContainsMol || toContainsMol)) {
+            ConversionResult result = convertFactorOnly(canonicalizer, from, to);
+            if(result != null) {
+                return result;
+            }
+        }
         Canonicalizer.CanonicalizationResult fromResult = canonicalizer.canonicalize(from.factor(), from.term(), true, true, UnitDirection.FROM, toContainsMol ? null : substanceMolarMassCoeff);
         return switch (fromResult) {
             case Canonicalizer.FailedCanonicalization failedCanonicalization -> new FailedCanonicalization(failedCanonicalization);
@@ -53,6 +59,40 @@ public class Converter {
             }
         };
     }
+
+    /*
+    Only the conversion factor and the dimensions are needed, so neither side is canonicalized into a term. The factor
+    is computed with the same arithmetic as the canonicalization and is identical. Returns null if one of the terms
+    can't be evaluated this way (arbitrary units, exponents that don't fit into a DimensionVector), which are then
+    canonicalized as usual to report the same failures as before.
+    With exact rational magnitudes enabled, the magnitudes of terms without special units are divided only once instead.
+     */
+    private ConversionResult convertFactorOnly(Canonicalizer canonicalizer, Conversion from, UCUMExpression.Term to) {
+        long fromDimensions = DimensionEvaluator.evaluate(from.term());
+        long toDimensions = DimensionEvaluator.evaluate(to);
+        if(fromDimensions == DimensionEvaluator.UNKNOWN || toDimensions == DimensionEvaluator.UNKNOWN) {
+            return null;
+        }
+        if(ConfigurationRegistry.get().isEnableExactRationalMagnitudes()) {
+            PreciseDecimal magnitude = RationalMagnitude.convert(from.factor(), from.term(), to);
+            if(magnitude != null) {
+                if(fromDimensions != toDimensions) {
+                    return new BaseDimensionMismatch(new Failure(DimensionVector.lazyDifference(fromDimensions, toDimensions)));
+                }
+                return new Success(magnitude);
+            }
+        }
+        PreciseDecimal fromMagnitude = canonicalizer.canonicalizeFactor(from.factor(), from.term(), UnitDirection.FROM);
+        PreciseDecimal toMagnitude = fromMagnitude != null ? canonicalizer.canonicalizeFactor(fromMagnitude, to, UnitDirection.TO) : null;
+        if(toMagnitude == null) {
+            return null;
+        }
+        if(fromDimensions != toDimensions) {
+            return new BaseDimensionMismatch(new Failure(DimensionVector.lazyDifference(fromDimensions, toDimensions)));
+        }
+        return new Success(toMagnitude);
+    }
+
 /*
 
 
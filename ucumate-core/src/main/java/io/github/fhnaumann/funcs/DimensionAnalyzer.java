@@ -14,6 +14,18 @@ public class DimensionAnalyzer {
 
 
     public static ComparisonResult compare(UCUMExpression.CanonicalTerm term, UCUMExpression.CanonicalTerm otherTerm) {
+        long termVector = vectorOf(term);
+        long otherTermVector = vectorOf(otherTerm);
+        if(termVector != DimensionVector.OVERFLOW && otherTermVector != DimensionVector.OVERFLOW) {
+            return termVector == otherTermVector
+                    ? new Success()
+                    : new Failure(DimensionVector.lazyDifference(termVector, otherTermVector));
+        }
+        // some exponent does not fit into the packed vector
+        return compareMaps(term, otherTerm);
+    }
+
+    private static ComparisonResult compareMaps(UCUMExpression.CanonicalTerm term, UCUMExpression.CanonicalTerm otherTerm) {
         Map<Dimension, Integer> termDims = analyze(term, 1);
         Map<Dimension, Integer> otherTermDims = analyze(otherTerm, 1);
         Map<Dimension, Integer> result = MapUtil.calculateDiff(termDims, otherTermDims, true);
@@ -31,6 +43,46 @@ public class DimensionAnalyzer {
         return map;
     }
 
+    /**
+     * Same as {@link #analyze(UCUMExpression.CanonicalTerm)} but packed into a {@link DimensionVector}.
+     *
+     * @return The dimension vector or {@link DimensionVector#OVERFLOW} if an exponent is too large for it.
+     */
+    public static long vectorOf(UCUMExpression.CanonicalTerm term) {
+        return vectorOf(term, 1);
+    }
+
+    private static long vectorOf(UCUMExpression.CanonicalTerm term, int sign) {
+        return switch(term) {
+            case UCUMExpression.CanonicalComponentTerm componentTerm -> vectorOfComponent(componentTerm.component(), sign);
+            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> DimensionVector.ZERO;
+            case UCUMExpression.CanonicalAnnotTerm canonicalAnnotTerm -> vectorOf(canonicalAnnotTerm.term(), sign);
+            case UCUMExpression.CanonicalBinaryTerm binaryTerm -> DimensionVector.add(
+                    vectorOf(binaryTerm.left(), sign),
+                    vectorOf(binaryTerm.right(), switch(binaryTerm.operator()) {
+                        case MUL -> sign;
+                        case DIV -> -sign;
+                    }));
+            case UCUMExpression.CanonicalParenTerm canonicalParenTerm -> vectorOf(canonicalParenTerm.term(), sign);
+            case UCUMExpression.CanonicalUnaryDivTerm canonicalUnaryDivTerm -> vectorOf(canonicalUnaryDivTerm.term(), -sign);
+        };
+    }
+
+    private static long vectorOfComponent(UCUMExpression.CanonicalComponent component, int sign) {
+        // a unit without an exponent always counts positive, see analyzeUnit
+        return switch(component) {
+            case UCUMExpression.CanonicalComponentExponent(UCUMExpression.CanonicalUnit unit, UCUMExpression.Exponent(int exponent)) -> DimensionVector.scale(vectorOfUnit(unit), sign*exponent);
+            case UCUMExpression.CanonicalComponentNoExponent(UCUMExpression.CanonicalUnit unit) -> vectorOfUnit(unit);
+        };
+    }
+
+    private static long vectorOfUnit(UCUMExpression.CanonicalUnit unit) {
+        return switch(unit) {
+            case UCUMExpression.CanonicalSimpleUnit canonicalSimpleUnit -> DimensionVector.of(canonicalSimpleUnit.ucumUnit());
+            case UCUMExpression.IntegerUnit integerUnit -> DimensionVector.ZERO;
+        };
+    }
+
     private static Map<Dimension, Integer> analyze(UCUMExpression.CanonicalTerm term, int sign) {
         return switch(term) {
             case UCUMExpression.CanonicalComponentTerm componentTerm -> analyzeComponent(componentTerm.component(), sign);
@@ -0,0 +1,123 @@
+package io.github.fhnaumann.funcs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.fhnaumann.model.UCUMDefinition.ArbitraryUnit;
+import io.github.fhnaumann.model.UCUMDefinition.BaseUnit;
+import io.github.fhnaumann.model.UCUMDefinition.DefinedUnit;
+import io.github.fhnaumann.model.UCUMDefinition.UCUMUnit;
+import io.github.fhnaumann.model.UCUMExpression.AnnotOnlyTerm;
+import io.github.fhnaumann.model.UCUMExpression.AnnotTerm;
+import io.github.fhnaumann.model.UCUMExpression.BinaryTerm;
+import io.github.fhnaumann.model.UCUMExpression.ComponentExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentNoExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentTerm;
+import io.github.fhnaumann.model.UCUMExpression.IntegerUnit;
+import io.github.fhnaumann.model.UCUMExpression.ParenTerm;
+import io.github.fhnaumann.model.UCUMExpression.SimpleUnit;
+import io.github.fhnaumann.model.UCUMExpression.Term;
+import io.github.fhnaumann.model.UCUMExpression.UnaryDivTerm;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes the dimensions of a (not canonicalized) term directly. Canonicalizing a term only to compare its dimensions
+ * does a lot of unnecessary work (magnitudes, special functions, flattening, normalizing and sorting). Here, every unit
+ * already has its {@link DimensionVector} precomputed and the term is only walked once. Prefixes, integer units and
+ * annotations don't have dimensions.
+ * <p>
+ * The result is the same as canonicalizing the term (with mol as a dimensionless unit) and calling
+ * {@link DimensionAnalyzer#vectorOf(io.github.fhnaumann.model.UCUMExpression.CanonicalTerm)} on it.
+ *
+ * @author Felix Naumann
+ */
+public class DimensionEvaluator {
+
+    /**
+     * Returned when the dimensions can't be evaluated without canonicalizing, i.e. the term contains an arbitrary unit
+     * or an exponent does not fit into a {@link DimensionVector}.
+     */
+    public static final long UNKNOWN = DimensionVector.OVERFLOW;
+
+    private static final Cache<Term, Long> VECTORS = Caffeine.newBuilder().weakKeys().maximumSize(10_000).build();
+
+    /**
+     * @return The dimension vector of the term or {@link #UNKNOWN}.
+     */
+    public static long evaluate(Term term) {
+        Long vector = VECTORS.getIfPresent(term);
+        if(vector == null) {
+            vector = evaluateImpl(term, unit -> UnitVectors.UNITS.getOrDefault(unit, UNKNOWN));
+            VECTORS.put(term, vector);
+        }
+        return vector;
+    }
+
+    private static long evaluateImpl(Term term, ToLongFunction<UCUMUnit> unitVectors) {
+        return switch(term) {
+            case ComponentTerm componentTerm -> {
+                long unitVector = switch(componentTerm.component().unit()) {
+                    case IntegerUnit integerUnit -> DimensionVector.ZERO;
+                    case SimpleUnit simpleUnit -> unitVectors.applyAsLong(simpleUnit.ucumUnit());
+                };
+                yield switch(componentTerm.component()) {
+                    case ComponentNoExponent componentNoExponent -> unitVector;
+                    case ComponentExponent componentExponent -> DimensionVector.scale(unitVector, componentExponent.exponent().exponent());
+                };
+            }
+            case BinaryTerm binaryTerm -> DimensionVector.add(
+                    evaluateImpl(binaryTerm.left(), unitVectors),
+                    switch(binaryTerm.operator()) {
+                        case MUL -> evaluateImpl(binaryTerm.right(), unitVectors);
+                        case DIV -> DimensionVector.scale(evaluateImpl(binaryTerm.right(), unitVectors), -1);
+                    });
+            case UnaryDivTerm unaryDivTerm -> DimensionVector.scale(evaluateImpl(unaryDivTerm.term(), unitVectors), -1);
+            case ParenTerm parenTerm -> evaluateImpl(parenTerm.term(), unitVectors);
+            case AnnotTerm annotTerm -> evaluateImpl(annotTerm.term(), unitVectors);
+            case AnnotOnlyTerm annotOnlyTerm -> DimensionVector.ZERO;
+        };
+    }
+
+    /*
+    Built on first use because it needs the registry instance.
+     */
+    private static final class UnitVectors {
+
+        private static final Map<UCUMUnit, Long> UNITS = build();
+
+        private static Map<UCUMUnit, Long> build() {
+            UCUMRegistry registry = UCUMRegistry.getInstance();
+            // the units are registry singletons, so they are compared by identity instead of comparing all components
+            Map<UCUMUnit, Long> units = new IdentityHashMap<>();
+            for(BaseUnit baseUnit : registry.getBaseUnits()) {
+                units.put(baseUnit, DimensionVector.of(baseUnit));
+            }
+            for(DefinedUnit definedUnit : registry.getDefinedUnits()) {
+                resolve(definedUnit, registry, units);
+            }
+            return Collections.unmodifiableMap(units);
+        }
+
+        private static long resolve(UCUMUnit unit, UCUMRegistry registry, Map<UCUMUnit, Long> units) {
+            Long vector = units.get(unit);
+            if(vector != null) {
+                return vector;
+            }
+            long resolved = switch(unit) {
+                case BaseUnit baseUnit -> DimensionVector.of(baseUnit);
+                case ArbitraryUnit arbitraryUnit -> UNKNOWN;
+                // special units have the dimensions of their function's unit, which is their source definition
+                case DefinedUnit definedUnit -> evaluateImpl(
+                        registry.getDefinedUnitSourceDefinition(definedUnit, false),
+                        sourceUnit -> resolve(sourceUnit, registry, units)
+                );
+            };
+            units.put(unit, resolved);
+            return resolved;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.fhnaumann.funcs;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.util.MapUtil;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dimensions of a term as a primitive value: The exponents of the seven base dimensions are packed into a single
+ * long, each one as a signed 9-bit lane (-256 to 255). Two vectors are commensurable if and only if they are equal.
+ * <p>
+ * Exponents outside the lane range can't be represented. Every operation that would produce one returns
+ * {@link #OVERFLOW} instead, which stays {@link #OVERFLOW} in all further operations. Callers then have to fall back to
+ * the map representation.
+ *
+ * @author Felix Naumann
+ */
+public final class DimensionVector {
+
+    public static final long ZERO = 0L;
+    public static final long OVERFLOW = Long.MIN_VALUE;
+
+    private static final int BITS = 9;
+    private static final long MASK = (1L << BITS) - 1;
+    private static final int MIN = -(1 << (BITS - 1));
+    private static final int MAX = (1 << (BITS - 1)) - 1;
+    private static final Dimension[] LANES = {
+            Dimension.LENGTH, Dimension.TIME, Dimension.MASS, Dimension.PLANE_ANGLE, Dimension.TEMPERATURE,
+            Dimension.ELECTRIC_CHARGE, Dimension.LUMINOUS_INTENSITY
+    };
+
+    private static final Map<UCUMDefinition.BaseUnit, Long> BASE_UNITS = precomputeBaseUnits();
+
+    private DimensionVector() {}
+
+    /**
+     * @return The vector of a single base unit with the exponent 1.
+     */
+    public static long of(UCUMDefinition.BaseUnit baseUnit) {
+        Long vector = BASE_UNITS.get(baseUnit);
+        return vector != null ? vector : of(Dimension.fromUCUMEssenceString(baseUnit.dim()), 1);
+    }
+
+    public static long of(Dimension dimension, int exponent) {
+        // NO_DIMENSION has no lane, the map representation has to be used for it
+        return dimension.ordinal() < LANES.length ? with(ZERO, dimension.ordinal(), exponent) : OVERFLOW;
+    }
+
+    public static int get(long vector, Dimension dimension) {
+        return dimension.ordinal() < LANES.length ? lane(vector, dimension.ordinal()) : 0;
+    }
+
+    public static long add(long vector, long other) {
+        if(vector == OVERFLOW || other == OVERFLOW) {
+            return OVERFLOW;
+        }
+        long result = ZERO;
+        for(int i = 0; i < LANES.length; i++) {
+            result = with(result, i, lane(vector, i) + lane(other, i));
+        }
+        return result;
+    }
+
+    public static long subtract(long vector, long other) {
+        return add(vector, scale(other, -1));
+    }
+
+    public static long scale(long vector, int factor) {
+        if(vector == OVERFLOW) {
+            return OVERFLOW;
+        }
+        long result = ZERO;
+        for(int i = 0; i < LANES.length; i++) {
+            result = with(result, i, (long) lane(vector, i) * factor);
+        }
+        return result;
+    }
+
+    /**
+     * @return The non-zero exponents of the vector.
+     */
+    public static Map<Dimension, Integer> toMap(long vector) {
+        if(vector == OVERFLOW) {
+            throw new IllegalArgumentException("An overflowed dimension vector has no map representation.");
+        }
+        Map<Dimension, Integer> map = new EnumMap<>(Dimension.class);
+        for(int i = 0; i < LANES.length; i++) {
+            int exponent = lane(vector, i);
+            if(exponent != 0) {
+                map.put(LANES[i], exponent);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * The difference of two vectors as a map, which is only computed when it is accessed. Most callers only check
+     * whether two terms are commensurable and never look at the difference.
+     */
+    static Map<Dimension, Integer> lazyDifference(long vector, long other) {
+        return new LazyDifference(vector, other);
+    }
+
+    private static int lane(long vector, int index) {
+        // shift the lane to the top and back down again to sign-extend it
+        return (int) ((vector << (64 - BITS * (index + 1))) >> (64 - BITS));
+    }
+
+    private static long with(long vector, int index, long exponent) {
+        if(vector == OVERFLOW || exponent < MIN || exponent > MAX) {
+            return OVERFLOW;
+        }
+        int shift = BITS * index;
+        return (vector & ~(MASK << shift)) | ((exponent & MASK) << shift);
+    }
+
+    private static Map<UCUMDefinition.BaseUnit, Long> precomputeBaseUnits() {
+        Map<UCUMDefinition.BaseUnit, Long> vectors = new IdentityHashMap<>();
+        for(UCUMDefinition.BaseUnit baseUnit : UCUMRegistry.getInstance().getBaseUnits()) {
+            vectors.put(baseUnit, of(Dimension.fromUCUMEssenceString(baseUnit.dim()), 1));
+        }
+        return Collections.unmodifiableMap(vectors);
+    }
+
+    private static final class LazyDifference extends AbstractMap<Dimension, Integer> {
+
+        private final long vector;
+        private final long other;
+        private volatile Map<Dimension, Integer> difference;
+
+        private LazyDifference(long vector, long other) {
+            this.vector = vector;
+            this.other = other;
+        }
+
+        @Override
+        public Set<Entry<Dimension, Integer>> entrySet() {
+            Map<Dimension, Integer> difference = this.difference;
+            if(difference == null) {
+                long vectorDifference = subtract(vector, other);
+                // the difference of two valid vectors may not fit into a lane, e.g. 255 - (-1)
+                difference = Collections.unmodifiableMap(vectorDifference != OVERFLOW
+                        ? toMap(vectorDifference)
+                        : MapUtil.calculateDiff(toMap(vector), toMap(other), true));
+                this.difference = difference;
+            }
+            return difference.entrySet();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package io.github.fhnaumann.funcs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Canonicalizer.CanonicalStepResult;
+import io.github.fhnaumann.funcs.Canonicalizer.UnitDirection;
+import io.github.fhnaumann.model.UCUMDefinition.UCUMFunction;
+import io.github.fhnaumann.model.UCUMDefinition.UCUMPrefix;
+import io.github.fhnaumann.model.UCUMDefinition.UCUMUnit;
+import io.github.fhnaumann.model.UCUMExpression.AnnotOnlyTerm;
+import io.github.fhnaumann.model.UCUMExpression.AnnotTerm;
+import io.github.fhnaumann.model.UCUMExpression.BinaryTerm;
+import io.github.fhnaumann.model.UCUMExpression.ComponentExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentNoExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentTerm;
+import io.github.fhnaumann.model.UCUMExpression.IntegerUnit;
+import io.github.fhnaumann.model.UCUMExpression.ParenTerm;
+import io.github.fhnaumann.model.UCUMExpression.PrefixSimpleUnit;
+import io.github.fhnaumann.model.UCUMExpression.SimpleUnit;
+import io.github.fhnaumann.model.UCUMExpression.Term;
+import io.github.fhnaumann.model.UCUMExpression.UnaryDivTerm;
+import io.github.fhnaumann.model.special.SpecialUnits;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider.ConversionFunction;
+import io.github.fhnaumann.util.PreciseDecimal;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An opt-in conversion engine that computes with doubles instead of {@link PreciseDecimal}. It is meant for cases
+ * where a double is precise enough, i.e. charts and dashboards, and is used with <code>UCUMService.fast()</code>.
+ * The default {@link Converter} is not affected by it.
+ * <p>
+ * Every prefix and unit has its canonical factor precomputed as a double (the exact factor rounded once). A term is
+ * then resolved with the same rules as in the {@link Canonicalizer}, and special units use the double functions of the
+ * current {@link SpecialUnitsFunctionProvider}. Resolved pairs of units are cached.
+ * <p>
+ * <b>Error bound:</b> Every operation rounds once, so for conversions without special units the relative error to
+ * {@link UCUMService#convert(PreciseDecimal, String, String)} is at most <code>(n + 2) * 2^-53</code>, where
+ * <code>n</code> is the number of prefixes, units, exponents and operators in both terms. For any realistic term this is
+ * below <code>1e-12</code>. Conversions with the offset functions (i.e. Cel or [degF]) use one scale and one offset
+ * computed from the exact magnitudes, so they are off by at most a few ulps of the scaled value or the offset. Other
+ * special units add the error of their double function.
+ * Terms that can't be resolved with doubles (i.e. arbitrary units or factors outside the range of a double) fall back
+ * to the exact conversion, whose result is then rounded to a double.
+ *
+ * @author Felix Naumann
+ */
+public final class FastConverter {
+
+    static final FastConverter INSTANCE = new FastConverter();
+
+    private record PairKey(String from, String to, Configuration configuration, SpecialUnitsFunctionProvider provider) {}
+
+    private static final Cache<PairKey, FastPlan> plans = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    private FastConverter() {}
+
+    /**
+     * Convert a UCUMTerm to another UCUMTerm.
+     * Essentially solves
+     * <code>factor * from = x * to</code> and returns <code>x</code>. Or it fails with additional information provided in the return object.
+     *
+     * @param factor The factor for the <code>from</code> term. NaN or infinite factors may convert to NaN.
+     * @param from The term that is converted from as a string. Will be validated first.
+     * @param to The term that is converted to as a string. Will be validated first.
+     * @return A FastConversionResult either containing the resulting conversion factor or an error with more details.
+     */
+    public FastConversionResult convert(double factor, String from, String to) {
+        PairKey key = new PairKey(from, to, ConfigurationRegistry.get(), SpecialUnits.getProvider());
+        return plans.get(key, k -> {
+            if(Validator.validate(from) instanceof Validator.Success fromSuccess && Validator.validate(to) instanceof Validator.Success toSuccess) {
+                return resolve(fromSuccess.term(), toSuccess.term());
+            }
+            return new Exact(new ConversionPlan.Failed(new Validator.ParserError()));
+        }).apply(factor);
+    }
+
+    /**
+     * Convert a UCUMTerm to another UCUMTerm.
+     * Essentially solves
+     * <code>factor * from = x * to</code> and returns <code>x</code>. Or it fails with additional information provided in the return object.
+     *
+     * @param factor The factor for the <code>from</code> term. NaN or infinite factors may convert to NaN.
+     * @param from The term that is converted from.
+     * @param to The term that is converted to.
+     * @return A FastConversionResult either containing the resulting conversion factor or an error with more details.
+     */
+    public FastConversionResult convert(double factor, Term from, Term to) {
+        return resolve(from, to).apply(factor);
+    }
+
+    /**
+     * Convert a UCUMTerm to another UCUMTerm.
+     * Essentially solves
+     * <code>1 * from = x * to</code> and returns <code>x</code>. Or it fails with additional information provided in the return object.
+     *
+     * @param from The term that is converted from as a string. Will be validated first.
+     * @param to The term that is converted to as a string. Will be validated first.
+     * @return A FastConversionResult either containing the resulting conversion factor or an error with more details.
+     */
+    public FastConversionResult convert(String from, String to) {
+        return convert(1d, from, to);
+    }
+
+    private static FastPlan resolve(Term from, Term to) {
+        long fromDimensions = DimensionEvaluator.evaluate(from);
+        if(fromDimensions == DimensionEvaluator.UNKNOWN || fromDimensions != DimensionEvaluator.evaluate(to)) {
+            // the plan reports the failure (or handles arbitrary units and large exponents)
+            return new Exact(ConversionPlan.of(from, to));
+        }
+        Step fromStep = stepOf(from);
+        Step toStep = stepOf(to);
+        if(fromStep == null || toStep == null || !fromStep.isRepresentable() || !toStep.isRepresentable()) {
+            return new Exact(ConversionPlan.of(from, to));
+        }
+        if(fromStep.specialFunction() == null && toStep.specialFunction() == null) {
+            double ratio = fromStep.magnitude() / toStep.magnitude();
+            return Double.isFinite(ratio) && ratio != 0d ? new Linear(ratio) : new Exact(ConversionPlan.of(from, to));
+        }
+        FastFactor fromFactor = FastFactor.of(fromStep);
+        FastFactor toFactor = FastFactor.of(toStep);
+        if(isShift(fromFactor) && isShift(toFactor)
+                && ConversionPlan.of(from, to) instanceof ConversionPlan.Special special
+                && AffineTransform.of(special.from(), special.to()) instanceof AffineTransform transform
+                && transform.isRepresentable()) {
+            // i.e. Cel -> [degF], combined from the exact magnitudes so that 0 Cel is still 32 [degF]
+            return new Affine(transform);
+        }
+        return new Special(fromFactor, toFactor);
+    }
+
+    private static boolean isShift(FastFactor factor) {
+        return factor.specialFunction() == null || factor.specialFunction().offset() != null;
+    }
+
+    /*
+    Same as Canonicalizer#magnitudeImpl, but with doubles. Returns null if the term can't be resolved with doubles.
+     */
+    private static Step stepOf(Term term) {
+        return switch (term) {
+            case ComponentTerm componentTerm -> {
+                Step unitStep = switch (componentTerm.component().unit()) {
+                    case IntegerUnit integerUnit -> new Step(integerUnit.value(), 1d, null);
+                    case SimpleUnit simpleUnit -> Atoms.lookup(simpleUnit);
+                };
+                if(unitStep == null) {
+                    yield null;
+                }
+                yield switch (componentTerm.component()) {
+                    case ComponentNoExponent componentNoExponent -> unitStep;
+                    case ComponentExponent componentExponent -> unitStep.pow(componentExponent.exponent().exponent());
+                };
+            }
+            case BinaryTerm binaryTerm -> {
+                Step left = stepOf(binaryTerm.left());
+                Step right = stepOf(binaryTerm.right());
+                if(left == null || right == null) {
+                    yield null;
+                }
+                yield switch (binaryTerm.operator()) {
+                    case MUL -> left.multiply(right);
+                    case DIV -> left.divide(right);
+                };
+            }
+            case UnaryDivTerm unaryDivTerm -> {
+                Step inner = stepOf(unaryDivTerm.term());
+                yield inner != null ? Step.UNITY.divide(inner) : null;
+            }
+            case ParenTerm parenTerm -> stepOf(parenTerm.term());
+            case AnnotTerm annotTerm -> stepOf(annotTerm.term());
+            case AnnotOnlyTerm annotOnlyTerm -> Step.UNITY;
+        };
+    }
+
+    /*
+    Same as Canonicalizer.CanonicalStepResult without the term, a special function is only present while special
+    handling is active.
+     */
+    private record Step(double magnitude, double cfPrefix, UCUMFunction specialFunction) {
+
+        private static final Step UNITY = new Step(1d, 1d, null);
+
+        static Step of(CanonicalStepResult canonicalStep) {
+            return new Step(
+                canonicalStep.magnitude().getValue().doubleValue(),
+                canonicalStep.cfPrefix().getValue().doubleValue(),
+                canonicalStep.specialHandlingActive() ? canonicalStep.specialFunction() : null
+            );
+        }
+
+        Step multiply(Step right) {
+            if(specialFunction != null && right.specialFunction != null) {
+                // the Canonicalizer doesn't support this either
+                return null;
+            }
+            else if(specialFunction != null) {
+                return new Step(magnitude, cfPrefix * right.magnitude, specialFunction);
+            }
+            else if(right.specialFunction != null) {
+                return new Step(right.magnitude, right.cfPrefix * magnitude, right.specialFunction);
+            }
+            return new Step(magnitude * right.magnitude, 1d, null);
+        }
+
+        Step divide(Step right) {
+            if(specialFunction != null || right.specialFunction != null) {
+                return new Step(magnitude, cfPrefix / right.magnitude / right.cfPrefix, specialFunction != null ? specialFunction : right.specialFunction);
+            }
+            return new Step(magnitude / right.magnitude, 1d, null);
+        }
+
+        Step pow(int exponent) {
+            return specialFunction != null
+                ? new Step(magnitude, Math.pow(cfPrefix, exponent), specialFunction)
+                : new Step(Math.pow(magnitude, exponent), 1d, null);
+        }
+
+        /*
+        Magnitudes that over- or underflowed can't be used.
+         */
+        boolean isRepresentable() {
+            return Double.isFinite(magnitude) && magnitude != 0d && Double.isFinite(cfPrefix) && cfPrefix != 0d;
+        }
+    }
+
+    private sealed interface FastPlan {
+        FastConversionResult apply(double factor);
+    }
+
+    private record Linear(double ratio) implements FastPlan {
+        @Override
+        public FastConversionResult apply(double factor) {
+            return new Success(factor * ratio);
+        }
+    }
+
+    private record Affine(AffineTransform transform) implements FastPlan {
+        @Override
+        public FastConversionResult apply(double factor) {
+            return new Success(transform.apply(factor));
+        }
+    }
+
+    private record Special(FastFactor from, FastFactor to) implements FastPlan {
+        @Override
+        public FastConversionResult apply(double factor) {
+            return new Success(to.apply(from.apply(factor, UnitDirection.FROM), UnitDirection.TO));
+        }
+    }
+
+    private record Exact(ConversionPlan plan) implements FastPlan {
+        @Override
+        public FastConversionResult apply(double factor) {
+            if(plan instanceof ConversionPlan.Failed failed) {
+                return new Failure(failed.failure());
+            }
+            if(!Double.isFinite(factor)) {
+                return new Success(Double.NaN);
+            }
+            return switch (plan.apply(new PreciseDecimal(BigDecimal.valueOf(factor)))) {
+                case Converter.Success success -> new Success(success.conversionFactor().getValue().doubleValue());
+                case Converter.FailedConversion failedConversion -> new Failure(failedConversion);
+            };
+        }
+    }
+
+    /*
+    Same as Canonicalizer.ResolvedFactor, but with doubles.
+     */
+    private record FastFactor(double magnitude, double cfPrefix, ConversionFunction specialFunction) {
+
+        static FastFactor of(Step step) {
+            return new FastFactor(
+                step.magnitude(),
+                step.cfPrefix(),
+                step.specialFunction() != null ? SpecialUnits.getFunction(step.specialFunction().name()) : null
+            );
+        }
+
+        double apply(double factor, UnitDirection unitDirection) {
+            return switch (unitDirection) {
+                case FROM -> specialFunction != null
+                    ? magnitude * specialFunction.toCanonical(factor * cfPrefix)
+                    : factor * magnitude;
+                case TO -> specialFunction != null
+                    ? specialFunction.fromCanonical(factor / magnitude) / cfPrefix
+                    : factor / magnitude;
+            };
+        }
+    }
+
+    /*
+    The canonicalizer's atoms as doubles. Built on first use because it needs the registry instance.
+     */
+    private static final class Atoms {
+
+        private record Atom(Step unprefixed, Map<UCUMPrefix, Step> prefixed) {}
+
+        private static final Map<UCUMUnit, Atom> ATOMS = build();
+
+        private static Step lookup(SimpleUnit simpleUnit) {
+            Atom atom = ATOMS.get(simpleUnit.ucumUnit());
+            if(atom == null) {
+                return null;
+            }
+            return simpleUnit instanceof PrefixSimpleUnit prefixSimpleUnit
+                ? atom.prefixed().get(prefixSimpleUnit.prefix())
+                : atom.unprefixed();
+        }
+
+        private static Map<UCUMUnit, Atom> build() {
+            UCUMRegistry registry = UCUMRegistry.getInstance();
+            // the units are registry singletons, so they are compared by identity instead of comparing all components
+            Map<UCUMUnit, Atom> atoms = new IdentityHashMap<>();
+            List<UCUMUnit> units = new ArrayList<>(registry.getBaseUnits());
+            units.addAll(registry.getDefinedUnits());
+            for(UCUMUnit unit : units) {
+                CanonicalStepResult unprefixed = Canonicalizer.atom(unit, null);
+                if(unprefixed == null) {
+                    continue;
+                }
+                Map<UCUMPrefix, Step> prefixed = new IdentityHashMap<>();
+                for(UCUMPrefix prefix : registry.getPrefixes()) {
+                    prefixed.put(prefix, Step.of(Canonicalizer.atom(unit, prefix)));
+                }
+                atoms.put(unit, new Atom(Step.of(unprefixed), Collections.unmodifiableMap(prefixed)));
+            }
+            return Collections.unmodifiableMap(atoms);
+        }
+    }
+
+    /**
+     * Contains information about the conversion.
+     */
+    public sealed interface FastConversionResult {}
+
+    /**
+     * The conversion was successful.
+     * @param conversionFactor The resulting conversion factor.
+     */
+    public record Success(double conversionFactor) implements FastConversionResult {}
+
+    /**
+     * The conversion failed, for the same reasons as with the {@link Converter}.
+     * @param failedConversion More details on the failure.
+     */
+    public record Failure(Converter.FailedConversion failedConversion) implements FastConversionResult {}
+}
@@ -0,0 +1,183 @@
+package io.github.fhnaumann.funcs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.fhnaumann.model.UCUMDefinition.ArbitraryUnit;
+import io.github.fhnaumann.model.UCUMDefinition.BaseUnit;
+import io.github.fhnaumann.model.UCUMDefinition.DefinedUnit;
+import io.github.fhnaumann.model.UCUMDefinition.SpecialUnit;
+import io.github.fhnaumann.model.UCUMDefinition.UCUMUnit;
+import io.github.fhnaumann.model.UCUMExpression.AnnotOnlyTerm;
+import io.github.fhnaumann.model.UCUMExpression.AnnotTerm;
+import io.github.fhnaumann.model.UCUMExpression.BinaryTerm;
+import io.github.fhnaumann.model.UCUMExpression.ComponentExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentNoExponent;
+import io.github.fhnaumann.model.UCUMExpression.ComponentTerm;
+import io.github.fhnaumann.model.UCUMExpression.IntegerUnit;
+import io.github.fhnaumann.model.UCUMExpression.NoPrefixSimpleUnit;
+import io.github.fhnaumann.model.UCUMExpression.ParenTerm;
+import io.github.fhnaumann.model.UCUMExpression.PrefixSimpleUnit;
+import io.github.fhnaumann.model.UCUMExpression.Term;
+import io.github.fhnaumann.model.UCUMExpression.UnaryDivTerm;
+import io.github.fhnaumann.util.PreciseDecimal;
+import io.github.fhnaumann.util.Rational;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Computes the magnitude of a (not canonicalized) term as an exact {@link Rational}. The canonicalization rounds every
+ * division (units that are defined by a division, negative exponents and the <code>to</code> side of a conversion) to
+ * the unlimited precision of {@link PreciseDecimal}. Here, nothing is rounded until the two magnitudes of a conversion
+ * are divided once in {@link #exactRatio(Term, Term)}.
+ * <p>
+ * Only used if {@link io.github.fhnaumann.configuration.Configuration#isEnableExactRationalMagnitudes()} is enabled.
+ * Terms with special or arbitrary units have no rational magnitude.
+ *
+ * @author Felix Naumann
+ */
+final class RationalMagnitude {
+
+    private static final Cache<Term, Optional<Rational>> MAGNITUDES = Caffeine.newBuilder().weakKeys().maximumSize(10_000).build();
+
+    private RationalMagnitude() {}
+
+    /**
+     * @return <code>factor * from / to</code> or null if one of the terms has no rational magnitude. The result is only
+     * rounded once unless the factor has a limited precision, which is then applied the same way as in the
+     * canonicalization.
+     */
+    static PreciseDecimal convert(PreciseDecimal factor, Term from, Term to) {
+        Rational ratio = exactRatio(from, to);
+        return ratio != null ? apply(factor, ratio) : null;
+    }
+
+    /**
+     * @return <code>factor * ratio</code>, see {@link #convert(PreciseDecimal, Term, Term)}.
+     */
+    static PreciseDecimal apply(PreciseDecimal factor, Rational ratio) {
+        return factor.isLimited() ? factor.multiply(ratio.toPreciseDecimal()) : Rational.of(factor).multiply(ratio).toPreciseDecimal();
+    }
+
+    /**
+     * @return <code>from / to</code> or null if one of the terms has no rational magnitude.
+     */
+    static Rational exactRatio(Term from, Term to) {
+        Rational fromMagnitude = of(from);
+        Rational toMagnitude = fromMagnitude != null ? of(to) : null;
+        if(toMagnitude == null || toMagnitude.getNumerator().signum() == 0) {
+            return null;
+        }
+        return fromMagnitude.divide(toMagnitude);
+    }
+
+    /**
+     * @return The exact magnitude of the term or null if it contains a special or arbitrary unit.
+     */
+    static Rational of(Term term) {
+        return MAGNITUDES.get(term, key -> Optional.ofNullable(evaluate(key, unit -> UnitMagnitudes.UNITS.get(unit)))).orElse(null);
+    }
+
+    private static Rational evaluate(Term term, Function<UCUMUnit, Rational> unitMagnitudes) {
+        try {
+            return evaluateImpl(term, unitMagnitudes);
+        } catch (ArithmeticException e) {
+            // i.e. 0 with a negative exponent, which is left to the canonicalization
+            return null;
+        }
+    }
+
+    private static Rational evaluateImpl(Term term, Function<UCUMUnit, Rational> unitMagnitudes) {
+        return switch(term) {
+            case ComponentTerm componentTerm -> {
+                Rational unitMagnitude = switch(componentTerm.component().unit()) {
+                    case IntegerUnit integerUnit -> Rational.of(integerUnit.value());
+                    case NoPrefixSimpleUnit noPrefixSimpleUnit -> unitMagnitudes.apply(noPrefixSimpleUnit.ucumUnit());
+                    case PrefixSimpleUnit prefixSimpleUnit -> {
+                        Rational magnitude = unitMagnitudes.apply(prefixSimpleUnit.ucumUnit());
+                        Rational prefix = exact(prefixSimpleUnit.prefix().value().conversionFactor());
+                        yield magnitude != null && prefix != null ? magnitude.multiply(prefix) : null;
+                    }
+                };
+                if(unitMagnitude == null) {
+                    yield null;
+                }
+                yield switch(componentTerm.component()) {
+                    case ComponentNoExponent componentNoExponent -> unitMagnitude;
+                    case ComponentExponent componentExponent -> unitMagnitude.pow(componentExponent.exponent().exponent());
+                };
+            }
+            case BinaryTerm binaryTerm -> {
+                Rational left = evaluateImpl(binaryTerm.left(), unitMagnitudes);
+                Rational right = left != null ? evaluateImpl(binaryTerm.right(), unitMagnitudes) : null;
+                if(right == null) {
+                    yield null;
+                }
+                yield switch(binaryTerm.operator()) {
+                    case MUL -> left.multiply(right);
+                    case DIV -> left.divide(right);
+                };
+            }
+            case UnaryDivTerm unaryDivTerm -> {
+                Rational inner = evaluateImpl(unaryDivTerm.term(), unitMagnitudes);
+                yield inner != null ? inner.reciprocal() : null;
+            }
+            case ParenTerm parenTerm -> evaluateImpl(parenTerm.term(), unitMagnitudes);
+            case AnnotTerm annotTerm -> evaluateImpl(annotTerm.term(), unitMagnitudes);
+            case AnnotOnlyTerm annotOnlyTerm -> Rational.ONE;
+        };
+    }
+
+    private static Rational exact(PreciseDecimal value) {
+        return value.isLimited() ? null : Rational.of(value);
+    }
+
+    /*
+    Built on first use because it needs the registry instance. Units without a rational magnitude have no entry.
+     */
+    private static final class UnitMagnitudes {
+
+        private static final Map<UCUMUnit, Rational> UNITS = build();
+
+        private static Map<UCUMUnit, Rational> build() {
+            UCUMRegistry registry = UCUMRegistry.getInstance();
+            // the units are registry singletons, so they are compared by identity instead of comparing all components
+            Map<UCUMUnit, Rational> units = new IdentityHashMap<>();
+            for(BaseUnit baseUnit : registry.getBaseUnits()) {
+                units.put(baseUnit, Rational.ONE);
+            }
+            for(DefinedUnit definedUnit : registry.getDefinedUnits()) {
+                resolve(definedUnit, registry, units);
+            }
+            return Collections.unmodifiableMap(units);
+        }
+
+        private static Rational resolve(UCUMUnit unit, UCUMRegistry registry, Map<UCUMUnit, Rational> units) {
+            Rational magnitude = units.get(unit);
+            if(magnitude != null) {
+                return magnitude;
+            }
+            Rational resolved = switch(unit) {
+                case BaseUnit baseUnit -> Rational.ONE;
+                case ArbitraryUnit arbitraryUnit -> null;
+                case SpecialUnit specialUnit -> null;
+                case DefinedUnit definedUnit -> {
+                    Rational source = evaluate(
+                            registry.getDefinedUnitSourceDefinition(definedUnit, false),
+                            sourceUnit -> resolve(sourceUnit, registry, units)
+                    );
+                    Rational value = exact(definedUnit.value().conversionFactor());
+                    yield source != null && value != null ? source.multiply(value) : null;
+                }
+            };
+            if(resolved != null) {
+                units.put(unit, resolved);
+            }
+            return resolved;
+        }
+    }
+}
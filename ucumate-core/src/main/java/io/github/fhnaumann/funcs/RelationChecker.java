@@ -23,6 +23,14 @@ public class RelationChecker {
     }
 
     public static CommensurableResult checkCommensurable(Term term1, Term term2, boolean allowMolMassConversion) {
+        // only the dimensions are compared, there is no need to canonicalize the terms unless they can't be evaluated directly
+        long dimensions1 = DimensionEvaluator.evaluate(term1);
+        long dimensions2 = DimensionEvaluator.evaluate(term2);
+        if(dimensions1 != DimensionEvaluator.UNKNOWN && dimensions2 != DimensionEvaluator.UNKNOWN) {
+            return dimensions1 == dimensions2
+                    ? new IsCommensurable()
+                    : new NotCommensurable(DimensionVector.lazyDifference(dimensions1, dimensions2));
+        }
         Canonicalizer.CanonicalizationResult result1 = new Canonicalizer().canonicalize(term1);
         Canonicalizer.CanonicalizationResult result2 = new Canonicalizer().canonicalize(term2);
         if(!(result1 instanceof Canonicalizer.Success success1) || !(result2 instanceof Canonicalizer.Success success2)) {
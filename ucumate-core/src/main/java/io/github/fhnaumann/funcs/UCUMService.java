@@ -1,6 +1,10 @@
 package io.github.fhnaumann.funcs;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.fhnaumann.compounds.CompoundUtil;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
 import io.github.fhnaumann.funcs.Canonicalizer.CanonicalizationResult;
 import io.github.fhnaumann.funcs.Converter.Conversion;
 import io.github.fhnaumann.funcs.Converter.ConversionResult;
@@ -10,6 +14,8 @@ import io.github.fhnaumann.funcs.Validator.ValidationResult;
 import io.github.fhnaumann.funcs.printer.*;
 import io.github.fhnaumann.funcs.printer.Printer.PrintType;
 import io.github.fhnaumann.model.UCUMExpression;
+import io.github.fhnaumann.model.special.SpecialUnits;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider;
 import io.github.fhnaumann.util.PreciseDecimal;
 import io.github.fhnaumann.util.UCUMEngine;
 
@@ -26,6 +32,10 @@ import java.util.concurrent.CompletableFuture;
  */
 public class UCUMService {
 
+    private record PlanKey(String from, String to, Configuration configuration, SpecialUnitsFunctionProvider provider) {}
+
+    private static final Cache<PlanKey, ConversionPlan> plans = Caffeine.newBuilder().maximumSize(10_000).build();
+
     private static final Map<PrintType, Printer> printers = Map.of(
             PrintType.UCUM_SYNTAX, new UCUMSyntaxPrinter(),
             PrintType.EXPRESSIVE_UCUM_SYNTAX, new ExpressiveUCUMSyntaxPrinter(),
@@ -62,16 +72,15 @@ public class UCUMService {
 
     /**
      * Validate a given String and return a boolean.
+     * This does not build a term and is cheaper than {@link UCUMService#validate(String)}. Its results are cached
+     * separately from the validation cache and are not saved in any additional persistence providers.
      * @param input A string containing a potential UCUMTerm.
      * @return A boolean that was mapped from {@link ValidationResult} where {@link Success} -> true and {@link Failure} -> false.
      *
      * @see UCUMService#validate(String)
      */
     public static boolean validateToBool(String input) {
-        return switch (validate(input)) {
-            case Success success -> true;
-            case Failure failure -> false;
-        };
+        return Validator.validateToBool(input);
     }
 
     private static UCUMExpression.Term parseOrError(String input) {
@@ -222,6 +231,55 @@ public class UCUMService {
         return new Converter().convert(new Conversion(factor, from), to, substanceMolMassCoeff);
     }
 
+    /**
+     * Resolves the conversion between two UCUMTerms once, so it can be applied to many factors.
+     * Parsing, canonicalizing and comparing the dimensions is only done when the plan is created. Plans are cached per
+     * pair (and per configuration and special units provider, because both influence the result).
+     *
+     * @param from The term that is converted from as a string. Will be validated first.
+     * @param to The term that is converted to as a string. Will be validated first.
+     * @return A ConversionPlan whose results are the same as {@link UCUMService#convert(PreciseDecimal, String, String)}.
+     *
+     * @see ConversionPlan
+     */
+    public static ConversionPlan plan(String from, String to) {
+        PlanKey key = new PlanKey(from, to, ConfigurationRegistry.get(), SpecialUnits.getProvider());
+        return plans.get(key, k -> {
+            try {
+                return ConversionPlan.of(parseOrError(from), parseOrError(to));
+            } catch (Validator.ParserException e) {
+                return new ConversionPlan.Failed(new Validator.ParserError());
+            }
+        });
+    }
+
+    /**
+     * Resolves the conversion between two UCUMTerms once, so it can be applied to many factors. The plan is not cached.
+     *
+     * @param from The term that is converted from.
+     * @param to The term that is converted to.
+     * @return A ConversionPlan whose results are the same as {@link UCUMService#convert(PreciseDecimal, UCUMExpression.Term, UCUMExpression.Term)}.
+     *
+     * @see ConversionPlan
+     */
+    public static ConversionPlan plan(UCUMExpression.Term from, UCUMExpression.Term to) {
+        return ConversionPlan.of(from, to);
+    }
+
+    /**
+     * Opt-in conversion engine that computes with doubles instead of {@link PreciseDecimal}. It is much faster but only
+     * as precise as a double, see {@link FastConverter} for the error bound.
+     * <br>
+     * I.e. <code>UCUMService.fast().convert(5, "mg/dL", "g/L")</code>.
+     *
+     * @return The FastConverter.
+     *
+     * @see FastConverter
+     */
+    public static FastConverter fast() {
+        return FastConverter.INSTANCE;
+    }
+
     /**
      * Checks the relation between two UCUMTerms.
      *
@@ -3,15 +3,19 @@ package io.github.fhnaumann.funcs;
 import io.github.fhnaumann.NewUCUMBaseVisitor;
 import io.github.fhnaumann.NewUCUMLexer;
 import io.github.fhnaumann.NewUCUMParser;
+import io.github.fhnaumann.configuration.Configuration;
 import io.github.fhnaumann.configuration.ConfigurationRegistry;
 import io.github.fhnaumann.model.CanonicalUCUMSyntaxVisitor;
+import io.github.fhnaumann.model.FastUCUMParser;
+import io.github.fhnaumann.model.FastUCUMRecognizer;
+import io.github.fhnaumann.model.TermSummary;
 import io.github.fhnaumann.model.UCUMSyntaxVisitor;
 import io.github.fhnaumann.persistence.PersistenceRegistry;
+import io.github.fhnaumann.util.AntlrParsingContext;
 import io.github.fhnaumann.util.UCUMRegistry;
 import io.github.fhnaumann.model.UCUMExpression;
 import io.github.fhnaumann.model.UCUMExpression.Term;
 import io.github.fhnaumann.util.ParseUtil;
-import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +26,8 @@ import java.util.List;
 public class Validator {
 
     private static final Logger log = LoggerFactory.getLogger(Validator.class);
+    private static final ThreadLocal<AntlrParsingContext<NewUCUMLexer, NewUCUMParser>> PARSING_CONTEXT =
+            ThreadLocal.withInitial(() -> new AntlrParsingContext<>(NewUCUMLexer::new, NewUCUMParser::new));
 
     public sealed interface ValidationResult {}
 
@@ -32,9 +38,14 @@ public class Validator {
         }
     }
 
+    /*
+    Invalid input is expected and common (i.e. typos in hand-typed units), so these exceptions are only used for
+    control flow. They do not fill in a stack trace and the message of a ParserException built from failure results is
+    only computed when it is requested.
+     */
     public static class LexerException extends RuntimeException {
         public LexerException(String message) {
-            super(message);
+            super(message, null, false, false);
         }
     }
     public static class ParserException extends RuntimeException {
@@ -42,18 +53,24 @@ public class Validator {
         private final List<ParseUtil.FailureResult> failures;
 
         public ParserException(String message) {
-            super(message);
+            super(message, null, false, false);
             this.failures = new ArrayList<>();
         }
         public ParserException(ParseUtil.FailureResult failureResult) {
-            super(failureResult.failedText());
+            super(failureResult.failedText(), null, false, false);
             this.failures = List.of(failureResult);
         }
         public ParserException(ParseUtil.InvalidResults invalidResults) {
-            super(invalidResults.toString());
+            super(null, null, false, false);
             this.failures = invalidResults.failureResults();
         }
 
+        @Override
+        public String getMessage() {
+            String message = super.getMessage();
+            return message != null ? message : new ParseUtil.InvalidResults(failures).toString();
+        }
+
         public List<ParseUtil.FailureResult> getFailures() {
             return failures;
         }
@@ -80,7 +97,7 @@ public class Validator {
      * @return The validation result. Avoids infinite recursion by bypassing registry here.
      */
     public static Term parseByPassChecks(String input) {
-        return validateImpl(input, new UCUMSyntaxVisitor(UCUMRegistry.getInstance()));
+        return parse(input);
     }
 
     public static ValidationResult validate(String input) {
@@ -105,15 +122,15 @@ public class Validator {
         */
         try {
             ValidationResult result;
-            Term term = validateImpl(input, new UCUMSyntaxVisitor(UCUMRegistry.getInstance()));
-            if(!ConfigurationRegistry.get().isAllowAnnotAfterParens() && hasAnnotationAfterParens(term)) {
+            Term term = parse(input);
+            TermSummary summary = TermSummary.of(term);
+            if(!ConfigurationRegistry.get().isAllowAnnotAfterParens() && summary.hasAnnotationAfterParens()) {
                 log.warn("Encountered term {} with an annotation on parenthesis but the property {} is disabled.", input, "ucumate.allowAnnotAfterParens");
                 result = new Failure();
                 PersistenceRegistry.getInstance().saveValidated(input, result);
                 return result;
             }
-            SpecialChecker.SpecialCheckResult specialCheckResult = SpecialChecker.checkForSpecialUnitInTerm(term, new SpecialChecker.SpecialCheckResult(false, false,false));
-            result = specialCheckResult.isValid() ? new Success(term) : new Failure();
+            result = summary.isSpecialUsageValid() ? new Success(term) : new Failure();
             PersistenceRegistry.getInstance().saveValidated(input, result);
             return result;
         } catch (LexerException | ParserException e) {
@@ -123,38 +140,63 @@ public class Validator {
         }
     }
 
-    private static Term validateImpl(String input, NewUCUMBaseVisitor<UCUMExpression> visitor) {
-        NewUCUMLexer lexer = new NewUCUMLexer(CharStreams.fromString(input));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-                throw new LexerException("Lexical error at line " + line + ":" + charPositionInLine + ": " + msg);
-            }
-        });
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        NewUCUMParser parser = new NewUCUMParser(tokens);
-        // parser.getInterpreter().setPredictionMode(PredictionMode.LL);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-                throw new ParserException("Syntax error at line " + line + ":" + charPositionInLine + ": " + msg);
-            }
-        });
-        ParseTree tree = parser.mainTerm();
-        UCUMExpression.Term term = (UCUMExpression.Term) visitor.visit(tree);
-        return term;
+    /**
+     * Checks the validity of the input without building a term.
+     * With the fast parser enabled, a dedicated recognizer is used whose results are kept in a separate boolean cache.
+     *
+     * @see FastUCUMRecognizer
+     */
+    public static boolean validateToBool(String input) {
+        if(ConfigurationRegistry.get().getParserMode() != Configuration.ParserMode.FAST) {
+            return validate(input) instanceof Success;
+        }
+        Boolean cached = PersistenceRegistry.getInstance().getValidatedBool(input);
+        if(cached != null) {
+            return cached;
+        }
+        boolean valid = FastUCUMRecognizer.recognize(input, UCUMRegistry.getInstance());
+        PersistenceRegistry.getInstance().saveValidatedBool(input, valid);
+        return valid;
     }
 
-    private static boolean hasAnnotationAfterParens(Term term) {
-        return switch (term) {
-            case UCUMExpression.ComponentTerm componentTerm -> false;
-            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> false;
-            case UCUMExpression.BinaryTerm binaryTerm -> hasAnnotationAfterParens(binaryTerm.left()) || hasAnnotationAfterParens(binaryTerm.right());
-            case UCUMExpression.UnaryDivTerm unaryDivTerm -> hasAnnotationAfterParens(unaryDivTerm.term());
-            case UCUMExpression.AnnotTerm annotTerm -> annotTerm.term() instanceof UCUMExpression.ParenTerm;
-            case UCUMExpression.ParenTerm parenTerm -> hasAnnotationAfterParens(parenTerm.term());
+    private static Term parse(String input) {
+        return switch(ConfigurationRegistry.get().getParserMode()) {
+            case FAST -> FastUCUMParser.parse(input, UCUMRegistry.getInstance());
+            case ANTLR -> validateImpl(input, new UCUMSyntaxVisitor(UCUMRegistry.getInstance()));
+            case DIFFERENTIAL -> parseDifferential(input);
         };
     }
+
+    /*
+    The ANTLR parser acts as the oracle here: Its result (or exception) is always the one that is passed on.
+     */
+    private static Term parseDifferential(String input) {
+        Object fast;
+        try {
+            fast = FastUCUMParser.parse(input, UCUMRegistry.getInstance());
+        } catch (LexerException | ParserException e) {
+            fast = e;
+        }
+        Term antlr;
+        try {
+            antlr = validateImpl(input, new UCUMSyntaxVisitor(UCUMRegistry.getInstance()));
+        } catch (LexerException | ParserException e) {
+            if(fast instanceof Term) {
+                log.warn("Parser mismatch for '{}': ANTLR failed with '{}' but the fast parser returned {}.", input, e.getMessage(), fast);
+            }
+            throw e;
+        }
+        if(!antlr.equals(fast)) {
+            log.warn("Parser mismatch for '{}': ANTLR returned {} but the fast parser returned {}.", input, antlr, fast);
+        }
+        return antlr;
+    }
+
+    private static Term validateImpl(String input, NewUCUMBaseVisitor<UCUMExpression> visitor) {
+        AntlrParsingContext<NewUCUMLexer, NewUCUMParser> context = PARSING_CONTEXT.get();
+        context.reset(input);
+        ParseTree tree = context.parse(NewUCUMParser::mainTerm);
+        UCUMExpression.Term term = (UCUMExpression.Term) visitor.visit(tree);
+        return term;
+    }
 }
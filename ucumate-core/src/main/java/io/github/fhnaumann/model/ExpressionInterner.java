@@ -0,0 +1,62 @@
+package io.github.fhnaumann.model;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Hash-conses {@link UCUMExpression} terms before they are kept in the in-memory caches: Structurally identical units,
+ * components and sub-terms of all cached terms are replaced by one shared instance. Parsed terms are mostly made of
+ * the same few atoms, so the cached terms take a fraction of the heap they would take otherwise.
+ * <p>
+ * Interning a term hashes every sub-term, so it is only done once when an entry is saved in a cache and not when a
+ * term is parsed or looked up. The interner only holds weak references, nodes that are no longer cached are garbage
+ * collected. {@link Object#equals(Object)} stays structural, interned and not interned terms are equal.
+ *
+ * @author Felix Naumann
+ */
+public final class ExpressionInterner {
+
+    private static final Interner<UCUMExpression> INTERNER = Interners.newWeakInterner();
+
+    private ExpressionInterner() {}
+
+    /**
+     * Interns a whole term including all of its sub-terms.
+     *
+     * @param term The term to intern.
+     * @return The shared instance that is equal to the given term.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends UCUMExpression.Term> T internDeep(T term) {
+        UCUMExpression.Term interned = switch(term) {
+            case UCUMExpression.CanonicalComponentTerm t -> new UCUMExpression.CanonicalComponentTerm(internDeep(t.component()));
+            case UCUMExpression.MixedComponentTerm t -> new UCUMExpression.MixedComponentTerm(internDeep(t.component()));
+            case UCUMExpression.CanonicalAnnotTerm t -> new UCUMExpression.CanonicalAnnotTerm(internDeep(t.term()), intern(t.annotation()));
+            case UCUMExpression.MixedAnnotTerm t -> new UCUMExpression.MixedAnnotTerm(internDeep(t.term()), intern(t.annotation()));
+            case UCUMExpression.CanonicalParenTerm t -> new UCUMExpression.CanonicalParenTerm(internDeep(t.term()));
+            case UCUMExpression.MixedParenTerm t -> new UCUMExpression.MixedParenTerm(internDeep(t.term()));
+            case UCUMExpression.CanonicalBinaryTerm t -> new UCUMExpression.CanonicalBinaryTerm(internDeep(t.left()), t.operator(), internDeep(t.right()));
+            case UCUMExpression.MixedBinaryTerm t -> new UCUMExpression.MixedBinaryTerm(internDeep(t.left()), t.operator(), internDeep(t.right()));
+            case UCUMExpression.CanonicalUnaryDivTerm t -> new UCUMExpression.CanonicalUnaryDivTerm(internDeep(t.term()));
+            case UCUMExpression.MixedUnaryDivTerm t -> new UCUMExpression.MixedUnaryDivTerm(internDeep(t.term()));
+            case UCUMExpression.AnnotOnlyTerm t -> new UCUMExpression.AnnotOnlyTerm(intern(t.annotation()));
+        };
+        return (T) intern(interned);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends UCUMExpression> T intern(T expression) {
+        return (T) INTERNER.intern(expression);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends UCUMExpression.Component> T internDeep(T component) {
+        UCUMExpression.Component interned = switch(component) {
+            case UCUMExpression.CanonicalComponentExponent c -> new UCUMExpression.CanonicalComponentExponent(intern(c.unit()), intern(c.exponent()));
+            case UCUMExpression.CanonicalComponentNoExponent c -> new UCUMExpression.CanonicalComponentNoExponent(intern(c.unit()));
+            case UCUMExpression.MixedComponentExponent c -> new UCUMExpression.MixedComponentExponent(intern(c.unit()), intern(c.exponent()));
+            case UCUMExpression.MixedComponentNoExponent c -> new UCUMExpression.MixedComponentNoExponent(intern(c.unit()));
+        };
+        return (T) intern(interned);
+    }
+}
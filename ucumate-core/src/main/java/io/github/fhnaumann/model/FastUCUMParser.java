@@ -0,0 +1,252 @@
+package io.github.fhnaumann.model;
+
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator.LexerException;
+import io.github.fhnaumann.funcs.Validator.ParserException;
+import io.github.fhnaumann.model.UCUMExpression.Operator;
+import io.github.fhnaumann.util.ParseUtil;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static io.github.fhnaumann.model.FastUCUMScanner.*;
+
+/**
+ * Hand-written single pass recursive-descent parser for UCUM expressions.
+ * <p>
+ * It recognizes exactly the language of the <code>NewUCUM.g4</code> grammar and builds the same {@link UCUMExpression.Term}
+ * as {@link UCUMSyntaxVisitor} does, but without going through a token stream, a parse tree and a visitor.
+ * Characters are tokenized on demand with the same longest-match rules as the generated ANTLR lexer, i.e. <code>10*</code>,
+ * <code>10^</code>, <code>g%</code>, <code>%[slope]</code>, <code>[pi]</code> and the <code>[pp..]</code> symbols are single tokens
+ * wherever they appear.
+ * <p>
+ * Operator precedence follows the grammar: an annotation binds tightest, then <code>/</code>, then <code>.</code>, all
+ * left-associative. Errors are reported with the same {@link LexerException} and {@link ParserException} that the ANTLR
+ * error listeners throw.
+ *
+ * @author Felix Naumann
+ */
+public class FastUCUMParser {
+
+    private static final Logger log = LoggerFactory.getLogger(FastUCUMParser.class);
+
+    private static final int MUL_PRECEDENCE = 1;
+    private static final int DIV_PRECEDENCE = 2;
+
+    private final String input;
+    private final UCUMRegistry registry;
+    private final boolean enablePrefixOnNonMetricUnits;
+    private int pos;
+
+    private FastUCUMParser(String input, UCUMRegistry registry, boolean enablePrefixOnNonMetricUnits) {
+        this.input = input;
+        this.registry = registry;
+        this.enablePrefixOnNonMetricUnits = enablePrefixOnNonMetricUnits;
+    }
+
+    /**
+     * Parses the input into a term.
+     *
+     * @param input The UCUM expression.
+     * @param registry The registry to resolve units and prefixes against.
+     * @return The parsed term. Feature flags that are checked after parsing (i.e. annotations after parenthesis) are not applied here.
+     * @throws LexerException If the input contains a character that is not part of the UCUM alphabet.
+     * @throws ParserException If the input is syntactically invalid or contains unknown units.
+     */
+    public static UCUMExpression.Term parse(String input, UCUMRegistry registry) {
+        return parse(input, registry, ConfigurationRegistry.get().isEnablePrefixOnNonMetricUnits());
+    }
+
+    /**
+     * Parses the input into a term independent of the current configuration, i.e. for the definitions inside the UCUM
+     * essence itself.
+     *
+     * @see #parse(String, UCUMRegistry)
+     */
+    public static UCUMExpression.Term parse(String input, UCUMRegistry registry, boolean enablePrefixOnNonMetricUnits) {
+        return new FastUCUMParser(input, registry, enablePrefixOnNonMetricUnits).mainTerm();
+    }
+
+    private UCUMExpression.Term mainTerm() {
+        if(peek() == SLASH) {
+            pos++;
+            /*
+            The unaryDivTerm alternative in the grammar is not followed by EOF. ANTLR therefore stops as soon as the
+            next token can't continue the term and ignores the rest of the input, i.e. "/m)" is accepted as "/m".
+            This is mirrored here to return the same results as the ANTLR parser.
+             */
+            return new UCUMExpression.MixedUnaryDivTerm(term(0));
+        }
+        UCUMExpression.Term term = term(0);
+        if(peek() != EOF) {
+            throw syntaxError("extraneous input, expected <EOF>");
+        }
+        return term;
+    }
+
+    private UCUMExpression.Term term(int minPrecedence) {
+        UCUMExpression.Term left = primaryTerm();
+        while(true) {
+            int kind = peek();
+            if(kind == LBRACE) {
+                left = new UCUMExpression.MixedAnnotTerm(left, annotation());
+            }
+            else if(kind == SLASH && minPrecedence <= DIV_PRECEDENCE) {
+                pos++;
+                left = new UCUMExpression.MixedBinaryTerm(left, Operator.DIV, term(DIV_PRECEDENCE + 1));
+            }
+            else if(kind == DOT && minPrecedence <= MUL_PRECEDENCE) {
+                pos++;
+                left = new UCUMExpression.MixedBinaryTerm(left, Operator.MUL, term(MUL_PRECEDENCE + 1));
+            }
+            else {
+                return left;
+            }
+        }
+    }
+
+    private UCUMExpression.Term primaryTerm() {
+        return switch(peek()) {
+            case LPAREN -> {
+                pos++;
+                UCUMExpression.Term term = term(0);
+                expect(RPAREN, "')'");
+                yield new UCUMExpression.MixedParenTerm(term);
+            }
+            case LBRACE -> new UCUMExpression.AnnotOnlyTerm(annotation());
+            default -> new UCUMExpression.MixedComponentTerm(component());
+        };
+    }
+
+    private UCUMExpression.Component component() {
+        UCUMExpression.Unit unit = simpleSymbolUnit();
+        int kind = peek();
+        if(kind == PLUS || kind == MINUS || kind == DIGIT) {
+            int start = pos;
+            if(kind != DIGIT) {
+                pos++;
+            }
+            if(peek() != DIGIT) {
+                throw syntaxError("missing digit in exponent");
+            }
+            skipDigits();
+            return new UCUMExpression.MixedComponentExponent(unit, new UCUMExpression.Exponent(parseInt(start)));
+        }
+        return new UCUMExpression.MixedComponentNoExponent(unit);
+    }
+
+    private UCUMExpression.Unit simpleSymbolUnit() {
+        int start = pos;
+        int kind = peek();
+        if(kind == DIGIT) {
+            skipDigits();
+            return new UCUMExpression.IntegerUnit(parseInt(start));
+        }
+        if(kind == LBRACKET) {
+            skipSquareBrackets();
+            String text = input.substring(start, pos);
+            UCUMDefinition.DefinedUnit definedUnit = registry.getDefinedUnit(text).orElseThrow(() -> new ParserException("'%s' could not be parsed to a stigmatized unit.".formatted(text)));
+            return new UCUMExpression.MixedNoPrefixSimpleUnit(definedUnit);
+        }
+        if(kind == NON_DIGIT) {
+            do {
+                pos++;
+                kind = peek();
+            } while(kind == NON_DIGIT);
+            if(kind == LBRACKET) {
+                skipSquareBrackets();
+            }
+            else if(isLiteralUnitSymbol(kind)) {
+                pos += length(kind);
+            }
+            return prefixedUnit(start);
+        }
+        if(isLiteralUnitSymbol(kind)) {
+            pos += length(kind);
+            return prefixedUnit(start);
+        }
+        throw syntaxError("no viable alternative");
+    }
+
+    private UCUMExpression.Unit prefixedUnit(int start) {
+        ParseUtil.MatchResult matchResult = ParseUtil.separatePrefixFromUnit(input, start, pos, registry);
+        return switch(matchResult) {
+            case ParseUtil.SuccessNoPrefixUnit(UCUMDefinition.UCUMUnit unit) -> new UCUMExpression.MixedNoPrefixSimpleUnit(unit);
+            case ParseUtil.SuccessPrefixUnit(UCUMDefinition.UCUMPrefix prefix, UCUMDefinition.UCUMUnit unit) -> {
+                if(!enablePrefixOnNonMetricUnits && !ParseUtil.isMetric(unit)) {
+                    String prefixString = UCUMService.print(prefix);
+                    String unitString = UCUMService.print(unit);
+                    log.warn("Matched prefix={} and unit={} but {} is not metric and prefixes for non-metric units is disabled.\nYou can change the behaviour with the 'ucumate.enablePrefixOnNonMetricUnits' property.", prefixString, unitString, unitString);
+                    throw new ParserException("Matched prefix=%s and unit=%s but %s is not metric and prefixes for non-metric units is disabled.".formatted(prefixString, unitString, unitString));
+                }
+                yield new UCUMExpression.MixedPrefixSimpleUnit(prefix, unit);
+            }
+            case ParseUtil.InvalidResults invalidResults -> throw new ParserException(invalidResults);
+            case ParseUtil.FailureResult failureResult -> throw new ParserException(failureResult);
+        };
+    }
+
+    private UCUMExpression.Annotation annotation() {
+        expect(LBRACE, "'{'");
+        int start = pos;
+        int kind = peek();
+        while(isWithinCbOrSbSymbol(kind) || kind == SPACE || kind == LBRACKET || kind == RBRACKET) {
+            pos++;
+            kind = peek();
+        }
+        String annotationText = input.substring(start, pos);
+        expect(RBRACE, "'}'");
+        ParseUtil.checkASCIIRangeForAnnotation(annotationText);
+        return new UCUMExpression.Annotation(annotationText);
+    }
+
+    private void skipSquareBrackets() {
+        expect(LBRACKET, "'['");
+        int kind = peek();
+        if(!isWithinSbSymbol(kind)) {
+            throw syntaxError("expected symbol within square brackets");
+        }
+        do {
+            pos++;
+            kind = peek();
+        } while(isWithinSbSymbol(kind));
+        expect(RBRACKET, "']'");
+    }
+
+    private void skipDigits() {
+        do {
+            pos++;
+        } while(peek() == DIGIT);
+    }
+
+    private int parseInt(int start) {
+        try {
+            return Integer.parseInt(input, start, pos, 10);
+        } catch(NumberFormatException e) {
+            throw new ParserException("Number '%s' is out of range.".formatted(input.substring(start, pos)));
+        }
+    }
+
+    private void expect(int kind, String expected) {
+        if(peek() != kind) {
+            throw syntaxError("missing " + expected);
+        }
+        pos += length(kind);
+    }
+
+    private ParserException syntaxError(String msg) {
+        return new ParserException("Syntax error at line 1:" + pos + ": " + msg);
+    }
+
+    /**
+     * Determines the token at the current position.
+     */
+    private int peek() {
+        int kind = FastUCUMScanner.tokenAt(input, pos);
+        if(kind == ERROR) {
+            throw new LexerException("Lexical error at line 1:" + pos + ": token recognition error at: '" + input.charAt(pos) + "'");
+        }
+        return kind;
+    }
+}
@@ -0,0 +1,270 @@
+package io.github.fhnaumann.model;
+
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.util.ParseUtil;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+import static io.github.fhnaumann.model.FastUCUMScanner.*;
+
+/**
+ * Recognizer that decides whether an input is valid UCUM without building a {@link UCUMExpression.Term}.
+ * <p>
+ * It follows the exact same rules as {@link FastUCUMParser} and additionally applies the checks that
+ * {@link io.github.fhnaumann.funcs.Validator#validate(String)} runs on the parsed term (annotations after parenthesis
+ * and special units with exponents or divisions) in the same pass. Instead of a term every rule returns a small
+ * bitmask that summarizes the relevant properties of the sub-term. Nothing is allocated for valid input.
+ *
+ * @author Felix Naumann
+ */
+public final class FastUCUMRecognizer {
+
+    private static final int INVALID = -1;
+    private static final int ANNOT_AFTER_PARENS = 1;
+    private static final int SPECIAL_UNIT = 1 << 1;
+    private static final int EXPONENT = 1 << 2;
+    private static final int DIVISION = 1 << 3;
+
+    private static final int MUL_PRECEDENCE = 1;
+    private static final int DIV_PRECEDENCE = 2;
+
+    private static final ThreadLocal<FastUCUMRecognizer> INSTANCE = ThreadLocal.withInitial(FastUCUMRecognizer::new);
+
+    private String input;
+    private UCUMRegistry registry;
+    private boolean enablePrefixOnNonMetricUnits;
+    private int pos;
+
+    private FastUCUMRecognizer() {}
+
+    /**
+     * Checks whether the input is valid UCUM with the current {@link Configuration}.
+     *
+     * @param input The UCUM expression.
+     * @param registry The registry to resolve units and prefixes against.
+     * @return true if {@link io.github.fhnaumann.funcs.Validator#validate(String)} would return a success, false otherwise.
+     */
+    public static boolean recognize(String input, UCUMRegistry registry) {
+        Configuration configuration = ConfigurationRegistry.get();
+        FastUCUMRecognizer recognizer = INSTANCE.get();
+        recognizer.input = input;
+        recognizer.registry = registry;
+        recognizer.enablePrefixOnNonMetricUnits = configuration.isEnablePrefixOnNonMetricUnits();
+        recognizer.pos = 0;
+        try {
+            int flags = recognizer.mainTerm();
+            if(flags == INVALID) {
+                return false;
+            }
+            if(!configuration.isAllowAnnotAfterParens() && (flags & ANNOT_AFTER_PARENS) != 0) {
+                return false;
+            }
+            // special units may only be multiplied with scalar values
+            return (flags & SPECIAL_UNIT) == 0 || (flags & (EXPONENT | DIVISION)) == 0;
+        } finally {
+            recognizer.input = null;
+            recognizer.registry = null;
+        }
+    }
+
+    private int mainTerm() {
+        if(peek() == SLASH) {
+            pos++;
+            // no EOF check, see FastUCUMParser#mainTerm
+            int flags = term(0);
+            return flags == INVALID ? INVALID : flags | DIVISION;
+        }
+        int flags = term(0);
+        return flags == INVALID || peek() != EOF ? INVALID : flags;
+    }
+
+    private int term(int minPrecedence) {
+        boolean parenthesised = peek() == LPAREN;
+        int flags = primaryTerm();
+        int annotations = 0;
+        while(flags != INVALID) {
+            int kind = peek();
+            if(kind == LBRACE) {
+                if(!annotation()) {
+                    return INVALID;
+                }
+                /*
+                Mirrors TermSummary#hasAnnotationAfterParens: (m.s){a} is flagged, but (m.s){a}{b} is an annotated
+                annotation term whose inner term is not looked at anymore.
+                 */
+                if(parenthesised && ++annotations == 1) {
+                    flags |= ANNOT_AFTER_PARENS;
+                }
+                else if(parenthesised) {
+                    flags &= ~ANNOT_AFTER_PARENS;
+                }
+            }
+            else if(kind == SLASH && minPrecedence <= DIV_PRECEDENCE) {
+                pos++;
+                parenthesised = false;
+                flags = combine(flags, term(DIV_PRECEDENCE + 1)) | DIVISION;
+            }
+            else if(kind == DOT && minPrecedence <= MUL_PRECEDENCE) {
+                pos++;
+                parenthesised = false;
+                flags = combine(flags, term(MUL_PRECEDENCE + 1));
+            }
+            else {
+                return kind == ERROR ? INVALID : flags;
+            }
+        }
+        return INVALID;
+    }
+
+    private static int combine(int left, int right) {
+        return right == INVALID ? INVALID : left | right;
+    }
+
+    private int primaryTerm() {
+        return switch(peek()) {
+            case LPAREN -> {
+                pos++;
+                int flags = term(0);
+                yield flags != INVALID && expect(RPAREN) ? flags : INVALID;
+            }
+            case LBRACE -> annotation() ? 0 : INVALID;
+            default -> component();
+        };
+    }
+
+    private int component() {
+        int unitFlags = simpleSymbolUnit();
+        if(unitFlags == INVALID) {
+            return INVALID;
+        }
+        int kind = peek();
+        if(kind == PLUS || kind == MINUS || kind == DIGIT) {
+            int start = pos;
+            if(kind != DIGIT) {
+                pos++;
+            }
+            if(peek() != DIGIT) {
+                return INVALID;
+            }
+            skipDigits();
+            if(!fitsInInt(start)) {
+                return INVALID;
+            }
+            // integer units never count as having an exponent
+            return unitFlags == 0 ? 0 : unitFlags | EXPONENT;
+        }
+        return unitFlags & ~EXPONENT;
+    }
+
+    /**
+     * @return INVALID, 0 for integer units, {@link #EXPONENT} as a marker for simple units (cleared again by
+     * {@link #component()} if no exponent follows) combined with {@link #SPECIAL_UNIT} for special units.
+     */
+    private int simpleSymbolUnit() {
+        int start = pos;
+        int kind = peek();
+        if(kind == DIGIT) {
+            skipDigits();
+            return fitsInInt(start) ? 0 : INVALID;
+        }
+        if(kind == LBRACKET) {
+            if(!skipSquareBrackets()) {
+                return INVALID;
+            }
+            if(registry.matchPrefixAndUnit(input, start, pos) instanceof ParseUtil.SuccessNoPrefixUnit(UCUMDefinition.UCUMUnit unit)
+                    && unit instanceof UCUMDefinition.DefinedUnit) {
+                return unitFlags(unit);
+            }
+            return INVALID;
+        }
+        if(kind == NON_DIGIT) {
+            do {
+                pos++;
+                kind = peek();
+            } while(kind == NON_DIGIT);
+            if(kind == LBRACKET) {
+                if(!skipSquareBrackets()) {
+                    return INVALID;
+                }
+            }
+            else if(isLiteralUnitSymbol(kind)) {
+                pos += length(kind);
+            }
+            return prefixedUnit(start);
+        }
+        if(isLiteralUnitSymbol(kind)) {
+            pos += length(kind);
+            return prefixedUnit(start);
+        }
+        return INVALID;
+    }
+
+    private int prefixedUnit(int start) {
+        return switch(registry.matchPrefixAndUnit(input, start, pos)) {
+            case null -> INVALID;
+            case ParseUtil.SuccessNoPrefixUnit(UCUMDefinition.UCUMUnit unit) -> unitFlags(unit);
+            case ParseUtil.SuccessPrefixUnit(UCUMDefinition.UCUMPrefix prefix, UCUMDefinition.UCUMUnit unit) ->
+                    !enablePrefixOnNonMetricUnits && !ParseUtil.isMetric(unit) ? INVALID : unitFlags(unit);
+        };
+    }
+
+    private static int unitFlags(UCUMDefinition.UCUMUnit unit) {
+        return unit instanceof UCUMDefinition.SpecialUnit ? SPECIAL_UNIT | EXPONENT : EXPONENT;
+    }
+
+    private boolean annotation() {
+        pos++;
+        int start = pos;
+        int kind = peek();
+        while(isWithinCbOrSbSymbol(kind) || kind == SPACE || kind == LBRACKET || kind == RBRACKET) {
+            pos++;
+            kind = peek();
+        }
+        boolean validASCII = ParseUtil.isValidASCIIAnnotation(input, start, pos);
+        return expect(RBRACE) && validASCII;
+    }
+
+    private boolean skipSquareBrackets() {
+        pos++;
+        int kind = peek();
+        if(!isWithinSbSymbol(kind)) {
+            return false;
+        }
+        do {
+            pos++;
+            kind = peek();
+        } while(isWithinSbSymbol(kind));
+        return expect(RBRACKET);
+    }
+
+    private void skipDigits() {
+        do {
+            pos++;
+        } while(peek() == DIGIT);
+    }
+
+    private boolean fitsInInt(int start) {
+        char first = input.charAt(start);
+        long limit = first == '-' ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for(int i = first == '-' || first == '+' ? start + 1 : start; i < pos; i++) {
+            value = value * 10 + (input.charAt(i) - '0');
+            if(value > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean expect(int kind) {
+        if(peek() != kind) {
+            return false;
+        }
+        pos += length(kind);
+        return true;
+    }
+
+    private int peek() {
+        return FastUCUMScanner.tokenAt(input, pos);
+    }
+}
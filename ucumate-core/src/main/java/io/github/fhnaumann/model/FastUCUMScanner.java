@@ -0,0 +1,111 @@
+package io.github.fhnaumann.model;
+
+/**
+ * On-demand tokenizer shared by {@link FastUCUMParser} and {@link FastUCUMRecognizer}. It mirrors the tokens of the
+ * <code>NewUCUM.g4</code> grammar without creating any token objects.
+ *
+ * @author Felix Naumann
+ */
+final class FastUCUMScanner {
+
+    static final int ERROR = -1;
+    static final int EOF = 0;
+    static final int DIGIT = 1;
+    static final int NON_DIGIT = 2;
+    static final int SLASH = 3;
+    static final int DOT = 4;
+    static final int LPAREN = 5;
+    static final int RPAREN = 6;
+    static final int LBRACE = 7;
+    static final int RBRACE = 8;
+    static final int LBRACKET = 9;
+    static final int RBRACKET = 10;
+    static final int PLUS = 11;
+    static final int MINUS = 12;
+    static final int QUOTE = 13;
+    static final int EQUALS = 14;
+    static final int SPACE = 15;
+    static final int PERCENT = 16;
+    static final int TEN_ASTERISK = 17;
+    static final int TEN_CIRCUMFLEX = 18;
+    static final int PI = 19;
+    static final int PPTH = 20;
+    static final int PPM = 21;
+    static final int PPB = 22;
+    static final int PPTR = 23;
+    static final int G_PERCENT = 24;
+    static final int PERCENT_SLOPE = 25;
+
+    private FastUCUMScanner() {}
+
+    static boolean isLiteralUnitSymbol(int kind) {
+        return kind >= PERCENT && kind <= PERCENT_SLOPE;
+    }
+
+    static boolean isWithinCbOrSbSymbol(int kind) {
+        return kind == DIGIT || kind == NON_DIGIT || kind == QUOTE || kind == LPAREN || kind == RPAREN
+                || kind == PLUS || kind == MINUS || kind == DOT || kind == SLASH || kind == EQUALS;
+    }
+
+    static boolean isWithinSbSymbol(int kind) {
+        return isWithinCbOrSbSymbol(kind) || kind == LBRACE || kind == RBRACE;
+    }
+
+    static int length(int kind) {
+        return switch(kind) {
+            case EOF -> 0;
+            case TEN_ASTERISK, TEN_CIRCUMFLEX -> 3;
+            case PI -> 4;
+            case PPTH, PPTR -> 6;
+            case PPM, PPB -> 5;
+            case G_PERCENT -> 2;
+            case PERCENT_SLOPE -> 8;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Determines the token at the given position with the same longest-match rules as the generated lexer.
+     *
+     * @return The token kind, {@link #EOF} at the end of the input and {@link #ERROR} if the character is not part of the UCUM alphabet.
+     */
+    static int tokenAt(String input, int pos) {
+        if(pos >= input.length()) {
+            return EOF;
+        }
+        char c = input.charAt(pos);
+        return switch(c) {
+            case '0', '2', '3', '4', '5', '6', '7', '8', '9' -> DIGIT;
+            case '1' -> input.startsWith("10*", pos) ? TEN_ASTERISK : input.startsWith("10^", pos) ? TEN_CIRCUMFLEX : DIGIT;
+            case '[' -> {
+                if(input.startsWith("[pi]", pos)) yield PI;
+                if(input.startsWith("[ppth]", pos)) yield PPTH;
+                if(input.startsWith("[ppm]", pos)) yield PPM;
+                if(input.startsWith("[ppb]", pos)) yield PPB;
+                if(input.startsWith("[pptr]", pos)) yield PPTR;
+                yield LBRACKET;
+            }
+            case '%' -> input.startsWith("%[slope]", pos) ? PERCENT_SLOPE : PERCENT;
+            case 'g' -> input.startsWith("g%", pos) ? G_PERCENT : NON_DIGIT;
+            case '/' -> SLASH;
+            case '.' -> DOT;
+            case '(' -> LPAREN;
+            case ')' -> RPAREN;
+            case '{' -> LBRACE;
+            case '}' -> RBRACE;
+            case ']' -> RBRACKET;
+            case '+' -> PLUS;
+            case '-' -> MINUS;
+            case '"' -> QUOTE;
+            case '=' -> EQUALS;
+            case ' ' -> SPACE;
+            case '!', '#', '$', '&', '\'', '*', ',', ':', ';', '<', '>', '?', '@', '\\', '^', '_', '`', '|', '~' -> NON_DIGIT;
+            default -> {
+                if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    yield NON_DIGIT;
+                }
+                yield ERROR;
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.fhnaumann.model;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.fhnaumann.util.UCUMRegistry;
+
+/**
+ * Immutable summary of the properties of a term that would otherwise require a full walk over the term (and the source
+ * definitions of its defined units) every time they are needed.
+ * <p>
+ * The summary is computed once when a term is validated. Terms are records and can't carry it, so it is kept in a cache
+ * with weak identity keys instead. Later lookups for the same instance are O(1).
+ *
+ * @param flags A bitset of {@link #CONTAINS_MOL}, {@link #CONTAINS_SPECIAL_UNIT}, {@link #CONTAINS_ARBITRARY_UNIT},
+ *              {@link #ANNOT_AFTER_PARENS}, {@link #CONTAINS_EXPONENT} and {@link #CONTAINS_DIVISION}.
+ * @param maxDepth The depth of the term tree, a single component is 1.
+ * @param atomCount The number of components (units or integers) in the term.
+ * @author Felix Naumann
+ */
+public record TermSummary(int flags, int maxDepth, int atomCount) {
+
+    /**
+     * The term contains mol, either directly or in the source definition of one of its units. mol is recognized by its
+     * code, so the flag does not depend on whether mol mass conversion replaces the definition of mol.
+     */
+    public static final int CONTAINS_MOL = 1;
+    /**
+     * The term contains a special unit (i.e. Cel) directly.
+     */
+    public static final int CONTAINS_SPECIAL_UNIT = 1 << 1;
+    /**
+     * The term contains an arbitrary unit, either directly or in the source definition of one of its units.
+     */
+    public static final int CONTAINS_ARBITRARY_UNIT = 1 << 2;
+    /**
+     * The term has an annotation directly on a parenthesised term, i.e. (m.s){a}.
+     */
+    public static final int ANNOT_AFTER_PARENS = 1 << 3;
+    /**
+     * The term has an exponent on a unit (integer units do not count).
+     */
+    public static final int CONTAINS_EXPONENT = 1 << 4;
+    /**
+     * The term contains a binary or unary division.
+     */
+    public static final int CONTAINS_DIVISION = 1 << 5;
+
+    private static final Cache<UCUMExpression.Term, TermSummary> SUMMARIES = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * Returns the summary of the term. It is only computed if the term instance has not been summarized before.
+     */
+    public static TermSummary of(UCUMExpression.Term term) {
+        TermSummary summary = SUMMARIES.getIfPresent(term);
+        if(summary == null) {
+            summary = summarize(term, UCUMRegistry.getInstance());
+            SUMMARIES.put(term, summary);
+        }
+        return summary;
+    }
+
+    public boolean containsMol() {
+        return (flags & CONTAINS_MOL) != 0;
+    }
+
+    public boolean containsSpecialUnit() {
+        return (flags & CONTAINS_SPECIAL_UNIT) != 0;
+    }
+
+    public boolean containsArbitraryUnit() {
+        return (flags & CONTAINS_ARBITRARY_UNIT) != 0;
+    }
+
+    public boolean hasAnnotationAfterParens() {
+        return (flags & ANNOT_AFTER_PARENS) != 0;
+    }
+
+    /**
+     * Special units may only be multiplied with scalar values.
+     *
+     * @return false if the term contains a special unit together with an exponent or a division anywhere.
+     */
+    public boolean isSpecialUsageValid() {
+        return !containsSpecialUnit() || (flags & (CONTAINS_EXPONENT | CONTAINS_DIVISION)) == 0;
+    }
+
+    private static TermSummary summarize(UCUMExpression.Term term, UCUMRegistry registry) {
+        return switch(term) {
+            case UCUMExpression.ComponentTerm componentTerm -> {
+                UCUMExpression.Component component = componentTerm.component();
+                int flags = switch(component.unit()) {
+                    case UCUMExpression.IntegerUnit integerUnit -> 0;
+                    case UCUMExpression.SimpleUnit simpleUnit -> registry.getUnitFlags(simpleUnit.ucumUnit())
+                            | (component instanceof UCUMExpression.ComponentExponent ? CONTAINS_EXPONENT : 0);
+                };
+                yield new TermSummary(flags, 1, 1);
+            }
+            case UCUMExpression.BinaryTerm binaryTerm -> {
+                TermSummary left = summarize(binaryTerm.left(), registry);
+                TermSummary right = summarize(binaryTerm.right(), registry);
+                yield new TermSummary(
+                        left.flags | right.flags | (binaryTerm.operator() == UCUMExpression.Operator.DIV ? CONTAINS_DIVISION : 0),
+                        Math.max(left.maxDepth, right.maxDepth) + 1,
+                        left.atomCount + right.atomCount
+                );
+            }
+            case UCUMExpression.UnaryDivTerm unaryDivTerm -> wrap(summarize(unaryDivTerm.term(), registry), CONTAINS_DIVISION);
+            case UCUMExpression.ParenTerm parenTerm -> wrap(summarize(parenTerm.term(), registry), 0);
+            case UCUMExpression.AnnotTerm annotTerm -> {
+                TermSummary inner = summarize(annotTerm.term(), registry);
+                /*
+                (m.s){a} is flagged, but in (m.s){a}{b} the annotated term is not a parenthesised term, and its inner
+                flag is not looked at anymore.
+                 */
+                int flags = annotTerm.term() instanceof UCUMExpression.ParenTerm
+                        ? inner.flags | ANNOT_AFTER_PARENS
+                        : inner.flags & ~ANNOT_AFTER_PARENS;
+                yield new TermSummary(flags, inner.maxDepth + 1, inner.atomCount);
+            }
+            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> new TermSummary(0, 1, 0);
+        };
+    }
+
+    private static TermSummary wrap(TermSummary inner, int additionalFlags) {
+        return new TermSummary(inner.flags | additionalFlags, inner.maxDepth + 1, inner.atomCount);
+    }
+}
@@ -12,6 +12,7 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 public sealed interface UCUMDefinition extends UCUMExpression {
 
@@ -46,6 +47,11 @@ public sealed interface UCUMDefinition extends UCUMExpression {
         String property();
     }
 
+    /*
+    Defined units and prefixes are registry singletons whose code is unique. Their hashCode only uses the (cached) hash
+    of the code instead of all components including the value, which keeps hashing a term cheap. The generated equals
+    still compares all components.
+     */
     sealed public interface DefinedUnit extends UCUMUnit {
 
         boolean isMetric();
@@ -67,23 +73,42 @@ public sealed interface UCUMDefinition extends UCUMExpression {
     public record DerivedUnit(
             String code, String codeCaseInsensitive, boolean isMetric, String unitClass, Collection<String> names,
             String printSymbol, String property, UCUMValue value
-    ) implements DefinedUnit {}
+    ) implements DefinedUnit {
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(code);
+        }
+    }
 
     public record DimlessUnit(
             String code, String codeCaseInsensitive, boolean isMetric, Collection<String> names, String printSymbol,
             String property, UCUMValue value
     ) implements DefinedUnit {
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(code);
+        }
     }
 
     public record SpecialUnit(
             String code, String codeCaseInsensitive, boolean isMetric, String unitClass, Collection<String> names,
             String printSymbol, String property, UCUMValue value
-    ) implements DefinedUnit {}
+    ) implements DefinedUnit {
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(code);
+        }
+    }
 
     public record ArbitraryUnit(
             String code, String codeCaseInsensitive, boolean isMetric, String unitClass, Collection<String> names,
             String printSymbol, String property, UCUMValue value
-    ) implements DefinedUnit {}
+    ) implements DefinedUnit {
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(code);
+        }
+    }
 
     @JacksonXmlRootElement(localName = "unit")
     public record UnitDto(
@@ -123,5 +148,9 @@ public sealed interface UCUMDefinition extends UCUMExpression {
             @JacksonXmlProperty(localName = "printSymbol") String printSymbol,
             @JacksonXmlProperty(localName = "value") UCUMValue value
     ) implements Concept {
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(code);
+        }
     }
 }
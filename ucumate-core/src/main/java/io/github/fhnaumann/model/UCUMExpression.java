@@ -4,6 +4,8 @@ package io.github.fhnaumann.model;
 import io.github.fhnaumann.util.PreciseDecimal;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+import java.math.BigDecimal;
+
 @JsonTypeInfo(
         use = JsonTypeInfo.Id.CLASS,
         include = JsonTypeInfo.As.PROPERTY,
@@ -37,7 +39,7 @@ public sealed interface UCUMExpression permits UCUMDefinition, UCUMExpression.An
 
     record IntegerUnit(int value) implements CanonicalUnit {
         public PreciseDecimal asPreciseDecimal() {
-            return new PreciseDecimal(Integer.toString(value));
+            return new PreciseDecimal(BigDecimal.valueOf(value));
         }
     }
 
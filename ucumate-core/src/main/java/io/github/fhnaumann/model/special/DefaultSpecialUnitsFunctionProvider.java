@@ -2,30 +2,20 @@ package io.github.fhnaumann.model.special;
 
 import io.github.fhnaumann.util.PreciseDecimal;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 public class DefaultSpecialUnitsFunctionProvider implements SpecialUnitsFunctionProvider {
 
-    private static final Map<String, ConversionFunction> funcs = createFuncs();
+    private static final Map<String, ConversionFunction> funcs = Map.copyOf(createFuncs());
 
     private static Map<String, ConversionFunction> createFuncs() {
         Map<String, ConversionFunction> tmpMap = new HashMap<>();
-        tmpMap.put("Cel", of(
-            number -> number - 273.15, // K to Cel
-            number -> number + 273.15 // Cel to K
-        ));
-        tmpMap.put("degF", of(
-                number -> number - 459.67, // K to [degF]
-                number -> (number + 459.67) // [degF] to K
-            )
-        );
-        tmpMap.put("degRe", of(
-                number -> number - 218.52, // K to [degRe]
-                number -> (number + 218.52) // [degRe] to K
-            )
-        );
+        tmpMap.put("Cel", offset(273.15)); // K to Cel and back
+        tmpMap.put("degF", offset(459.67)); // K to [degF] and back
+        tmpMap.put("degRe", offset(218.52)); // K to [degRe] and back
         /*
         Probably a mistake in the spec. tanTimes100 seems to be equivalent to 100tan while it is never mentioned elsewhere in the spec.
          */
@@ -80,6 +70,35 @@ public class DefaultSpecialUnitsFunctionProvider implements SpecialUnitsFunction
         );
     }
 
+    /*
+    Computed with doubles like every other function here, but marked as a shift so it can be fused with the magnitudes.
+     */
+    private static ConversionFunction offset(double offset) {
+        PreciseDecimal preciseOffset = new PreciseDecimal(BigDecimal.valueOf(offset));
+        ConversionFunction function = of(number -> number - offset, number -> number + offset);
+        return new ConversionFunction() {
+            @Override public PreciseDecimal fromCanonical(PreciseDecimal value) {
+                return function.fromCanonical(value);
+            }
+
+            @Override public PreciseDecimal toCanonical(PreciseDecimal value) {
+                return function.toCanonical(value);
+            }
+
+            @Override public double fromCanonical(double value) {
+                return value - offset;
+            }
+
+            @Override public double toCanonical(double value) {
+                return value + offset;
+            }
+
+            @Override public PreciseDecimal offset() {
+                return preciseOffset;
+            }
+        };
+    }
+
     private static ConversionFunction of(Function<Double, Double> fromCanonical, Function<Double, Double> toCanonical) {
         return new ConversionFunction() {
             @Override public PreciseDecimal fromCanonical(PreciseDecimal value) {
@@ -89,10 +108,18 @@ public class DefaultSpecialUnitsFunctionProvider implements SpecialUnitsFunction
             @Override public PreciseDecimal toCanonical(PreciseDecimal value) {
                 return PreciseDecimal.fromDoubleFixedScale(toCanonical.apply(value.getValue().doubleValue()));
             }
+
+            @Override public double fromCanonical(double value) {
+                return fromCanonical.apply(value);
+            }
+
+            @Override public double toCanonical(double value) {
+                return toCanonical.apply(value);
+            }
         };
     }
 
     @Override public Map<String, ConversionFunction> getConversionFuncs() {
-        return Map.copyOf(funcs);
+        return funcs;
     }
 }
@@ -1,10 +1,33 @@
 package io.github.fhnaumann.model.special;
 
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SpecialUnits {
 
-    private static SpecialUnitsFunctionProvider provider = loadProvider();
+    private static volatile ResolvedFunctions functions = new ResolvedFunctions(loadProvider());
+
+    /*
+    The functions that have been looked up from the current provider. Every function is only resolved once per
+    provider, so converting i.e. Cel does not ask the provider (and possibly copy its map) every time.
+     */
+    private record ResolvedFunctions(SpecialUnitsFunctionProvider provider, Map<String, SpecialUnitsFunctionProvider.ConversionFunction> byName) {
+
+        ResolvedFunctions(SpecialUnitsFunctionProvider provider) {
+            this(provider, new ConcurrentHashMap<>());
+        }
+
+        SpecialUnitsFunctionProvider.ConversionFunction get(String name) {
+            SpecialUnitsFunctionProvider.ConversionFunction function = byName.get(name);
+            if(function == null) {
+                // throws for unknown names, which are not stored
+                function = provider.getFunction(name);
+                byName.put(name, function);
+            }
+            return function;
+        }
+    }
 
     private static SpecialUnitsFunctionProvider loadProvider() {
         // try ServiceLoader
@@ -18,15 +41,18 @@ public class SpecialUnits {
     }
 
     public static SpecialUnitsFunctionProvider getProvider() {
-        return provider;
+        return functions.provider();
     }
 
     public static void setProvider(SpecialUnitsFunctionProvider customProvider) {
-        provider = customProvider != null ? customProvider : loadProvider();
+        functions = new ResolvedFunctions(customProvider != null ? customProvider : loadProvider());
     }
 
+    /**
+     * @return The function of the current provider. The same instance is returned until the provider is changed.
+     * @throws IllegalArgumentException If the provider does not know the function.
+     */
     public static SpecialUnitsFunctionProvider.ConversionFunction getFunction(String name) {
-        return provider.getFunction(name);
+        return functions.get(name);
     }
 }
-
@@ -2,6 +2,7 @@ package io.github.fhnaumann.model.special;
 
 import io.github.fhnaumann.util.PreciseDecimal;
 
+import java.math.BigDecimal;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -10,6 +11,33 @@ public interface SpecialUnitsFunctionProvider {
     interface ConversionFunction {
         PreciseDecimal fromCanonical(PreciseDecimal value);
         PreciseDecimal toCanonical(PreciseDecimal value);
+
+        /**
+         * Used by {@link io.github.fhnaumann.funcs.FastConverter}. Goes through the PreciseDecimal function unless a
+         * provider computes with doubles anyway.
+         */
+        default double fromCanonical(double value) {
+            return fromCanonical(new PreciseDecimal(BigDecimal.valueOf(value))).getValue().doubleValue();
+        }
+
+        /**
+         * Used by {@link io.github.fhnaumann.funcs.FastConverter}. Goes through the PreciseDecimal function unless a
+         * provider computes with doubles anyway.
+         */
+        default double toCanonical(double value) {
+            return toCanonical(new PreciseDecimal(BigDecimal.valueOf(value))).getValue().doubleValue();
+        }
+
+        /**
+         * The offset of a function that only shifts the value, i.e. <code>toCanonical(x) = x + offset</code> and
+         * <code>fromCanonical(x) = x - offset</code> (Cel, [degF] and [degRe]). The conversions that compute with doubles
+         * fuse such a function with the magnitudes into a single multiplication and addition.
+         *
+         * @return The offset or null if the function is not a shift.
+         */
+        default PreciseDecimal offset() {
+            return null;
+        }
     }
 
     Map<String, ConversionFunction> getConversionFuncs();
@@ -22,6 +50,34 @@ public interface SpecialUnitsFunctionProvider {
         return conversionFunction;
     }
 
+    /**
+     * A function that only shifts the value by the offset, computed exactly. See {@link ConversionFunction#offset()}.
+     */
+    static ConversionFunction offset(PreciseDecimal offset) {
+        double doubleOffset = offset.getValue().doubleValue();
+        return new ConversionFunction() {
+            @Override public PreciseDecimal fromCanonical(PreciseDecimal value) {
+                return value.subtract(offset);
+            }
+
+            @Override public PreciseDecimal toCanonical(PreciseDecimal value) {
+                return value.add(offset);
+            }
+
+            @Override public double fromCanonical(double value) {
+                return value - doubleOffset;
+            }
+
+            @Override public double toCanonical(double value) {
+                return value + doubleOffset;
+            }
+
+            @Override public PreciseDecimal offset() {
+                return offset;
+            }
+        };
+    }
+
     static ConversionFunction of(Function<PreciseDecimal, PreciseDecimal> fromCanonical, Function<PreciseDecimal, PreciseDecimal> toCanonical) {
         return new ConversionFunction() {
             @Override public PreciseDecimal fromCanonical(PreciseDecimal value) {
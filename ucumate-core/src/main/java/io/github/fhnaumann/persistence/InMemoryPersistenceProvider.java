@@ -3,15 +3,21 @@ package io.github.fhnaumann.persistence;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.FeatureFlags;
+import io.github.fhnaumann.configuration.FeatureFlagsContext;
 import io.github.fhnaumann.configuration.ValKey;
 import io.github.fhnaumann.funcs.Canonicalizer;
 import io.github.fhnaumann.funcs.UCUMService;
 import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.ExpressionInterner;
+import io.github.fhnaumann.model.UCUMExpression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Felix Naumann
@@ -20,8 +26,17 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(InMemoryPersistenceProvider.class);
 
+    public static final int DEFAULT_VAL_BOOL_CACHE_MAX_SIZE = 100_000;
+
     private Cache<CanonKey, Canonicalizer.CanonicalStepResult> canonCache;
     private Cache<ValKey, Validator.ValidationResult> valCache;
+    /*
+    Only holds the validity of an expression for UCUMService#validateToBool. It is keyed by the expression alone (one
+    cache per set of feature flags), so a lookup does not have to allocate a ValKey.
+     */
+    private final ConcurrentMap<FeatureFlags, Cache<String, Boolean>> valBoolCaches = new ConcurrentHashMap<>();
+    private int valBoolCacheMaxSize = DEFAULT_VAL_BOOL_CACHE_MAX_SIZE;
+    private boolean recordStats;
 
     private boolean enabled;
 
@@ -30,6 +45,12 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
     }
 
     public InMemoryPersistenceProvider(int canonCacheMaxSize, int valCacheMaxSize, boolean recordStats) {
+        this(canonCacheMaxSize, valCacheMaxSize, DEFAULT_VAL_BOOL_CACHE_MAX_SIZE, recordStats);
+    }
+
+    public InMemoryPersistenceProvider(int canonCacheMaxSize, int valCacheMaxSize, int valBoolCacheMaxSize, boolean recordStats) {
+        this.valBoolCacheMaxSize = valBoolCacheMaxSize;
+        this.recordStats = recordStats;
         if(recordStats) {
             canonCache = Caffeine.newBuilder().maximumSize(canonCacheMaxSize).recordStats().build();
             valCache = Caffeine.newBuilder().maximumSize(valCacheMaxSize).recordStats().build();
@@ -63,7 +84,7 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
     @Override
     public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
         if(isEnabled()) {
-            canonCache.put(key, value);
+            canonCache.put(intern(key), intern(value));
             if(logger.isDebugEnabled()) {
                 logger.debug("Saved key={} in cache.", UCUMService.print(key.expression())); // call to #print is expensive here
             }
@@ -88,7 +109,7 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
     @Override
     public void saveValidated(ValKey key, Validator.ValidationResult value) {
         if(isEnabled()) {
-            valCache.put(key, value);
+            valCache.put(key, value instanceof Validator.Success(UCUMExpression.Term term) ? new Validator.Success(ExpressionInterner.internDeep(term)) : value);
             logger.debug("Saved key={} in cache.", key);
         }
     }
@@ -108,6 +129,45 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
         return valCache.asMap();
     }
 
+    /*
+    The cached terms share their sub-terms, see ExpressionInterner. Lookups are not affected, they compare structurally.
+     */
+    private static CanonKey intern(CanonKey key) {
+        return key.expression() instanceof UCUMExpression.Term term ? new CanonKey(ExpressionInterner.internDeep(term), key.flags()) : key;
+    }
+
+    private static Canonicalizer.CanonicalStepResult intern(Canonicalizer.CanonicalStepResult value) {
+        return value.term() == null ? value : new Canonicalizer.CanonicalStepResult(
+                ExpressionInterner.internDeep(value.term()),
+                value.magnitude(),
+                value.cfPrefix(),
+                value.specialHandlingActive(),
+                value.specialFunction()
+        );
+    }
+
+    public void saveValidatedBool(String expression, boolean valid) {
+        if(isEnabled()) {
+            valBoolCaches.computeIfAbsent(FeatureFlagsContext.get(), flags -> createValBoolCache()).put(expression, valid);
+        }
+    }
+
+    public Boolean getValidatedBool(String expression) {
+        if(isEnabled()) {
+            Cache<String, Boolean> valBoolCache = valBoolCaches.get(FeatureFlagsContext.get());
+            return valBoolCache != null ? valBoolCache.getIfPresent(expression) : null;
+        }
+        else {
+            return null;
+        }
+    }
+
+    private Cache<String, Boolean> createValBoolCache() {
+        return recordStats
+                ? Caffeine.newBuilder().maximumSize(valBoolCacheMaxSize).recordStats().build()
+                : Caffeine.newBuilder().maximumSize(valBoolCacheMaxSize).build();
+    }
+
     @Override
     public void close() {
         // No-op
@@ -120,6 +180,7 @@ public class InMemoryPersistenceProvider implements PersistenceProvider {
         if(valCache != null) {
             valCache.invalidateAll();
         }
+        valBoolCaches.clear();
     }
 
     public void setEnabled(boolean enabled) {
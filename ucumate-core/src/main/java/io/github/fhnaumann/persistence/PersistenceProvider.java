@@ -6,6 +6,8 @@ import io.github.fhnaumann.funcs.Canonicalizer;
 import io.github.fhnaumann.funcs.Validator;
 import io.github.fhnaumann.model.UCUMExpression;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -22,6 +24,31 @@ public interface PersistenceProvider {
      }
      Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical();
 
+     /**
+      * Looks up many keys at once. A provider that can read many rows with one query should override this.
+      * @param keys The keys to look up.
+      * @return The entries that were found, missing keys have no entry.
+      */
+     default Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical(Collection<CanonKey> keys) {
+          Map<CanonKey, Canonicalizer.CanonicalStepResult> found = new HashMap<>();
+          for(CanonKey key : keys) {
+               Canonicalizer.CanonicalStepResult value = getCanonical(key);
+               if(value != null) {
+                    found.put(key, value);
+               }
+          }
+          return found;
+     }
+
+     /**
+      * Saves a batch of entries. Called by the write-behind queue of the {@link PersistenceRegistry}, a provider that
+      * can write many rows at once should override this.
+      * @param entries The entries, at most one value per key.
+      */
+     default void saveAllCanonical(Map<CanonKey, Canonicalizer.CanonicalStepResult> entries) {
+          entries.forEach(this::saveCanonical);
+     }
+
      void saveValidated(ValKey key, Validator.ValidationResult value);
      default void saveValidated(String key, Validator.ValidationResult value) {
           saveValidated(ValKey.of(key), value);
@@ -32,6 +59,31 @@ public interface PersistenceProvider {
      }
      Map<ValKey, Validator.ValidationResult> getAllValidated();
 
+     /**
+      * Looks up many keys at once. A provider that can read many rows with one query should override this.
+      * @param keys The keys to look up.
+      * @return The entries that were found, missing keys have no entry.
+      */
+     default Map<ValKey, Validator.ValidationResult> getAllValidated(Collection<ValKey> keys) {
+          Map<ValKey, Validator.ValidationResult> found = new HashMap<>();
+          for(ValKey key : keys) {
+               Validator.ValidationResult value = getValidated(key);
+               if(value != null) {
+                    found.put(key, value);
+               }
+          }
+          return found;
+     }
+
+     /**
+      * Saves a batch of entries. Called by the write-behind queue of the {@link PersistenceRegistry}, a provider that
+      * can write many rows at once should override this.
+      * @param entries The entries, at most one value per key.
+      */
+     default void saveAllValidated(Map<ValKey, Validator.ValidationResult> entries) {
+          entries.forEach(this::saveValidated);
+     }
+
 
 
      void close();
@@ -10,6 +10,7 @@ import io.github.fhnaumann.model.UCUMExpression;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import io.github.fhnaumann.util.PropertiesUtil;
@@ -30,11 +31,14 @@ public class PersistenceRegistry implements PersistenceProvider {
     private static final String CACHE_SETTINGS_PROPERTY_FILE_NAME = "ucumate.properties";
 
     public static InMemoryPersistenceProvider cache;
-    private static final Map<String, PersistenceProvider> additionalProviders = new HashMap<>();
+    // concurrent because the write-behind thread iterates over the providers
+    private static final Map<String, PersistenceProvider> additionalProviders = new ConcurrentHashMap<>();
+    private static volatile WriteBehindQueue writeBehind;
 
     static {
         //try {
             initCache(); // initialize cache with default config or from property file on classpath
+            initWriteBehind();
             // Class.forName("io.github.fhnaumann.SQLiteAutoRegistrar"); // try to auto-register sqlite provider if persistence module is on classpath, otherwise ignore
             searchSPI();
         //} catch (ClassNotFoundException ignored) {
@@ -62,6 +66,7 @@ public class PersistenceRegistry implements PersistenceProvider {
             boolean enableCache = Boolean.parseBoolean(properties.getProperty("ucumate.cache.enable", "true"));
             int maxCanonSize = Integer.parseInt(properties.getProperty("ucumate.cache.maxCanonSize", "10000"));
             int maxValSize = Integer.parseInt(properties.getProperty("ucumate.cache.maxValSize", "10000"));
+            int maxValBoolSize = Integer.parseInt(properties.getProperty("ucumate.cache.maxValBoolSize", String.valueOf(InMemoryPersistenceProvider.DEFAULT_VAL_BOOL_CACHE_MAX_SIZE)));
             boolean recordStats = Boolean.parseBoolean(properties.getProperty("ucumate.cache.recordStats", "false"));
             boolean preHeat = Boolean.parseBoolean(properties.getProperty("ucumate.cache.preheat", "true"));
             boolean overrideInsteadOfAdd = Boolean.parseBoolean(properties.getProperty("ucumate.cache.preheat.override", "false"));
@@ -78,7 +83,7 @@ public class PersistenceRegistry implements PersistenceProvider {
                     cache.setEnabled(false);
                 }
             }
-            cache = new InMemoryPersistenceProvider(maxCanonSize, maxValSize, recordStats);
+            cache = new InMemoryPersistenceProvider(maxCanonSize, maxValSize, maxValBoolSize, recordStats);
             cache.setEnabled(true);
             if(preHeat) {
                 List<String> mergedCodes = Stream.concat(overrideInsteadOfAdd ? new ArrayList<String>().stream() : defaultPreHeatCodes.stream(), preHeatCodes.stream())
@@ -91,6 +96,43 @@ public class PersistenceRegistry implements PersistenceProvider {
         }
     }
 
+    /**
+     * Reads the write-behind settings from the property file on the classpath, see {@link #initWriteBehind(Properties)}.
+     */
+    public static void initWriteBehind() {
+        initWriteBehind(findCacheSettingsFromPropertyFileOnClasspath());
+    }
+
+    /**
+     * Configures whether the additional providers are written to on the caller's thread (default) or in batches on a
+     * dedicated thread. Any previous write-behind queue is flushed first.
+     * See more <a href="https://fhnaumann.github.io/ucumate/persistence/">in the online documentation</a>.
+     * @param properties The properties for the write-behind settings.
+     */
+    public static void initWriteBehind(Properties properties) {
+        boolean enable = Boolean.parseBoolean(properties.getProperty("ucumate.persistence.writeBehind.enable", "false"));
+        long flushIntervalMillis = Long.parseLong(properties.getProperty("ucumate.persistence.writeBehind.flushIntervalMillis", "100"));
+        int maxPending = Integer.parseInt(properties.getProperty("ucumate.persistence.writeBehind.maxPending", "10000"));
+        WriteBehindQueue.Backpressure backpressure = WriteBehindQueue.Backpressure.valueOf(
+                properties.getProperty("ucumate.persistence.writeBehind.backpressure", WriteBehindQueue.Backpressure.CALLER_RUNS.name()).toUpperCase()
+        );
+        WriteBehindQueue old = writeBehind;
+        writeBehind = enable ? new WriteBehindQueue(additionalProviders::values, flushIntervalMillis, maxPending, backpressure) : null;
+        if(old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Writes all entries that are still pending in the write-behind queue (if enabled) on the calling thread.
+     */
+    public static void flush() {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) {
+            queue.flush();
+        }
+    }
+
     private static Properties findCacheSettingsFromPropertyFileOnClasspath() {
         Properties props = new Properties();
         try (InputStream in = PersistenceRegistry.class.getClassLoader().getResourceAsStream(CACHE_SETTINGS_PROPERTY_FILE_NAME)) {
@@ -117,6 +159,7 @@ public class PersistenceRegistry implements PersistenceProvider {
         }
         PersistenceProvider old = additionalProviders.get(name);
         if(old != null) {
+            flush();
             old.close();
         }
         additionalProviders.put(name, provider);
@@ -169,7 +212,16 @@ public class PersistenceRegistry implements PersistenceProvider {
     @Override
     public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
         cache.saveCanonical(key, value);
-        additionalProviders.forEach((s, entry) -> entry.saveCanonical(key, value));
+        if(additionalProviders.isEmpty()) {
+            return;
+        }
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) {
+            queue.enqueueCanonical(key, value);
+        }
+        else {
+            additionalProviders.forEach((s, entry) -> entry.saveCanonical(key, value));
+        }
     }
 
     @Override
@@ -187,6 +239,17 @@ public class PersistenceRegistry implements PersistenceProvider {
         return null;
     }
 
+    /**
+     * Looks up the canonical form only in the in-memory cache and never in any additional providers. Used for the
+     * sub-terms of a canonicalization, see {@link Canonicalizer.LookupCounts}.
+     * @param key The (sub-)term.
+     * @return The cached canonical form or null if it is not cached in memory.
+     */
+    public Canonicalizer.CanonicalStepResult getCanonicalInMemory(UCUMExpression key) {
+        // checked before the key (which hashes the whole sub-tree) is built
+        return cache != null && cache.isEnabled() ? cache.getCanonical(key) : null;
+    }
+
     @Override
     public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical() {
         if(cache != null && cache.isEnabled()) {
@@ -201,7 +264,16 @@ public class PersistenceRegistry implements PersistenceProvider {
     @Override
     public void saveValidated(ValKey key, Validator.ValidationResult value) {
         cache.saveValidated(key, value);
-        additionalProviders.forEach((s, entry) -> entry.saveValidated(key, value));
+        if(additionalProviders.isEmpty()) {
+            return;
+        }
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) {
+            queue.enqueueValidated(key, value);
+        }
+        else {
+            additionalProviders.forEach((s, entry) -> entry.saveValidated(key, value));
+        }
     }
 
     @Override
@@ -219,6 +291,20 @@ public class PersistenceRegistry implements PersistenceProvider {
         return null;
     }
 
+    /**
+     * Looks up the validity of an expression in the in-memory boolean cache. This cache is never written to any
+     * additional providers.
+     * @param expression The (raw) UCUM expression.
+     * @return The cached validity or null if it is not cached.
+     */
+    public Boolean getValidatedBool(String expression) {
+        return cache.getValidatedBool(expression);
+    }
+
+    public void saveValidatedBool(String expression, boolean valid) {
+        cache.saveValidatedBool(expression, valid);
+    }
+
     @Override
     public Map<ValKey, Validator.ValidationResult> getAllValidated() {
         if(cache != null && cache.isEnabled()) {
@@ -232,6 +318,8 @@ public class PersistenceRegistry implements PersistenceProvider {
 
     @Override
     public void close() {
+        // pending entries are written before the providers are closed
+        flush();
         additionalProviders.forEach((s, persistenceProvider) -> persistenceProvider.close());
         additionalProviders.clear();
     }
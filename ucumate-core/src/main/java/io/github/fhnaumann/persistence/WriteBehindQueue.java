@@ -0,0 +1,242 @@
+package io.github.fhnaumann.persistence;
+
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collects the writes to the additional providers of the {@link PersistenceRegistry} and writes them in batches on a
+ * dedicated thread, so a slow provider (i.e. a remote database) does not add to the latency of the caller. Pending
+ * writes of the same key are coalesced into the latest value. The number of pending keys is bounded, a full queue is
+ * handled according to the {@link Backpressure} policy. {@link #close()} writes everything that is still pending.
+ *
+ * @author Felix Naumann
+ */
+final class WriteBehindQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    /**
+     * What happens to a new key if the queue is full.
+     */
+    enum Backpressure {
+        /**
+         * The caller waits until the pending keys have been written.
+         */
+        BLOCK,
+        /**
+         * The caller writes the entry to the providers itself, like without a queue. It waits for a batch that is
+         * currently being written.
+         */
+        CALLER_RUNS,
+        /**
+         * The entry is not written to the providers. It is still in the in-memory cache (if enabled).
+         */
+        DROP
+    }
+
+    private final Supplier<Collection<PersistenceProvider>> providers;
+    private final int maxPending;
+    private final Backpressure backpressure;
+    private final ScheduledExecutorService executor;
+    private final Thread shutdownHook = new Thread(this::flush, "ucumate-write-behind-shutdown");
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // signalled after a batch has been written
+    private final Condition drained = lock.newCondition();
+    // guarded by lock
+    private Map<CanonKey, Canonicalizer.CanonicalStepResult> pendingCanonical = new LinkedHashMap<>();
+    private Map<ValKey, Validator.ValidationResult> pendingValidated = new LinkedHashMap<>();
+    private int inFlight;
+    private boolean closed;
+
+    /*
+    Held while a batch or an entry of a caller is written. Only one write happens at a time, so an entry that is
+    written after it was saved is never overtaken by an older value of the same key from a batch that is in flight.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    WriteBehindQueue(Supplier<Collection<PersistenceProvider>> providers, long flushIntervalMillis, int maxPending, Backpressure backpressure) {
+        if(flushIntervalMillis <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("The flush interval and the maximum number of pending writes must be positive.");
+        }
+        this.providers = providers;
+        this.maxPending = maxPending;
+        this.backpressure = backpressure;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ucumate-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        // the thread is a daemon, so anything still pending when the JVM exits is written by the hook
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    void enqueueCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
+        lock.lock();
+        try {
+            Backpressure applied = pendingCanonical.containsKey(key) ? null : awaitCapacity();
+            if(applied == null) {
+                pendingCanonical.put(key, value);
+                return;
+            }
+            if(applied == Backpressure.DROP) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeDirectly(provider -> provider.saveCanonical(key, value));
+    }
+
+    void enqueueValidated(ValKey key, Validator.ValidationResult value) {
+        lock.lock();
+        try {
+            Backpressure applied = pendingValidated.containsKey(key) ? null : awaitCapacity();
+            if(applied == null) {
+                pendingValidated.put(key, value);
+                return;
+            }
+            if(applied == Backpressure.DROP) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeDirectly(provider -> provider.saveValidated(key, value));
+    }
+
+    private void writeDirectly(Consumer<PersistenceProvider> write) {
+        flushLock.lock();
+        try {
+            providers.get().forEach(write);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /*
+    Must hold the lock. Returns null if there is room for another key, otherwise the policy that applies to the entry.
+    Once the queue is closed, the callers write their entries themselves.
+     */
+    private Backpressure awaitCapacity() {
+        if(closed) {
+            return Backpressure.CALLER_RUNS;
+        }
+        if(pending() < maxPending) {
+            return null;
+        }
+        if(backpressure != Backpressure.BLOCK) {
+            logger.debug("Write-behind queue is full ({} pending), applying {}.", pending(), backpressure);
+            return backpressure;
+        }
+        // don't wait for the next scheduled flush
+        executor.execute(this::flush);
+        // the keys that are being written still count until the batch is done
+        while(pending() + inFlight >= maxPending && !closed) {
+            drained.awaitUninterruptibly();
+        }
+        return closed ? Backpressure.CALLER_RUNS : null;
+    }
+
+    private int pending() {
+        return pendingCanonical.size() + pendingValidated.size();
+    }
+
+    /**
+     * Writes all pending entries to the providers on the calling thread.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<CanonKey, Canonicalizer.CanonicalStepResult> canonical;
+            Map<ValKey, Validator.ValidationResult> validated;
+            lock.lock();
+            try {
+                if(pending() == 0) {
+                    return;
+                }
+                canonical = pendingCanonical;
+                validated = pendingValidated;
+                pendingCanonical = new LinkedHashMap<>();
+                pendingValidated = new LinkedHashMap<>();
+                inFlight = canonical.size() + validated.size();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                write(canonical, validated);
+            } finally {
+                lock.lock();
+                try {
+                    inFlight = 0;
+                    drained.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<CanonKey, Canonicalizer.CanonicalStepResult> canonical, Map<ValKey, Validator.ValidationResult> validated) {
+        for(PersistenceProvider provider : providers.get()) {
+            try {
+                if(!canonical.isEmpty()) {
+                    provider.saveAllCanonical(canonical);
+                }
+                if(!validated.isEmpty()) {
+                    provider.saveAllValidated(validated);
+                }
+            } catch (RuntimeException e) {
+                // there is no caller to report to, the entries are still in the in-memory cache (if enabled)
+                logger.warn("Failed to write {} entries to {}.", canonical.size() + validated.size(), provider.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread and writes all pending entries. Entries that are saved afterward are written by the
+     * caller.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down and runs the hook anyway
+        }
+        try {
+            if(!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Write-behind thread did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.fhnaumann.util;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.function.Function;
+
+/**
+ * Holds a lexer, token stream and parser that are reset and reused for every input instead of being created anew.
+ * Instances are not thread-safe, keep one per thread (i.e. in a {@link ThreadLocal}).
+ * <p>
+ * Parsing uses the two-stage strategy recommended by ANTLR: The input is first parsed with the faster SLL prediction
+ * and a {@link BailErrorStrategy}. Only if that fails, the input is parsed again with full LL prediction and the
+ * {@link ThrowingErrorListener#PARSER} reports the error. SLL either produces the same parse tree as LL or fails.
+ * The SLL stage bails out with a shared exception without a stack trace because the parse tree is discarded anyway.
+ *
+ * @param <L> The generated lexer.
+ * @param <P> The generated parser.
+ * @author Felix Naumann
+ */
+public class AntlrParsingContext<L extends Lexer, P extends Parser> {
+
+    private final L lexer;
+    private final CommonTokenStream tokens;
+    private final P parser;
+    private final BailErrorStrategy bailErrorStrategy = new StacklessBailErrorStrategy();
+    private final DefaultErrorStrategy defaultErrorStrategy = new DefaultErrorStrategy();
+
+    public AntlrParsingContext(Function<CharStream, L> lexerFactory, Function<TokenStream, P> parserFactory) {
+        this.lexer = lexerFactory.apply(CharStreams.fromString(""));
+        this.lexer.removeErrorListeners();
+        this.lexer.addErrorListener(ThrowingErrorListener.LEXER);
+        this.tokens = new CommonTokenStream(lexer);
+        this.parser = parserFactory.apply(tokens);
+    }
+
+    /**
+     * Points the lexer, token stream and parser to the new input.
+     *
+     * @return The (reset) token stream for the input.
+     */
+    public CommonTokenStream reset(String input) {
+        lexer.setInputStream(CharStreams.fromString(input));
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        return tokens;
+    }
+
+    /**
+     * Parses the input that was passed in the last {@link #reset(String)} call.
+     *
+     * @param startRule The rule to start parsing with, i.e. <code>NewUCUMParser::mainTerm</code>.
+     * @return The parse tree.
+     * @throws io.github.fhnaumann.funcs.Validator.LexerException If the lexer encounters an invalid symbol.
+     * @throws io.github.fhnaumann.funcs.Validator.ParserException If the input is syntactically invalid.
+     */
+    public <T extends ParserRuleContext> T parse(Function<P, T> startRule) {
+        parser.removeErrorListeners();
+        // reset() also resets the error handler, so it has to be called after the handler is swapped
+        parser.setErrorHandler(bailErrorStrategy);
+        parser.reset();
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return startRule.apply(parser);
+        } catch (ParseCancellationException e) {
+            parser.addErrorListener(ThrowingErrorListener.PARSER);
+            parser.setErrorHandler(defaultErrorStrategy);
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return startRule.apply(parser);
+        }
+    }
+
+    private static class StacklessBailErrorStrategy extends BailErrorStrategy {
+
+        private static final ParseCancellationException BAIL = new ParseCancellationException() {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+
+        @Override
+        public void recover(Parser recognizer, RecognitionException e) {
+            throw BAIL;
+        }
+
+        @Override
+        public Token recoverInline(Parser recognizer) {
+            throw BAIL;
+        }
+    }
+}
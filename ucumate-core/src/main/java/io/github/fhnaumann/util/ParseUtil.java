@@ -4,21 +4,43 @@ import io.github.fhnaumann.model.UCUMDefinition;
 import io.github.fhnaumann.funcs.Validator.ParserException;
 import org.antlr.v4.runtime.tree.ParseTree;
 
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 public class ParseUtil {
 
     public static void checkASCIIRangeForAnnotation(String rawAnnotation) {
-        boolean illegalSymbols = !rawAnnotation.isEmpty() && rawAnnotation.chars().noneMatch(annotChar -> annotChar >= 33 && annotChar <= 126 && annotChar != '{' && annotChar != '}');
-        if(illegalSymbols) {
+        if(!isValidASCIIAnnotation(rawAnnotation)) {
             throw new ParserException("Invalid ascii symbol in annotation.");
         }
     }
 
+    /**
+     * @return false if the annotation is not empty but consists only of symbols outside the allowed ASCII range
+     * (i.e. only spaces).
+     */
+    public static boolean isValidASCIIAnnotation(CharSequence rawAnnotation) {
+        return isValidASCIIAnnotation(rawAnnotation, 0, rawAnnotation.length());
+    }
+
+    /**
+     * Same as {@link #isValidASCIIAnnotation(CharSequence)} for the annotation between start (inclusive) and end
+     * (exclusive), without copying it.
+     */
+    public static boolean isValidASCIIAnnotation(CharSequence input, int start, int end) {
+        if(start == end) {
+            return true;
+        }
+        for(int i = start; i < end; i++) {
+            char annotChar = input.charAt(i);
+            if(annotChar >= 33 && annotChar <= 126 && annotChar != '{' && annotChar != '}') {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static String asText(List<? extends ParseTree> nodes) {
         return nodes.stream().map(ParseTree::getText).collect(Collectors.joining());
     }
@@ -30,72 +52,46 @@ public class ParseUtil {
         };
     }
 
-    private static MatchResult computeMatchResult(String textMaybeWithUCUMUnit, String partialText, UCUMRegistry registry) {
-        Optional<UCUMDefinition.UCUMUnit> optionalUCUMUnit = registry.getUCUMUnit(partialText);
-        if(optionalUCUMUnit.isPresent()) {
-            UCUMDefinition.UCUMUnit ucumUnit = optionalUCUMUnit.get();
-            String remainingTextBeforeUCUMUnitMaybeContainingAPrefix = textMaybeWithUCUMUnit.substring(0,
-                                                                                                       textMaybeWithUCUMUnit.length() - partialText.length()
-            );
-            if(remainingTextBeforeUCUMUnitMaybeContainingAPrefix.isEmpty()) {
-                // the matching UCUM unit took up the entire string, there's nothing left to match
-                return new SuccessNoPrefixUnit(ucumUnit);
-            }
-            Optional<UCUMDefinition.UCUMPrefix> optionalUCUMPrefix = registry.getPrefix(
-                    remainingTextBeforeUCUMUnitMaybeContainingAPrefix);
-            if(optionalUCUMPrefix.isPresent()) {
-                UCUMDefinition.UCUMPrefix ucumPrefix = optionalUCUMPrefix.get();
-                return new SuccessPrefixUnit(ucumPrefix, ucumUnit);
-            } else {
-                // there is SOMETHING before the matched unit, but it's not a valid prefix
-                return new InvalidPrefix(remainingTextBeforeUCUMUnitMaybeContainingAPrefix);
-            }
+    private static FailureResult computeFailureResult(String textMaybeWithUCUMUnit, String partialText, UCUMRegistry registry) {
+        if(registry.getUCUMUnit(partialText).isPresent()) {
+            // there is SOMETHING before the matched unit, but it's not a valid prefix
+            return new InvalidPrefix(textMaybeWithUCUMUnit.substring(0, textMaybeWithUCUMUnit.length() - partialText.length()));
         } else {
             // couldn't match a unit, did not check the prefix because a unit HAS to be matched first
             return new InvalidUnit(textMaybeWithUCUMUnit);
         }
     }
 
-    private static Comparator<MatchResult> preferUnitsOverPrefixedUnits() {
-        return (o1, o2) -> {
-            if (o1 instanceof SuccessPrefixUnit && o2 instanceof SuccessNoPrefixUnit) {
-                return 1;
-            }
-            if (o1 instanceof SuccessNoPrefixUnit && o2 instanceof SuccessPrefixUnit) {
-                return -1;
-            } else {
-                return 0;
-            }
-        };
+    public static MatchResult separatePrefixFromUnit(String textMaybeWithUCUMUnit, UCUMRegistry registry) {
+        return separatePrefixFromUnit(textMaybeWithUCUMUnit, 0, textMaybeWithUCUMUnit.length(), registry);
     }
 
-    public static MatchResult separatePrefixFromUnit(String textMaybeWithUCUMUnit, UCUMRegistry registry) {
-        List<MatchResult> matchResults = IntStream.iterate(textMaybeWithUCUMUnit.length() - 1,
-                                                           i -> i >= 0,
-                                                           i -> i - 1
-                                                  )
-                                                  .mapToObj(textMaybeWithUCUMUnit::substring)
-                                                  .map(string -> computeMatchResult(textMaybeWithUCUMUnit,
-                                                                                    string,
-                                                                                    registry
-                                                  ))
-                                                  .toList();
-        return matchResults.stream()
-                           .filter(matchResult -> matchResult instanceof SuccessResult)
-                .sorted(preferUnitsOverPrefixedUnits())
-                           .findFirst()
-                           .orElse(new InvalidResults(matchResults.stream()
-                                   .distinct()
-                                                                  .filter(matchResult -> matchResult instanceof FailureResult)
-                                                                  .map(FailureResult.class::cast)
-                                                                  .toList())
-                           );
+    /**
+     * Separates the prefix from the unit in the given range of the text. Unprefixed units are preferred, i.e. "cd" is
+     * candela and not centi day.
+     * The successful case is resolved by the precompiled trie in the {@link UCUMRegistry} and does not allocate.
+     * Only if that fails, every suffix is looked at again to collect the reasons.
+     */
+    public static MatchResult separatePrefixFromUnit(CharSequence text, int start, int end, UCUMRegistry registry) {
+        SuccessResult successResult = registry.matchPrefixAndUnit(text, start, end);
+        if(successResult != null) {
+            return successResult;
+        }
+        String textMaybeWithUCUMUnit = text.subSequence(start, end).toString();
+        List<FailureResult> failureResults = new ArrayList<>();
+        for(int i = textMaybeWithUCUMUnit.length() - 1; i >= 0; i--) {
+            FailureResult failureResult = computeFailureResult(textMaybeWithUCUMUnit, textMaybeWithUCUMUnit.substring(i), registry);
+            if(!failureResults.contains(failureResult)) {
+                failureResults.add(failureResult);
+            }
+        }
+        return new InvalidResults(List.copyOf(failureResults));
     }
 
     // TODO Rework this when proper error handling/correction suggestion is implemented
     public sealed interface MatchResult {}
 
-    sealed interface SuccessResult extends MatchResult {}
+    public sealed interface SuccessResult extends MatchResult {}
 
     public sealed interface FailureResult extends MatchResult {
         String failedText();
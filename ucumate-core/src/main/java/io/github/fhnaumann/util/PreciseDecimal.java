@@ -1,6 +1,7 @@
 package io.github.fhnaumann.util;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.Objects;
@@ -49,8 +50,21 @@ public class PreciseDecimal {
     private static final int DEFAUlT_UNLIMITED_PRECISION = 50;
     private static  int unlimitedPrecision = DEFAUlT_UNLIMITED_PRECISION;
 
-    // The underlying BigDecimal value.
-    private final BigDecimal value;
+    // Marks that the value does not fit into compactValue.
+    private static final long INFLATED = Long.MIN_VALUE;
+    private static final int MAX_COMPACT_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = powersOfTen();
+    // 10^0 to 10^127 for BigIntegers, which covers all prefixes, exponents and the digits of the unlimited precision.
+    private static final BigInteger[] BIG_POWERS_OF_TEN = bigPowersOfTen(128);
+    // Returned by powerOfTenExponent() if the value is not a positive power of ten.
+    private static final int NO_POWER_OF_TEN = Integer.MIN_VALUE;
+
+    // The value as an unscaled long and its scale, if the unscaled value has at most 18 digits. Otherwise INFLATED.
+    // Almost all factors are compact and their arithmetic only allocates the PreciseDecimal itself.
+    private final long compactValue;
+    private final int compactScale;
+    // The underlying BigDecimal value. Created on first use for compact values.
+    private BigDecimal value;
     // Flag: if true the input was given with a decimal point (i.e. has limited precision)
     private final boolean limited;
     // For numbers with limited precision, the number of significant digits (as parsed from the input).
@@ -91,6 +105,8 @@ public class PreciseDecimal {
             s = "0"; // If removing leading 0s results in an empty string, then that means it was exactly the number 0
         }
         this.value = new BigDecimal(s);
+        this.compactValue = compactValueOf(value);
+        this.compactScale = value.scale();
         if(!limited) {
             this.limited = false;
             this.precision = -1;
@@ -211,20 +227,65 @@ public class PreciseDecimal {
         return Math.max(0, count);
     }
 
+    /**
+     * Constructs a new exact (unlimited) PreciseDecimal. This is the same as <code>new PreciseDecimal(value.toPlainString())</code>
+     * without going through a String.
+     *
+     * @param value the exact value.
+     */
+    public PreciseDecimal(BigDecimal value) {
+        // a plain string never has a negative scale
+        this(value.scale() < 0 ? value.setScale(0) : value, false, -1, -1);
+    }
+
     // Private constructor for internal operations.
     // Callers must provide the value, a flag whether it is limited, and (if limited) its precision and scale.
     private PreciseDecimal(BigDecimal value, boolean limited, int precision, int scale) {
         this.value = value;
+        this.compactValue = compactValueOf(value);
+        this.compactScale = value.scale();
         this.limited = limited;
         this.precision = precision;
         this.scale = scale;
     }
 
+    // Same as above for an unscaled long value and its scale.
+    private PreciseDecimal(long unscaledValue, int unscaledScale, boolean limited, int precision, int scale) {
+        if(digits(unscaledValue) > MAX_COMPACT_DIGITS) {
+            this.value = BigDecimal.valueOf(unscaledValue, unscaledScale);
+            this.compactValue = INFLATED;
+        }
+        else {
+            this.compactValue = unscaledValue;
+        }
+        this.compactScale = unscaledScale;
+        this.limited = limited;
+        this.precision = precision;
+        this.scale = scale;
+    }
+
+    private static long compactValueOf(BigDecimal value) {
+        if(value.precision() > MAX_COMPACT_DIGITS) {
+            return INFLATED;
+        }
+        return value.scaleByPowerOfTen(value.scale()).longValue();
+    }
+
     /**
      * Returns the underlying BigDecimal value.
      */
     public BigDecimal getValue() {
-        return value;
+        BigDecimal bigDecimal = value;
+        if(bigDecimal == null) {
+            // a benign race, every thread creates an equal BigDecimal
+            bigDecimal = BigDecimal.valueOf(compactValue, compactScale);
+            value = bigDecimal;
+        }
+        return bigDecimal;
+    }
+
+    private boolean isCompact() {
+        return compactValue != INFLATED;
     }
 
     /**
@@ -276,11 +337,17 @@ public class PreciseDecimal {
             resultLimited = false;
             newScale = 0;
         }
-        BigDecimal sum = this.value.add(other.value);
+        if(this.isCompact() && other.isCompact()) {
+            PreciseDecimal sum = addCompact(this.compactValue, this.compactScale, other.compactValue, other.compactScale, resultLimited, newScale);
+            if(sum != null) {
+                return sum;
+            }
+        }
+        BigDecimal sum = this.getValue().add(other.getValue());
         if(resultLimited) {
             // Round to the newScale.
             BigDecimal rounded = sum.setScale(newScale, RoundingMode.HALF_UP);
-            int newPrecision = computePrecision(rounded.toPlainString());
+            int newPrecision = computePrecision(rounded);
             return new PreciseDecimal(rounded, true, newPrecision, newScale);
         } else {
             return new PreciseDecimal(sum, false, 0, 0);
@@ -312,10 +379,16 @@ public class PreciseDecimal {
             resultLimited = false;
             newScale = 0;
         }
-        BigDecimal diff = this.value.subtract(other.value);
+        if(this.isCompact() && other.isCompact()) {
+            PreciseDecimal diff = addCompact(this.compactValue, this.compactScale, -other.compactValue, other.compactScale, resultLimited, newScale);
+            if(diff != null) {
+                return diff;
+            }
+        }
+        BigDecimal diff = this.getValue().subtract(other.getValue());
         if(resultLimited) {
             BigDecimal rounded = diff.setScale(newScale, RoundingMode.HALF_UP);
-            int newPrecision = computePrecision(rounded.toPlainString());
+            int newPrecision = computePrecision(rounded);
             return new PreciseDecimal(rounded, true, newPrecision, newScale);
         } else {
             return new PreciseDecimal(diff, false, 0, 0);
@@ -334,14 +407,24 @@ public class PreciseDecimal {
      */
     public PreciseDecimal multiply(PreciseDecimal other) {
         int effectivePrecision = Math.min(getEffectivePrecision(this), getEffectivePrecision(other));
+        if(this.isCompact() && other.isCompact()) {
+            PreciseDecimal product = multiplyCompact(other, effectivePrecision);
+            if(product != null) {
+                return product;
+            }
+        }
         if(effectivePrecision == Integer.MAX_VALUE) {
             // Both operands are unlimited.
-            BigDecimal product = this.value.multiply(other.value);
+            PreciseDecimal shifted = multiplyPowerOfTen(other);
+            if(shifted != null) {
+                return shifted;
+            }
+            BigDecimal product = this.getValue().multiply(other.getValue());
             return unlimitedPrecision(product);
             //return new PreciseDecimal(product, false, -1, -1);
         } else {
             MathContext mc = new MathContext(effectivePrecision, RoundingMode.HALF_UP);
-            BigDecimal product = this.value.multiply(other.value, mc);
+            BigDecimal product = this.getValue().multiply(other.getValue(), mc);
             // Use the resulting scale from BigDecimal.
             int newScale = product.scale();
             return new PreciseDecimal(product, true, effectivePrecision, newScale);
@@ -362,7 +445,7 @@ public class PreciseDecimal {
      *         if division by zero occurs.
      */
     public PreciseDecimal divide(PreciseDecimal other) {
-        if(other.value.compareTo(BigDecimal.ZERO) == 0) {
+        if(other.signum() == 0) {
             throw new ArithmeticException("Division by zero");
         }
         if(this.equals(other)) {
@@ -372,39 +455,274 @@ public class PreciseDecimal {
         int effectivePrecision = Math.min(getEffectivePrecision(this), getEffectivePrecision(other));
         if(effectivePrecision == Integer.MAX_VALUE) {
             // Both operands are unlimited; choose a default scale.
-
-            BigDecimal quotient = this.value.divide(other.value, unlimitedPrecision, RoundingMode.HALF_UP);
+            if(this.isCompact() && other.isCompact() && this.compactValue % other.compactValue == 0
+                && (long) this.compactScale - other.compactScale <= unlimitedPrecision) {
+                // the quotient is exact, rounding it to the default scale would not change it
+                return unlimitedPrecision(this.compactValue / other.compactValue, this.compactScale - other.compactScale);
+            }
+            int exponent = other.powerOfTenExponent();
+            // a quotient with more fraction digits than the default scale is rounded as usual
+            if(exponent != NO_POWER_OF_TEN && (long) this.compactScale + exponent <= unlimitedPrecision) {
+                PreciseDecimal shifted = this.scaleByPowerOfTen(-(long) exponent);
+                if(shifted != null && shifted.compactScale <= unlimitedPrecision) {
+                    // the quotient is exact, rounding it to the default scale would not change it
+                    return shifted;
+                }
+            }
+            BigDecimal quotient = this.getValue().divide(other.getValue(), unlimitedPrecision, RoundingMode.HALF_UP);
             return unlimitedPrecision(quotient);
         } else {
             MathContext mc = new MathContext(effectivePrecision, RoundingMode.HALF_UP);
-            BigDecimal quotient = this.value.divide(other.value, mc);
+            BigDecimal quotient = this.getValue().divide(other.getValue(), mc);
             int newScale = quotient.scale();
             return new PreciseDecimal(quotient, true, effectivePrecision, newScale);
         }
     }
 
+    /*
+    Unlimited results never have trailing zeros in their fraction and never a negative scale, which is the same as
+    printing them plainly, cutting off the zeros and parsing them again.
+     */
     private static PreciseDecimal unlimitedPrecision(BigDecimal bigDecimalResult) {
-        String s = bigDecimalResult.toPlainString();
-        String[] split = s.split("\\.");
-        if(!s.contains(".") || !s.endsWith("0")) {
-            return new PreciseDecimal(s, false);
-        }
-        String decimalPart = split[1];
-        int splitIdx = decimalPart.length();
-        for(int i=decimalPart.length()-1; i>=0; i--) {
-            if(decimalPart.charAt(i) != '0') {
-                break;
+        return new PreciseDecimal(stripTrailingFractionZeros(bigDecimalResult));
+    }
+
+    // Same as above for an unscaled long value and its scale.
+    private static PreciseDecimal unlimitedPrecision(long unscaledValue, int unscaledScale) {
+        if(unscaledValue == 0) {
+            return new PreciseDecimal(0L, 0, false, -1, -1);
+        }
+        while(unscaledScale > 0 && unscaledValue % 10 == 0) {
+            unscaledValue /= 10;
+            unscaledScale--;
+        }
+        if(unscaledScale < 0) {
+            if(-unscaledScale > MAX_COMPACT_DIGITS) {
+                return new PreciseDecimal(BigDecimal.valueOf(unscaledValue, unscaledScale));
+            }
+            try {
+                unscaledValue = Math.multiplyExact(unscaledValue, POWERS_OF_TEN[-unscaledScale]);
+                unscaledScale = 0;
+            } catch (ArithmeticException e) {
+                return new PreciseDecimal(BigDecimal.valueOf(unscaledValue, unscaledScale));
+            }
+        }
+        return new PreciseDecimal(unscaledValue, unscaledScale, false, -1, -1);
+    }
+
+    /*
+    Prefixes (and most of the other factors) are powers of ten. Multiplying an unlimited value with one only shifts its
+    scale, which saves multiplying the unscaled BigIntegers. Returns null if neither operand is a power of ten.
+     */
+    private PreciseDecimal multiplyPowerOfTen(PreciseDecimal other) {
+        int exponent = other.powerOfTenExponent();
+        if(exponent != NO_POWER_OF_TEN) {
+            return this.scaleByPowerOfTen(exponent);
+        }
+        exponent = this.powerOfTenExponent();
+        if(exponent != NO_POWER_OF_TEN) {
+            return other.scaleByPowerOfTen(exponent);
+        }
+        return null;
+    }
+
+    /*
+    The unlimited value of this * 10^exponent, the same as multiplying it with the power of ten. Returns null if the
+    scale would overflow.
+     */
+    private PreciseDecimal scaleByPowerOfTen(long exponent) {
+        long shiftedScale = compactScale - exponent;
+        if(exponent != (int) exponent || shiftedScale != (int) shiftedScale) {
+            return null;
+        }
+        if(isCompact()) {
+            return unlimitedPrecision(compactValue, (int) shiftedScale);
+        }
+        return unlimitedPrecision(value.scaleByPowerOfTen((int) exponent));
+    }
+
+    /*
+    Returns e if the value is exactly 10^e (i.e. every prefix or 10*e), otherwise NO_POWER_OF_TEN.
+     */
+    private int powerOfTenExponent() {
+        int unscaledDigits;
+        if(isCompact()) {
+            if(compactValue <= 0) {
+                return NO_POWER_OF_TEN;
+            }
+            unscaledDigits = digits(compactValue);
+            if(compactValue != POWERS_OF_TEN[unscaledDigits - 1]) {
+                return NO_POWER_OF_TEN;
             }
-            splitIdx--;
         }
-        if(splitIdx >= 0) {
-            s = s.substring(0, split[0].length() + 1 + splitIdx);
-            // If it ends in all 0s then the last symbol will be the dot, remove it then
-            if(s.endsWith(".")) {
-                s = s.substring(0, s.length()-1);
+        else {
+            BigInteger unscaled = value.unscaledValue();
+            unscaledDigits = value.precision();
+            // 10^k has exactly k trailing zero bits, which rules out almost everything else without dividing
+            if(unscaled.signum() <= 0 || unscaled.getLowestSetBit() != unscaledDigits - 1 || !unscaled.equals(bigPowerOfTen(unscaledDigits - 1))) {
+                return NO_POWER_OF_TEN;
             }
         }
-        return new PreciseDecimal(s, false);
+        long exponent = (long) unscaledDigits - 1 - compactScale;
+        return exponent == (int) exponent && exponent != NO_POWER_OF_TEN ? (int) exponent : NO_POWER_OF_TEN;
+    }
+
+    private static BigInteger bigPowerOfTen(int exponent) {
+        return exponent < BIG_POWERS_OF_TEN.length ? BIG_POWERS_OF_TEN[exponent] : BigInteger.TEN.pow(exponent);
+    }
+
+    /*
+    The same as BigDecimal#multiply (with a MathContext for limited operands), but on the unscaled longs. Returns null
+    if the exact product does not fit into a long.
+     */
+    private PreciseDecimal multiplyCompact(PreciseDecimal other, int effectivePrecision) {
+        long product;
+        try {
+            product = Math.multiplyExact(this.compactValue, other.compactValue);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        int productScale = this.compactScale + other.compactScale;
+        if(effectivePrecision == Integer.MAX_VALUE) {
+            return unlimitedPrecision(product, productScale);
+        }
+        // MathContext rounding: drop digits until the precision is reached, a carry may add one more digit
+        int productDigits = digits(product);
+        while(effectivePrecision > 0 && productDigits > effectivePrecision) {
+            int drop = productDigits - effectivePrecision;
+            product = divideHalfUp(product, POWERS_OF_TEN[drop]);
+            productScale -= drop;
+            productDigits = digits(product);
+        }
+        return new PreciseDecimal(product, productScale, true, effectivePrecision, productScale);
+    }
+
+    /*
+    The same as BigDecimal#add (and BigDecimal#setScale with HALF_UP for limited results), but on the unscaled longs.
+    Returns null if an intermediate value does not fit into a long.
+     */
+    private static PreciseDecimal addCompact(long left, int leftScale, long right, int rightScale, boolean resultLimited, int newScale) {
+        int sumScale = Math.max(leftScale, rightScale);
+        long sum;
+        try {
+            sum = Math.addExact(rescale(left, sumScale - leftScale), rescale(right, sumScale - rightScale));
+            if(!resultLimited) {
+                return new PreciseDecimal(sum, sumScale, false, 0, 0);
+            }
+            if(newScale >= sumScale) {
+                sum = rescale(sum, newScale - sumScale);
+            }
+            else if(sumScale - newScale <= MAX_COMPACT_DIGITS) {
+                sum = divideHalfUp(sum, POWERS_OF_TEN[sumScale - newScale]);
+            }
+            else {
+                return null;
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        int integerDigits = sum == 0 ? 1 : Math.max(1, digits(sum) - newScale);
+        return new PreciseDecimal(sum, newScale, true, integerDigits + Math.max(newScale, 0), newScale);
+    }
+
+    private static long rescale(long unscaledValue, int additionalDigits) {
+        if(additionalDigits == 0) {
+            return unscaledValue;
+        }
+        if(additionalDigits > MAX_COMPACT_DIGITS) {
+            if(unscaledValue == 0) {
+                return 0;
+            }
+            throw new ArithmeticException("long overflow");
+        }
+        return Math.multiplyExact(unscaledValue, POWERS_OF_TEN[additionalDigits]);
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if(remainder >= divisor - remainder) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    // The number of decimal digits of the unscaled value, 0 has one digit.
+    private static int digits(long unscaledValue) {
+        if(unscaledValue == Long.MIN_VALUE) {
+            return 19;
+        }
+        long abs = Math.abs(unscaledValue);
+        int digits = 1;
+        while(digits <= MAX_COMPACT_DIGITS && abs >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static BigInteger[] bigPowersOfTen(int count) {
+        BigInteger[] powers = new BigInteger[count];
+        powers[0] = BigInteger.ONE;
+        for(int i = 1; i < powers.length; i++) {
+            powers[i] = powers[i - 1].multiply(BigInteger.TEN);
+        }
+        return powers;
+    }
+
+    private static long[] powersOfTen() {
+        long[] powers = new long[MAX_COMPACT_DIGITS + 1];
+        powers[0] = 1;
+        for(int i = 1; i < powers.length; i++) {
+            powers[i] = powers[i - 1] * 10;
+        }
+        return powers;
+    }
+
+    private int signum() {
+        return isCompact() ? Long.signum(compactValue) : value.signum();
+    }
+
+    /*
+    BigDecimal#stripTrailingZeros divides by 10 once per zero, which is only fast while the unscaled value fits into a
+    long. Results of divisions are padded to the unlimited precision and don't. 10^k can only divide the unscaled value
+    if 2^k does, so the lowest set bit bounds the number of zeros and the actual number is found with a few divisions.
+     */
+    private static BigDecimal stripTrailingFractionZeros(BigDecimal value) {
+        if(value.scale() <= 0) {
+            return value;
+        }
+        if(value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        if(value.precision() <= 18) {
+            BigDecimal stripped = value.stripTrailingZeros();
+            return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        int max = Math.min(value.scale(), unscaled.getLowestSetBit());
+        if(max == 0) {
+            return value;
+        }
+        int zeros;
+        if(unscaled.mod(bigPowerOfTen(max)).signum() == 0) {
+            zeros = max;
+        }
+        else {
+            // lo zeros are known to be there, hi zeros are not
+            int lo = 0;
+            int hi = max;
+            while(hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if(unscaled.mod(bigPowerOfTen(mid)).signum() == 0) {
+                    lo = mid;
+                }
+                else {
+                    hi = mid;
+                }
+            }
+            zeros = lo;
+        }
+        return zeros == 0 ? value : value.setScale(value.scale() - zeros, RoundingMode.UNNECESSARY);
     }
 
     /**
@@ -417,10 +735,10 @@ public class PreciseDecimal {
      */
     public PreciseDecimal pow(int exponent) {
         if (exponent == 0) {
-            return new PreciseDecimal("1");
+            return ONE;
         }
 
-        if (this.value.compareTo(BigDecimal.ZERO) == 0 && exponent < 0) {
+        if (this.signum() == 0 && exponent < 0) {
             throw new ArithmeticException("0 cannot be raised to a negative power");
         }
 
@@ -428,12 +746,18 @@ public class PreciseDecimal {
         int resultPrecision = limited ? this.precision * Math.abs(exponent) : 0;
 
         // If negative exponent, use MathContext to limit precision for division
+        if (exponent < 0 && !limited) {
+            PreciseDecimal powered = reciprocalPowerOfTen(-exponent);
+            if(powered != null) {
+                return powered;
+            }
+        }
         if (exponent < 0) {
             MathContext mc = limited
                              ? new MathContext(resultPrecision, RoundingMode.HALF_UP)
                              : new MathContext(unlimitedPrecision, RoundingMode.HALF_UP);
 
-            BigDecimal powered = BigDecimal.ONE.divide(this.value.pow(-exponent, mc), mc);
+            BigDecimal powered = BigDecimal.ONE.divide(this.getValue().pow(-exponent, mc), mc);
             int resultScale = powered.scale();
             return new PreciseDecimal(powered, resultLimited, resultPrecision, resultScale);
         } else {
@@ -441,12 +765,60 @@ public class PreciseDecimal {
                              ? new MathContext(resultPrecision, RoundingMode.HALF_UP)
                              : MathContext.UNLIMITED;
 
-            BigDecimal powered = this.value.pow(exponent, mc);
+            if(!limited && isCompact()) {
+                PreciseDecimal powered = powCompact(exponent);
+                if(powered != null) {
+                    return powered;
+                }
+            }
+            BigDecimal powered = this.getValue().pow(exponent, mc);
             int resultScale = limited ? this.scale * exponent : powered.scale();
             return new PreciseDecimal(powered, resultLimited, resultPrecision, resultScale);
         }
     }
 
+    /*
+    (10^e)^-n is exactly 10^(-e*n), so there is nothing to divide. BigDecimal returns it with the unscaled value 1, which
+    is kept to produce the same PreciseDecimal as before. Returns null if the value is not a power of ten.
+     */
+    private PreciseDecimal reciprocalPowerOfTen(int negatedExponent) {
+        int exponent = powerOfTenExponent();
+        if(exponent == NO_POWER_OF_TEN) {
+            return null;
+        }
+        long poweredScale = (long) exponent * negatedExponent;
+        if(poweredScale != (int) poweredScale) {
+            return null;
+        }
+        return new PreciseDecimal(1L, (int) poweredScale, false, 0, (int) poweredScale);
+    }
+
+    /*
+    The same as BigDecimal#pow for unlimited values, but on the unscaled long. Returns null if it does not fit.
+     */
+    private PreciseDecimal powCompact(int exponent) {
+        long powered = 1;
+        long base = compactValue;
+        int poweredScale;
+        try {
+            // square and multiply, base is only squared if a higher power is still needed
+            for(int remaining = exponent; ; ) {
+                if((remaining & 1) != 0) {
+                    powered = Math.multiplyExact(powered, base);
+                }
+                remaining >>>= 1;
+                if(remaining == 0) {
+                    break;
+                }
+                base = Math.multiplyExact(base, base);
+            }
+            poweredScale = Math.multiplyExact(compactScale, exponent);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return new PreciseDecimal(powered, poweredScale, false, 0, poweredScale);
+    }
+
     /**
      * Returns a string representation of this number.
      * For limited values, the output is formatted to show the same number of fractional digits (scale)
@@ -458,9 +830,9 @@ public class PreciseDecimal {
     public String toString() {
         if(limited) {
             // Ensure the number is displayed with the original (or resulting) scale.
-            return value.setScale(scale, RoundingMode.HALF_UP).toPlainString();
+            return getValue().setScale(scale, RoundingMode.HALF_UP).toPlainString();
         } else {
-            BigDecimal rounded = value.round(new MathContext(100));
+            BigDecimal rounded = getValue().round(new MathContext(100));
             return rounded.toPlainString();
             //return value.toPlainString();
         }
@@ -472,15 +844,20 @@ public class PreciseDecimal {
             return false;
         }
         PreciseDecimal that = (PreciseDecimal) o;
-        return limited == that.limited && precision == that.precision && scale == that.scale && Objects.equals(
-                value,
-                that.value
-        );
+        if(limited != that.limited || precision != that.precision || scale != that.scale) {
+            return false;
+        }
+        // a value is compact exactly if its unscaled value has at most 18 digits, equal values have the same form
+        if(this.isCompact() || that.isCompact()) {
+            return compactValue == that.compactValue && compactScale == that.compactScale;
+        }
+        return value.equals(that.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value, limited, precision, scale);
+        int valueHash = isCompact() ? 31 * Long.hashCode(compactValue) + compactScale : value.hashCode();
+        return Objects.hash(valueHash, limited, precision, scale);
     }
 
     /**
@@ -492,24 +869,18 @@ public class PreciseDecimal {
     }
 
     /**
-     * Helper: computes a simple estimate of the number of significant digits
-     * from a plain string representation.
-     * This implementation removes any minus sign and decimal point, and returns the length.
+     * Helper: computes a simple estimate of the number of significant digits.
+     * This is the number of digits in the plain string representation (without the minus sign and decimal point).
      *
-     * @param s
-     *         the plain string (e.g. "2.00" or "0.001")
+     * @param value
+     *         the value (e.g. 2.00 or 0.001)
      *
      * @return the number of significant digits.
      */
-    private static int computePrecision(String s) {
-        s = s.trim();
-        if(s.startsWith("-")) {
-            s = s.substring(1);
-        }
-        if(s.contains(".")) {
-            s = s.replace(".", "");
-        }
-        return s.length();
+    private static int computePrecision(BigDecimal value) {
+        // numbers below 1 are printed with a leading 0, numbers with a negative scale are printed with trailing 0s
+        int integerDigits = value.signum() == 0 ? 1 : Math.max(1, value.precision() - value.scale());
+        return integerDigits + Math.max(value.scale(), 0);
     }
 
     public static PreciseDecimal fromDoubleFixedScale(double value) {
@@ -519,7 +890,8 @@ public class PreciseDecimal {
         }
         else {
             BigDecimal bd = BigDecimal.valueOf(value).setScale(limitedScale, RoundingMode.HALF_UP);
-            return new PreciseDecimal(bd.toPlainString(), true);
+            // same precision and scale as parsing bd.toPlainString() as a limited number
+            return new PreciseDecimal(bd, true, bd.precision(), bd.scale());
             //return new PreciseDecimal(bd, true, computePrecision(bd.toPlainString()), 4); // fixed sigfigs & scale
         }
     }
@@ -0,0 +1,97 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Trie over every unit code and every prefix+unit code combination of the ucum-essence. Each complete code stores the
+ * already resolved {@link ParseUtil.SuccessNoPrefixUnit} or {@link ParseUtil.SuccessPrefixUnit}, so resolving an atom is
+ * a single left-to-right walk without any allocation.
+ * <p>
+ * If a code can be split in multiple ways, the same result as in the suffix enumeration of
+ * {@link ParseUtil#separatePrefixFromUnit(String, UCUMRegistry)} is stored: An unprefixed unit always wins, otherwise
+ * the split with the longest prefix (i.e. the shortest unit) wins.
+ *
+ * @author Felix Naumann
+ */
+class PrefixUnitTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+
+    private static class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private ParseUtil.SuccessResult result;
+        private int prefixLength;
+
+        private Node child(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            return idx >= 0 ? children[idx] : null;
+        }
+
+        private Node childOrCreate(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            if(idx >= 0) {
+                return children[idx];
+            }
+            int insertAt = -idx - 1;
+            Node node = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = node;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+
+    static PrefixUnitTrie build(Collection<UCUMDefinition.UCUMPrefix> prefixes, Collection<? extends UCUMDefinition.UCUMUnit> units) {
+        PrefixUnitTrie trie = new PrefixUnitTrie();
+        for(UCUMDefinition.UCUMUnit unit : units) {
+            trie.insert(unit.code(), new ParseUtil.SuccessNoPrefixUnit(unit), 0);
+        }
+        for(UCUMDefinition.UCUMPrefix prefix : prefixes) {
+            for(UCUMDefinition.UCUMUnit unit : units) {
+                trie.insert(prefix.code() + unit.code(), new ParseUtil.SuccessPrefixUnit(prefix, unit), prefix.code().length());
+            }
+        }
+        return trie;
+    }
+
+    private void insert(String code, ParseUtil.SuccessResult result, int prefixLength) {
+        Node node = root;
+        for(int i = 0; i < code.length(); i++) {
+            node = node.childOrCreate(code.charAt(i));
+        }
+        boolean replace = switch(node.result) {
+            case null -> true;
+            case ParseUtil.SuccessNoPrefixUnit noPrefixUnit -> false;
+            case ParseUtil.SuccessPrefixUnit prefixUnit -> prefixLength == 0 || prefixLength > node.prefixLength;
+        };
+        if(replace) {
+            node.result = result;
+            node.prefixLength = prefixLength;
+        }
+    }
+
+    /**
+     * @return The resolved unit (and prefix) or null if the text is not a valid (prefixed) unit.
+     */
+    ParseUtil.SuccessResult match(CharSequence text, int start, int end) {
+        Node node = root;
+        for(int i = start; i < end && node != null; i++) {
+            node = node.child(text.charAt(i));
+        }
+        return node != null ? node.result : null;
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.fhnaumann.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * An exact fraction of two integers that is always reduced and has a positive denominator. Every decimal (the values
+ * and prefixes from the UCUM essence) is a fraction with a power of ten as its denominator, so products, quotients and
+ * integer powers of them never have to be rounded. They are only rounded once when converted back with
+ * {@link #toPreciseDecimal()}.
+ *
+ * @author Felix Naumann
+ */
+public final class Rational {
+
+    public static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    /*
+    Expects the fraction to be reduced already.
+     */
+    private Rational(BigInteger numerator, BigInteger denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    public static Rational of(long value) {
+        return value == 1 ? ONE : new Rational(BigInteger.valueOf(value), BigInteger.ONE);
+    }
+
+    public static Rational of(BigDecimal value) {
+        if(value.scale() <= 0) {
+            return new Rational(value.unscaledValue().multiply(BigInteger.TEN.pow(-value.scale())), BigInteger.ONE);
+        }
+        return reduced(value.unscaledValue(), BigInteger.TEN.pow(value.scale()));
+    }
+
+    /**
+     * @throws IllegalArgumentException If the value has a limited precision, which would be lost.
+     */
+    public static Rational of(PreciseDecimal value) {
+        if(value.isLimited()) {
+            throw new IllegalArgumentException("%s has a limited precision and can't be represented exactly.".formatted(value));
+        }
+        return of(value.getValue());
+    }
+
+    private static Rational reduced(BigInteger numerator, BigInteger denominator) {
+        if(denominator.signum() == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if(denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if(!gcd.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    public BigInteger getNumerator() {
+        return numerator;
+    }
+
+    public BigInteger getDenominator() {
+        return denominator;
+    }
+
+    public Rational multiply(Rational other) {
+        if(numerator.signum() == 0 || other.numerator.signum() == 0) {
+            return new Rational(BigInteger.ZERO, BigInteger.ONE);
+        }
+        // reduce crosswise first, both fractions are already reduced on their own
+        BigInteger gcd1 = numerator.gcd(other.denominator);
+        BigInteger gcd2 = other.numerator.gcd(denominator);
+        return new Rational(
+                numerator.divide(gcd1).multiply(other.numerator.divide(gcd2)),
+                denominator.divide(gcd2).multiply(other.denominator.divide(gcd1))
+        );
+    }
+
+    /**
+     * @throws ArithmeticException If <code>other</code> is zero.
+     */
+    public Rational divide(Rational other) {
+        return multiply(other.reciprocal());
+    }
+
+    /**
+     * @throws ArithmeticException If this is zero.
+     */
+    public Rational reciprocal() {
+        return reduced(denominator, numerator);
+    }
+
+    /**
+     * @throws ArithmeticException If this is zero and the exponent is negative.
+     */
+    public Rational pow(int exponent) {
+        if(exponent < 0) {
+            return reciprocal().pow(-exponent);
+        }
+        // the powers of coprime integers are still coprime
+        return new Rational(numerator.pow(exponent), denominator.pow(exponent));
+    }
+
+    /**
+     * Rounds the fraction with a single division to the unlimited precision of {@link PreciseDecimal}.
+     */
+    public PreciseDecimal toPreciseDecimal() {
+        PreciseDecimal numeratorDecimal = new PreciseDecimal(new BigDecimal(numerator));
+        if(denominator.equals(BigInteger.ONE)) {
+            return numeratorDecimal;
+        }
+        return numeratorDecimal.divide(new PreciseDecimal(new BigDecimal(denominator)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof Rational rational)) {
+            return false;
+        }
+        return numerator.equals(rational.numerator) && denominator.equals(rational.denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numerator, denominator);
+    }
+
+    @Override
+    public String toString() {
+        return denominator.equals(BigInteger.ONE) ? numerator.toString() : numerator + "/" + denominator;
+    }
+}
@@ -0,0 +1,422 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.model.UCUMExpression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of the UCUM essence together with the parsed source definitions of the defined units.
+ * <p>
+ * The snapshot is generated at build time (see {@link #main(String[])}) and is loaded by the {@link UCUMRegistry}
+ * instead of parsing ucum-essence.xml with Jackson and every unit definition with the parser on startup. It stores a
+ * checksum of the XML it was generated from. If the ucum-essence.xml on the classpath does not match (i.e. a custom
+ * essence file is used), the snapshot is ignored and the XML is parsed as before.
+ * <p>
+ * Layout: A header (magic, format version, XML checksum), a table of all strings (each string is referenced by its
+ * index and only exists once after loading), the prefixes, base units and defined units and finally the source
+ * definitions as pre-order encoded terms.
+ *
+ * @author Felix Naumann
+ */
+public class RegistrySnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistrySnapshot.class);
+
+    public static final String RESOURCE_NAME = "ucum-essence.bin";
+
+    private static final int MAGIC = 0x55434D31; // "UCM1"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte DERIVED = 0, DIMLESS = 1, SPECIAL = 2, ARBITRARY = 3;
+    private static final byte COMPONENT_NO_EXP = 0, COMPONENT_EXP = 1, ANNOT = 2, PAREN = 3, BINARY_MUL = 4, BINARY_DIV = 5, UNARY_DIV = 6, ANNOT_ONLY = 7;
+    private static final byte INTEGER_UNIT = 0, NO_PREFIX_UNIT = 1, PREFIX_UNIT = 2;
+
+    public record Snapshot(UCUMDefinition.UCUMEssence essence, Map<String, UCUMExpression.Term> sourceDefinitions) {}
+
+    /**
+     * Generates the snapshot from the ucum-essence.xml on the classpath.
+     *
+     * @param args The path of the file that is written.
+     */
+    public static void main(String[] args) throws IOException {
+        byte[] xml;
+        try(InputStream in = Objects.requireNonNull(RegistrySnapshot.class.getClassLoader().getResourceAsStream("ucum-essence.xml"))) {
+            xml = in.readAllBytes();
+        }
+        UCUMDefinition.UCUMEssence essence = UCUMRegistry.readEssenceXML(new ByteArrayInputStream(xml));
+        UCUMRegistry registry = UCUMRegistry.getInstance();
+        Map<String, UCUMExpression.Term> sourceDefinitions = new LinkedHashMap<>();
+        for(UCUMDefinition.DefinedUnit definedUnit : essence.definedUnits()) {
+            try {
+                sourceDefinitions.put(definedUnit.code(), registry.getDefinedUnitSourceDefinition(registry.getDefinedUnit(definedUnit.code()).orElseThrow(), false));
+            } catch (RuntimeException e) {
+                log.warn("Could not resolve the definition of {}, it is left out of the snapshot and parsed again when the registry is created.", definedUnit.code());
+            }
+        }
+        Path target = Path.of(args[0]);
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            write(checksum(xml), essence, sourceDefinitions, out);
+        }
+    }
+
+    /**
+     * Loads the snapshot from the classpath if it exists and belongs to the given XML.
+     *
+     * @return The snapshot or null if the XML has to be parsed.
+     */
+    static Snapshot load(byte[] xml) {
+        try(InputStream in = RegistrySnapshot.class.getClassLoader().getResourceAsStream(RESOURCE_NAME)) {
+            if(in == null) {
+                log.debug("No registry snapshot found on the classpath.");
+                return null;
+            }
+            return read(checksum(xml), new BufferedInputStream(in));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read the registry snapshot, falling back to ucum-essence.xml.", e);
+            return null;
+        }
+    }
+
+    static long checksum(byte[] xml) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(xml);
+        return crc32.getValue();
+    }
+
+    static void write(long checksum, UCUMDefinition.UCUMEssence essence, Map<String, UCUMExpression.Term> sourceDefinitions, OutputStream outputStream) throws IOException {
+        Writer writer = new Writer();
+        writer.essence(essence);
+        writer.out.writeInt(sourceDefinitions.size());
+        for(Map.Entry<String, UCUMExpression.Term> entry : sourceDefinitions.entrySet()) {
+            writer.string(entry.getKey());
+            writer.term(entry.getValue());
+        }
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(checksum);
+        out.writeInt(writer.strings.size());
+        for(String string : writer.strings.keySet()) {
+            out.writeUTF(string);
+        }
+        writer.body.writeTo(out);
+        out.flush();
+    }
+
+    static Snapshot read(long expectedChecksum, InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            log.warn("The registry snapshot has an unknown format, falling back to ucum-essence.xml.");
+            return null;
+        }
+        if(in.readLong() != expectedChecksum) {
+            log.info("The registry snapshot does not belong to the ucum-essence.xml on the classpath, falling back to parsing it.");
+            return null;
+        }
+        String[] strings = new String[in.readInt()];
+        for(int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        Reader reader = new Reader(in, strings);
+        UCUMDefinition.UCUMEssence essence = reader.essence();
+        int count = in.readInt();
+        Map<String, UCUMExpression.Term> sourceDefinitions = new HashMap<>(count * 2);
+        for(int i = 0; i < count; i++) {
+            sourceDefinitions.put(reader.string(), reader.term());
+        }
+        return new Snapshot(essence, sourceDefinitions);
+    }
+
+    private static class Writer {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        private void string(String string) throws IOException {
+            out.writeInt(string == null ? -1 : strings.computeIfAbsent(string, s -> strings.size()));
+        }
+
+        private void strings(Collection<String> collection) throws IOException {
+            out.writeInt(collection == null ? -1 : collection.size());
+            if(collection != null) {
+                for(String string : collection) {
+                    string(string);
+                }
+            }
+        }
+
+        private void decimal(PreciseDecimal decimal) throws IOException {
+            string(decimal == null ? null : decimal.getValue().toString());
+        }
+
+        private void essence(UCUMDefinition.UCUMEssence essence) throws IOException {
+            string(essence.version());
+            string(essence.revision());
+            string(essence.revisionDate());
+            out.writeInt(essence.prefixes().size());
+            for(UCUMDefinition.UCUMPrefix prefix : essence.prefixes()) {
+                string(prefix.code());
+                string(prefix.codeCaseInsensitive());
+                strings(prefix.names());
+                string(prefix.printSymbol());
+                value(prefix.value());
+            }
+            out.writeInt(essence.baseUnits().size());
+            for(UCUMDefinition.BaseUnit baseUnit : essence.baseUnits()) {
+                string(baseUnit.code());
+                string(baseUnit.codeCaseInsensitive());
+                string(baseUnit.dim());
+                strings(baseUnit.names());
+                string(baseUnit.printSymbol());
+                string(baseUnit.property());
+            }
+            out.writeInt(essence.definedUnits().size());
+            for(UCUMDefinition.DefinedUnit definedUnit : essence.definedUnits()) {
+                String unitClass = switch(definedUnit) {
+                    case UCUMDefinition.DerivedUnit derivedUnit -> {
+                        out.writeByte(DERIVED);
+                        yield derivedUnit.unitClass();
+                    }
+                    case UCUMDefinition.DimlessUnit dimlessUnit -> {
+                        out.writeByte(DIMLESS);
+                        yield null;
+                    }
+                    case UCUMDefinition.SpecialUnit specialUnit -> {
+                        out.writeByte(SPECIAL);
+                        yield specialUnit.unitClass();
+                    }
+                    case UCUMDefinition.ArbitraryUnit arbitraryUnit -> {
+                        out.writeByte(ARBITRARY);
+                        yield arbitraryUnit.unitClass();
+                    }
+                };
+                string(definedUnit.code());
+                string(definedUnit.codeCaseInsensitive());
+                out.writeBoolean(definedUnit.isMetric());
+                string(unitClass);
+                strings(definedUnit.names());
+                string(definedUnit.printSymbol());
+                string(definedUnit.property());
+                value(definedUnit.value());
+            }
+        }
+
+        private void value(UCUMDefinition.UCUMValue value) throws IOException {
+            out.writeBoolean(value != null);
+            if(value == null) {
+                return;
+            }
+            string(value.unit());
+            string(value.unitAlt());
+            decimal(value.conversionFactor());
+            out.writeBoolean(value.function() != null);
+            if(value.function() != null) {
+                string(value.function().name());
+                decimal(value.function().value());
+                string(value.function().unit());
+            }
+        }
+
+        /*
+        Source definitions come from the parser, which only creates mixed terms. Reading always creates mixed terms
+        again, so canonical terms are rejected here instead of silently changing their type.
+         */
+        private void term(UCUMExpression.Term term) throws IOException {
+            if(term instanceof UCUMExpression.CanonicalTerm && !(term instanceof UCUMExpression.AnnotOnlyTerm)) {
+                throw new IllegalArgumentException("Only parsed (mixed) terms can be written to the snapshot, got " + term);
+            }
+            switch(term) {
+                case UCUMExpression.ComponentTerm componentTerm -> {
+                    if(componentTerm.component() instanceof UCUMExpression.ComponentExponent componentExponent) {
+                        out.writeByte(COMPONENT_EXP);
+                        unit(componentTerm.component().unit());
+                        out.writeInt(componentExponent.exponent().exponent());
+                    }
+                    else {
+                        out.writeByte(COMPONENT_NO_EXP);
+                        unit(componentTerm.component().unit());
+                    }
+                }
+                case UCUMExpression.AnnotTerm annotTerm -> {
+                    out.writeByte(ANNOT);
+                    term(annotTerm.term());
+                    string(annotTerm.annotation().annotation());
+                }
+                case UCUMExpression.ParenTerm parenTerm -> {
+                    out.writeByte(PAREN);
+                    term(parenTerm.term());
+                }
+                case UCUMExpression.BinaryTerm binaryTerm -> {
+                    out.writeByte(binaryTerm.operator() == UCUMExpression.Operator.MUL ? BINARY_MUL : BINARY_DIV);
+                    term(binaryTerm.left());
+                    term(binaryTerm.right());
+                }
+                case UCUMExpression.UnaryDivTerm unaryDivTerm -> {
+                    out.writeByte(UNARY_DIV);
+                    term(unaryDivTerm.term());
+                }
+                case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> {
+                    out.writeByte(ANNOT_ONLY);
+                    string(annotOnlyTerm.annotation().annotation());
+                }
+            }
+        }
+
+        private void unit(UCUMExpression.Unit unit) throws IOException {
+            switch(unit) {
+                case UCUMExpression.IntegerUnit integerUnit -> {
+                    out.writeByte(INTEGER_UNIT);
+                    out.writeInt(integerUnit.value());
+                }
+                case UCUMExpression.PrefixSimpleUnit prefixSimpleUnit -> {
+                    out.writeByte(PREFIX_UNIT);
+                    string(prefixSimpleUnit.prefix().code());
+                    string(prefixSimpleUnit.ucumUnit().code());
+                }
+                case UCUMExpression.NoPrefixSimpleUnit noPrefixSimpleUnit -> {
+                    out.writeByte(NO_PREFIX_UNIT);
+                    string(noPrefixSimpleUnit.ucumUnit().code());
+                }
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+        private final String[] strings;
+        private final Map<String, UCUMDefinition.UCUMPrefix> prefixes = new HashMap<>();
+        private final Map<String, UCUMDefinition.UCUMUnit> units = new HashMap<>();
+
+        private Reader(DataInputStream in, String[] strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        private String string() throws IOException {
+            int index = in.readInt();
+            return index == -1 ? null : strings[index];
+        }
+
+        private List<String> strings() throws IOException {
+            int size = in.readInt();
+            if(size == -1) {
+                return null;
+            }
+            List<String> list = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) {
+                list.add(string());
+            }
+            return list;
+        }
+
+        private PreciseDecimal decimal() throws IOException {
+            String text = string();
+            return text == null ? null : new PreciseDecimal(text, false);
+        }
+
+        private UCUMDefinition.UCUMEssence essence() throws IOException {
+            String version = string();
+            String revision = string();
+            String revisionDate = string();
+            int prefixCount = in.readInt();
+            List<UCUMDefinition.UCUMPrefix> prefixList = new ArrayList<>(prefixCount);
+            for(int i = 0; i < prefixCount; i++) {
+                UCUMDefinition.UCUMPrefix prefix = new UCUMDefinition.UCUMPrefix(string(), string(), strings(), string(), value());
+                prefixList.add(prefix);
+                prefixes.put(prefix.code(), prefix);
+            }
+            int baseUnitCount = in.readInt();
+            List<UCUMDefinition.BaseUnit> baseUnits = new ArrayList<>(baseUnitCount);
+            for(int i = 0; i < baseUnitCount; i++) {
+                UCUMDefinition.BaseUnit baseUnit = new UCUMDefinition.BaseUnit(string(), string(), string(), strings(), string(), string());
+                baseUnits.add(baseUnit);
+                units.put(baseUnit.code(), baseUnit);
+            }
+            int definedUnitCount = in.readInt();
+            List<UCUMDefinition.DefinedUnit> definedUnits = new ArrayList<>(definedUnitCount);
+            for(int i = 0; i < definedUnitCount; i++) {
+                byte kind = in.readByte();
+                String code = string();
+                String codeCaseInsensitive = string();
+                boolean isMetric = in.readBoolean();
+                String unitClass = string();
+                List<String> names = strings();
+                String printSymbol = string();
+                String property = string();
+                UCUMDefinition.UCUMValue value = value();
+                UCUMDefinition.DefinedUnit definedUnit = switch(kind) {
+                    case DERIVED -> new UCUMDefinition.DerivedUnit(code, codeCaseInsensitive, isMetric, unitClass, names, printSymbol, property, value);
+                    case DIMLESS -> new UCUMDefinition.DimlessUnit(code, codeCaseInsensitive, isMetric, names, printSymbol, property, value);
+                    case SPECIAL -> new UCUMDefinition.SpecialUnit(code, codeCaseInsensitive, isMetric, unitClass, names, printSymbol, property, value);
+                    case ARBITRARY -> new UCUMDefinition.ArbitraryUnit(code, codeCaseInsensitive, isMetric, unitClass, names, printSymbol, property, value);
+                    default -> throw new IllegalStateException("Unknown unit kind " + kind);
+                };
+                definedUnits.add(definedUnit);
+                // base units take precedence, same as in the registry
+                units.putIfAbsent(code, definedUnit);
+            }
+            return new UCUMDefinition.UCUMEssence(version, revision, revisionDate, prefixList, baseUnits, definedUnits);
+        }
+
+        private UCUMDefinition.UCUMValue value() throws IOException {
+            if(!in.readBoolean()) {
+                return null;
+            }
+            String unit = string();
+            String unitAlt = string();
+            PreciseDecimal conversionFactor = decimal();
+            UCUMDefinition.UCUMFunction function = in.readBoolean()
+                    ? new UCUMDefinition.UCUMFunction(string(), decimal(), string())
+                    : null;
+            return new UCUMDefinition.UCUMValue(unit, unitAlt, conversionFactor, function);
+        }
+
+        private UCUMExpression.Term term() throws IOException {
+            byte tag = in.readByte();
+            return switch(tag) {
+                case COMPONENT_NO_EXP -> new UCUMExpression.MixedComponentTerm(new UCUMExpression.MixedComponentNoExponent(unit()));
+                case COMPONENT_EXP -> {
+                    UCUMExpression.Unit unit = unit();
+                    UCUMExpression.Exponent exponent = new UCUMExpression.Exponent(in.readInt());
+                    yield new UCUMExpression.MixedComponentTerm(new UCUMExpression.MixedComponentExponent(unit, exponent));
+                }
+                case ANNOT -> {
+                    UCUMExpression.Term term = term();
+                    yield new UCUMExpression.MixedAnnotTerm(term, new UCUMExpression.Annotation(string()));
+                }
+                case PAREN -> new UCUMExpression.MixedParenTerm(term());
+                case BINARY_MUL, BINARY_DIV -> {
+                    UCUMExpression.Term left = term();
+                    UCUMExpression.Term right = term();
+                    yield new UCUMExpression.MixedBinaryTerm(left, tag == BINARY_MUL ? UCUMExpression.Operator.MUL : UCUMExpression.Operator.DIV, right);
+                }
+                case UNARY_DIV -> new UCUMExpression.MixedUnaryDivTerm(term());
+                case ANNOT_ONLY -> new UCUMExpression.AnnotOnlyTerm(new UCUMExpression.Annotation(string()));
+                default -> throw new IllegalStateException("Unknown term tag " + tag);
+            };
+        }
+
+        private UCUMExpression.Unit unit() throws IOException {
+            byte tag = in.readByte();
+            return switch(tag) {
+                case INTEGER_UNIT -> new UCUMExpression.IntegerUnit(in.readInt());
+                case PREFIX_UNIT -> {
+                    UCUMDefinition.UCUMPrefix prefix = Objects.requireNonNull(prefixes.get(string()));
+                    yield new UCUMExpression.MixedPrefixSimpleUnit(prefix, Objects.requireNonNull(units.get(string())));
+                }
+                case NO_PREFIX_UNIT -> new UCUMExpression.MixedNoPrefixSimpleUnit(Objects.requireNonNull(units.get(string())));
+                default -> throw new IllegalStateException("Unknown unit tag " + tag);
+            };
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.funcs.Validator;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+/**
+ * Stateless ANTLR error listeners that abort on the first error. Use the shared {@link #LEXER} and {@link #PARSER}
+ * instances instead of creating new listeners for every parse.
+ *
+ * @author Felix Naumann
+ */
+public class ThrowingErrorListener extends BaseErrorListener {
+
+    public static final ThrowingErrorListener LEXER = new ThrowingErrorListener(true);
+    public static final ThrowingErrorListener PARSER = new ThrowingErrorListener(false);
+
+    private final boolean lexer;
+
+    private ThrowingErrorListener(boolean lexer) {
+        this.lexer = lexer;
+    }
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+        if(lexer) {
+            throw new Validator.LexerException("Lexical error at line " + line + ":" + charPositionInLine + ": " + msg);
+        }
+        throw new Validator.ParserException("Syntax error at line " + line + ":" + charPositionInLine + ": " + msg);
+    }
+}
@@ -2,16 +2,18 @@ package io.github.fhnaumann.util;
 
 import io.github.fhnaumann.builders.SoloTermBuilder;
 import io.github.fhnaumann.configuration.ConfigurationRegistry;
-import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Canonicalizer;
 import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.FastUCUMParser;
+import io.github.fhnaumann.model.TermSummary;
 import io.github.fhnaumann.model.UCUMDefinition;
-import io.github.fhnaumann.funcs.printer.PrettyPrinter;
 import io.github.fhnaumann.model.UCUMExpression;
 import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -21,26 +23,119 @@ import java.util.stream.Stream;
 
 public class UCUMRegistry {
 
-    private static final UCUMRegistry instance = loadFromUCUMEssence(UCUMRegistry.class.getClassLoader().getResourceAsStream("ucum-essence.xml"));
     private static final Logger log = LoggerFactory.getLogger(UCUMRegistry.class);
-
-    static {
-        // instance.translateValueDefinitions();
-    }
+    private static final UCUMRegistry instance = load();
 
     private final UCUMDefinition.UCUMEssence ucumEssence;
     private final Map<String, UCUMDefinition.UCUMPrefix> prefixes;
     private final Map<String, UCUMDefinition.BaseUnit> baseUnits;
     private final Map<String, UCUMDefinition.DefinedUnit> definedUnits;
+    private final PrefixUnitTrie prefixUnitTrie;
+    private final Map<UCUMDefinition.UCUMUnit, Integer> unitFlags;
 
+    /*
+    Everything below is resolved eagerly in the constructor and never modified afterwards. The maps are immutable and the
+    fields are final, so the registry can be read from any thread without synchronization.
+     */
     private final Map<UCUMDefinition.DefinedUnit, UCUMExpression.Term> definedUnitSourceDefinitions;
+    private final UCUMExpression.Term molAsGram;
 
-    private UCUMRegistry(UCUMDefinition.UCUMEssence ucumEssence) {
+    UCUMRegistry(UCUMDefinition.UCUMEssence ucumEssence, Map<String, UCUMExpression.Term> sourceDefinitions) {
         this.ucumEssence = ucumEssence;
         this.prefixes = identityFromList(ucumEssence.prefixes());
         this.baseUnits = identityFromList(ucumEssence.baseUnits());
         this.definedUnits = identityFromList(ucumEssence.definedUnits());
-        this.definedUnitSourceDefinitions = new HashMap<>();
+        List<UCUMDefinition.UCUMUnit> units = new ArrayList<>(baseUnits.values());
+        definedUnits.values().stream().filter(definedUnit -> !baseUnits.containsKey(definedUnit.code())).forEach(units::add);
+        this.prefixUnitTrie = PrefixUnitTrie.build(prefixes.values(), units);
+        this.definedUnitSourceDefinitions = resolveSourceDefinitions(sourceDefinitions);
+        this.unitFlags = computeUnitFlags(units);
+        this.molAsGram = SoloTermBuilder.builder().withoutPrefix(baseUnits.get("g")).noExpNoAnnot().asTerm().build();
+    }
+
+    /*
+    Definitions that are not part of the snapshot are parsed with the fast parser directly. Going through the Validator
+    does not work here, it would look up the registry instance that is being constructed right now. The definitions are
+    part of UCUM itself, so they are parsed independent of the configuration.
+     */
+    private Map<UCUMDefinition.DefinedUnit, UCUMExpression.Term> resolveSourceDefinitions(Map<String, UCUMExpression.Term> precompiled) {
+        Map<UCUMDefinition.DefinedUnit, UCUMExpression.Term> resolved = new HashMap<>();
+        for(UCUMDefinition.DefinedUnit definedUnit : definedUnits.values()) {
+            UCUMExpression.Term term = precompiled.get(definedUnit.code());
+            if(term == null) {
+                String definition = sourceDefinitionOf(definedUnit);
+                try {
+                    term = FastUCUMParser.parse(definition, this, true);
+                } catch (Validator.LexerException | Validator.ParserException e) {
+                    log.warn("Could not parse the definition '{}' of {}.", definition, definedUnit.code());
+                    continue;
+                }
+            }
+            resolved.put(definedUnit, term);
+        }
+        return Map.copyOf(resolved);
+    }
+
+    private static String sourceDefinitionOf(UCUMDefinition.DefinedUnit definedUnit) {
+        return switch(definedUnit) {
+            case UCUMDefinition.DerivedUnit derivedUnit -> derivedUnit.value().unit();
+            case UCUMDefinition.DimlessUnit dimlessUnit -> dimlessUnit.value().unit();
+            case UCUMDefinition.ArbitraryUnit arbitraryUnit -> arbitraryUnit.value().unit();
+            /*
+            The definition of special units are UCUM expressions themselves. However, some information are redundant
+            because factors are already accounted for in each special unit case. Therefore, we are really only
+            interested in the units (but not any factors) in the definition. Here are some examples:
+            Degree is defined as "K" -> Keep as is
+            Fahrenheit is defined as "K/9" -> Only keep "K" because the "/9" is already accounted for manually in the conversion
+             */
+            case UCUMDefinition.SpecialUnit specialUnit -> specialUnit.value().function().unit();
+        };
+    }
+
+    private Map<UCUMDefinition.UCUMUnit, Integer> computeUnitFlags(List<UCUMDefinition.UCUMUnit> units) {
+        Map<UCUMDefinition.UCUMUnit, Integer> flags = new HashMap<>();
+        Set<UCUMDefinition.UCUMUnit> inProgress = new HashSet<>();
+        units.forEach(unit -> computeUnitFlags(unit, flags, inProgress));
+        return Map.copyOf(flags);
+    }
+
+    private int computeUnitFlags(UCUMDefinition.UCUMUnit unit, Map<UCUMDefinition.UCUMUnit, Integer> flags, Set<UCUMDefinition.UCUMUnit> inProgress) {
+        Integer known = flags.get(unit);
+        if(known != null) {
+            return known;
+        }
+        int ownFlags = switch(unit) {
+            case UCUMDefinition.SpecialUnit specialUnit -> TermSummary.CONTAINS_SPECIAL_UNIT;
+            case UCUMDefinition.ArbitraryUnit arbitraryUnit -> TermSummary.CONTAINS_ARBITRARY_UNIT;
+            default -> 0;
+        };
+        if(unit.code().equals("mol")) {
+            ownFlags |= TermSummary.CONTAINS_MOL;
+        }
+        int result = ownFlags;
+        UCUMExpression.Term sourceDefinition = unit instanceof UCUMDefinition.DefinedUnit definedUnit ? definedUnitSourceDefinitions.get(definedUnit) : null;
+        if(sourceDefinition != null && inProgress.add(unit)) {
+            // only mol and arbitrary units are inherited from the source definition
+            result |= collectUnitFlags(sourceDefinition, flags, inProgress)
+                    & (TermSummary.CONTAINS_MOL | TermSummary.CONTAINS_ARBITRARY_UNIT);
+            inProgress.remove(unit);
+        }
+        flags.put(unit, result);
+        return result;
+    }
+
+    private int collectUnitFlags(UCUMExpression.Term term, Map<UCUMDefinition.UCUMUnit, Integer> flags, Set<UCUMDefinition.UCUMUnit> inProgress) {
+        return switch(term) {
+            case UCUMExpression.ComponentTerm componentTerm -> switch(componentTerm.component().unit()) {
+                case UCUMExpression.IntegerUnit integerUnit -> 0;
+                case UCUMExpression.SimpleUnit simpleUnit -> computeUnitFlags(simpleUnit.ucumUnit(), flags, inProgress);
+            };
+            case UCUMExpression.BinaryTerm binaryTerm -> collectUnitFlags(binaryTerm.left(), flags, inProgress) | collectUnitFlags(binaryTerm.right(), flags, inProgress);
+            case UCUMExpression.UnaryDivTerm unaryDivTerm -> collectUnitFlags(unaryDivTerm.term(), flags, inProgress);
+            case UCUMExpression.AnnotTerm annotTerm -> collectUnitFlags(annotTerm.term(), flags, inProgress);
+            case UCUMExpression.ParenTerm parenTerm -> collectUnitFlags(parenTerm.term(), flags, inProgress);
+            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> 0;
+        };
     }
 
     public List<UCUMDefinition.Concept> getAll() {
@@ -63,45 +158,12 @@ public class UCUMRegistry {
         return definedUnits.values();
     }
 
-    private UCUMExpression.Term translateUnitInsideDefinedUnitToTerm(UCUMDefinition.DefinedUnit definedUnit) {
-        return switch(definedUnit) {
-            case UCUMDefinition.DerivedUnit derivedUnit -> handleCommon(definedUnit);
-            case UCUMDefinition.DimlessUnit dimlessUnit -> handleCommon(definedUnit);
-            case UCUMDefinition.ArbitraryUnit arbitraryUnit -> handleCommon(definedUnit);
-            case UCUMDefinition.SpecialUnit specialUnit -> {
-                /*
-                The definition of special units are UCUM expressions themselves. However, some information are redundant
-                because factors are already accounted for in each special unit case. Therefore, we are really only
-                interested in the units (but not any factors) in the definition. That's what the extractor is used for.
-                Here are some examples:
-                Degree is defined as "K" -> Keep as is
-                Fahrenheit is defined as "K/9" -> Only keep "K" because the "/9" is already accounted for manually in the conversion
-
-                 */
-                UCUMExpression.Term term = ((Validator.Success) UCUMService.validate(definedUnit.value().function().unit())).term();
-                //UCUMExpression.Term extracted = new UnitExtractor().extractUnits(term);
-                PrettyPrinter pp = new PrettyPrinter();
-                //System.out.println(pp.print(term) + " is extracted to " + pp.print(extracted));
-                yield term;
-                // canonicalization necessary because the UCUM definition uses a term here, which is already covered in the specialfunction.
-                // Here we are only interested in the dimension of the special unit
-                /*Canonicalizer.CanonicalizationResult result = new Canonicalizer().canonicalize(term, new Canonicalizer.SpecialUnitConversionContext(PreciseDecimal.ONE, Canonicalizer.SpecialUnitApplicationDirection.NO_SPECIAL_INVOLVED));
-                yield switch(result) {
-                    case Canonicalizer.Success(
-                            PreciseDecimal _, Expression.Term term1,
-                            Canonicalizer.SpecialUnitApplicationDirection _
-                                               ) -> term1;
-                    case Canonicalizer.FailedCanonicalization failedCanonicalization -> throw new RuntimeException("CATASTROPHIC, IMPROVE ERROR HANDLING");
-                };
-
-                 */
-                //yield term;
-            }
-        };
-    }
-
-    private UCUMExpression.Term handleCommon(UCUMDefinition.DefinedUnit definedUnit) {
-        return ((Validator.Success) UCUMService.validate(definedUnit.value().unit())).term();
+    /**
+     * Returns the precomputed {@link TermSummary} flags of a unit. Mol and arbitrary units are also reported if they are
+     * only part of the unit's source definition, special units only for the unit itself.
+     */
+    public int getUnitFlags(UCUMDefinition.UCUMUnit unit) {
+        return unitFlags.getOrDefault(unit, 0);
     }
 
     public Optional<UCUMDefinition.UCUMUnit> getUCUMUnit(String unit) {
@@ -116,6 +178,15 @@ public class UCUMRegistry {
         return Optional.empty();
     }
 
+    /**
+     * Resolves a unit code that may start with a prefix (i.e. "cm") in one pass over the text.
+     *
+     * @return The matched unit (and prefix) or null if the text is not a valid (prefixed) unit.
+     */
+    public ParseUtil.SuccessResult matchPrefixAndUnit(CharSequence text, int start, int end) {
+        return prefixUnitTrie.match(text, start, end);
+    }
+
     public Optional<UCUMDefinition.UCUMPrefix> getPrefix(String prefix) {
         return Optional.ofNullable(prefixes.get(prefix));
     }
@@ -129,20 +200,18 @@ public class UCUMRegistry {
     }
 
     public UCUMExpression.Term getDefinedUnitSourceDefinition(UCUMDefinition.DefinedUnit definedUnit, boolean enableMolarMassConversion) {
-        UCUMExpression.Term term = definedUnitSourceDefinitions.get(definedUnit);
-        if(term == null) {
-            term = translateUnitInsideDefinedUnitToTerm(definedUnit);
-            //System.out.println("translated " + definedUnit.code() + " to " + new PrettyPrinter(false, false, false).print(term));
-            definedUnitSourceDefinitions.put(definedUnit, term);
-        }
-        if(definedUnit.code().equals("mol") && (enableMolarMassConversion && ConfigurationRegistry.get().isEnableMolMassConversion())) {
+        if(enableMolarMassConversion && definedUnit.code().equals("mol") && ConfigurationRegistry.get().isEnableMolMassConversion()) {
             log.debug("Changed the definition of mol (dimless) to have to point to g (mass). The required substance's molar mass has to be provided from the outer scope.");
             /*
             If the mol unit requested and mol<->mass conversion is enabled, then convert mol to gram instead.
             The substance's molar mass has to be provided from outside.
             mol = X * g, where X is provided by the user
              */
-            return SoloTermBuilder.builder().withoutPrefix(getBaseUnit("g").orElseThrow()).noExpNoAnnot().asTerm().build();
+            return molAsGram;
+        }
+        UCUMExpression.Term term = definedUnitSourceDefinitions.get(definedUnit);
+        if(term == null) {
+            throw new IllegalStateException("The definition of %s could not be resolved.".formatted(definedUnit.code()));
         }
         return term;
     }
@@ -171,7 +240,27 @@ public class UCUMRegistry {
         return list.stream().collect(Collectors.toMap(UCUMDefinition.Concept::code, Function.identity()));
     }
 
-    private static UCUMRegistry loadFromUCUMEssence(InputStream ucumEssenceXML) {
+    /*
+    The precompiled snapshot is used if it belongs to the ucum-essence.xml on the classpath. It can be turned off with
+    the system property "ucumate.registry.snapshot=false".
+     */
+    private static UCUMRegistry load() {
+        byte[] xml;
+        try(InputStream in = Objects.requireNonNull(UCUMRegistry.class.getClassLoader().getResourceAsStream("ucum-essence.xml"), "ucum-essence.xml not found on the classpath")) {
+            xml = in.readAllBytes();
+        } catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        if(Boolean.parseBoolean(System.getProperty("ucumate.registry.snapshot", "true"))) {
+            RegistrySnapshot.Snapshot snapshot = RegistrySnapshot.load(xml);
+            if(snapshot != null) {
+                return new UCUMRegistry(snapshot.essence(), snapshot.sourceDefinitions());
+            }
+        }
+        return new UCUMRegistry(readEssenceXML(new ByteArrayInputStream(xml)), Map.of());
+    }
+
+    static UCUMDefinition.UCUMEssence readEssenceXML(InputStream ucumEssenceXML) {
         try {
             // Setting the flag in the module is necessary
             // https://github.com/FasterXML/jackson-dataformat-xml/issues/219#issuecomment-286003056
@@ -182,25 +271,28 @@ public class UCUMRegistry {
             mapper.addMixIn(UCUMExpression.class, UCUMDefinition.UCUMExpressionMixIn.class);
             // mapper.disable(MapperFeature.USE_GETTERS_AS_SETTERS);
             // mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-            UCUMDefinition.UCUMEssence ucumEssence = mapper.readValue(ucumEssenceXML, UCUMDefinition.UCUMEssence.class);
-            return new UCUMRegistry(ucumEssence);
+            return mapper.readValue(ucumEssenceXML, UCUMDefinition.UCUMEssence.class);
         } catch(IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * The registry itself is fully resolved when it is created. This resolves everything that is derived from it up
+     * front instead of on the first request: The summaries of all unit definitions, the canonical atom table of the
+     * {@link Canonicalizer} and the canonical form of every unit, which ends up in the canonicalization cache.
+     */
     public void warmup() {
-        prefixes.forEach((s, ucumPrefix) -> getPrefix(s));
-        baseUnits.forEach((s, baseUnit) -> getBaseUnit(s));
-        definedUnits.forEach((s, definedUnit) -> getDefinedUnit(s));
-        definedUnits.forEach((s, definedUnit) -> getDefinedUnitSourceDefinition(definedUnit, ConfigurationRegistry.get().isEnableMolMassConversion()));
+        Canonicalizer canonicalizer = new Canonicalizer();
+        definedUnitSourceDefinitions.values().forEach(TermSummary::of);
+        Stream.concat(baseUnits.values().stream(), definedUnits.values().stream()).forEach(unit -> {
+            UCUMExpression.Term term = SoloTermBuilder.builder().withoutPrefix(unit).noExpNoAnnot().asTerm().build();
+            TermSummary.of(term);
+            canonicalizer.canonicalize(term);
+        });
     }
 
     public static UCUMRegistry getInstance() {
-        if(instance.definedUnitSourceDefinitions == null) {
-            // getInstance() is being called after the ucum-essence.xml has been read, but no connection between the ucum-terms
-            // INSIDE value definitions has been made yet, do this once now
-        }
         return instance;
     }
 
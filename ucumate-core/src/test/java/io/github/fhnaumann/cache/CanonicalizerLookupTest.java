@@ -0,0 +1,114 @@
+package io.github.fhnaumann.cache;
+
+import io.github.fhnaumann.TestUtil;
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.persistence.PersistenceProvider;
+import io.github.fhnaumann.persistence.PersistenceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class CanonicalizerLookupTest {
+
+    private CountingProvider provider;
+
+    @BeforeAll
+    public static void init() {
+        // other tests may have disabled the in-memory cache
+        Properties props = new Properties();
+        props.setProperty("ucumate.cache.enable", "true");
+        PersistenceRegistry.initCache(props);
+    }
+
+    @BeforeEach
+    public void setup() {
+        PersistenceRegistry.cache.clearCache();
+        provider = new CountingProvider();
+        PersistenceRegistry.register("counting", provider);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PersistenceRegistry.getInstance().close();
+    }
+
+    @Test
+    public void only_the_root_term_is_looked_up_in_providers() {
+        Canonicalizer canonicalizer = new Canonicalizer();
+        assertThat(canonicalizer.canonicalize(TestUtil.parse("kg.m/(s2.mA)"))).isInstanceOf(Canonicalizer.Success.class);
+
+        Canonicalizer.LookupCounts counts = canonicalizer.lookupCounts();
+        assertThat(counts.allProviderLookups()).isEqualTo(1);
+        assertThat(counts.atomHits()).isEqualTo(4);
+        assertThat(counts.inMemoryLookups()).isPositive();
+        assertThat(provider.canonicalLookups).isEqualTo(1);
+    }
+
+    @Test
+    public void cached_root_term_is_not_recomputed() {
+        new Canonicalizer().canonicalize(TestUtil.parse("kg.m/(s2.mA)"));
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+        assertThat(canonicalizer.canonicalize(TestUtil.parse("kg.m/(s2.mA)"))).isInstanceOf(Canonicalizer.Success.class);
+
+        // served from the in-memory cache, the provider is not asked again
+        assertThat(canonicalizer.lookupCounts()).isEqualTo(new Canonicalizer.LookupCounts(0, 0, 1));
+        assertThat(provider.canonicalLookups).isEqualTo(1);
+    }
+
+    @Test
+    public void atoms_are_never_looked_up() {
+        Canonicalizer canonicalizer = new Canonicalizer();
+        canonicalizer.canonicalize(TestUtil.parse("mA"));
+
+        assertThat(canonicalizer.lookupCounts()).isEqualTo(new Canonicalizer.LookupCounts(1, 0, 0));
+        assertThat(provider.canonicalLookups).isZero();
+    }
+
+    private static class CountingProvider implements PersistenceProvider {
+
+        private int canonicalLookups;
+
+        @Override
+        public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {}
+
+        @Override
+        public Canonicalizer.CanonicalStepResult getCanonical(CanonKey key) {
+            canonicalLookups++;
+            return null;
+        }
+
+        @Override
+        public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical() {
+            return Map.of();
+        }
+
+        @Override
+        public void saveValidated(ValKey key, Validator.ValidationResult value) {}
+
+        @Override
+        public Validator.ValidationResult getValidated(ValKey key) {
+            return null;
+        }
+
+        @Override
+        public Map<ValKey, Validator.ValidationResult> getAllValidated() {
+            return Map.of();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.fhnaumann.cache;
+
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.persistence.PersistenceProvider;
+import io.github.fhnaumann.persistence.PersistenceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class WriteBehindTest {
+
+    private RecordingProvider provider;
+
+    private void enableWriteBehind(long flushIntervalMillis, int maxPending, String backpressure) {
+        Properties props = new Properties();
+        props.setProperty("ucumate.persistence.writeBehind.enable", "true");
+        props.setProperty("ucumate.persistence.writeBehind.flushIntervalMillis", String.valueOf(flushIntervalMillis));
+        props.setProperty("ucumate.persistence.writeBehind.maxPending", String.valueOf(maxPending));
+        props.setProperty("ucumate.persistence.writeBehind.backpressure", backpressure);
+        PersistenceRegistry.initWriteBehind(props);
+        provider = new RecordingProvider();
+        PersistenceRegistry.register("recording", provider);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PersistenceRegistry.initWriteBehind(new Properties());
+        PersistenceRegistry.getInstance().close();
+    }
+
+    @Test
+    public void duplicate_keys_are_coalesced_into_one_batch() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 100, "CALLER_RUNS");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+        assertThat(provider.events).isEmpty();
+
+        PersistenceRegistry.flush();
+
+        assertThat(provider.validatedBatches).hasSize(1);
+        assertThat(provider.validatedBatches.getFirst()).containsOnlyKeys(ValKey.of("m"), ValKey.of("g"));
+        assertThat(provider.events).containsExactly("batch");
+    }
+
+    @Test
+    public void pending_entries_are_written_in_the_background() throws InterruptedException {
+        enableWriteBehind(10, 100, "CALLER_RUNS");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+
+        assertThat(provider.firstBatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(provider.batchThreads).containsOnly("ucumate-write-behind");
+    }
+
+    @Test
+    public void close_writes_pending_entries_before_closing_the_providers() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 100, "CALLER_RUNS");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+
+        PersistenceRegistry.getInstance().close();
+
+        assertThat(provider.events).containsExactly("batch", "close");
+    }
+
+    @Test
+    public void full_queue_drops_new_keys() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 2, "DROP");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("s"), new Validator.Failure());
+        // a pending key is still updated
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+
+        PersistenceRegistry.flush();
+
+        assertThat(provider.validatedBatches.getFirst()).containsOnlyKeys(ValKey.of("m"), ValKey.of("g"));
+        assertThat(provider.events).containsExactly("batch");
+    }
+
+    @Test
+    public void full_queue_lets_the_caller_write() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 1, "CALLER_RUNS");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+        assertThat(provider.events).containsExactly("single");
+
+        PersistenceRegistry.flush();
+
+        assertThat(provider.validatedBatches.getFirst()).containsOnlyKeys(ValKey.of("m"));
+    }
+
+    @Test
+    public void full_queue_blocks_until_it_is_written() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 1, "BLOCK");
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        // returns once the first key has been written by the background thread
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+
+        PersistenceRegistry.flush();
+
+        assertThat(provider.validatedBatches).hasSize(2);
+        assertThat(provider.validatedBatches.get(0)).containsOnlyKeys(ValKey.of("m"));
+        assertThat(provider.validatedBatches.get(1)).containsOnlyKeys(ValKey.of("g"));
+        assertThat(provider.events).containsExactly("batch", "batch");
+    }
+
+    @Test
+    public void blocked_caller_waits_until_the_batch_is_written() {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 1, "BLOCK");
+        provider.batchDelayMillis = 200;
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+
+        // not only taken out of the queue, but already written
+        assertThat(provider.validatedBatches).hasSize(1);
+        assertThat(provider.validatedBatches.getFirst()).containsOnlyKeys(ValKey.of("m"));
+    }
+
+    @Test
+    public void caller_writes_after_the_batch_in_flight() throws InterruptedException {
+        enableWriteBehind(TimeUnit.HOURS.toMillis(1), 1, "CALLER_RUNS");
+        provider.batchDelayMillis = 200;
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        Thread flush = new Thread(PersistenceRegistry::flush);
+        flush.start();
+        assertThat(provider.batchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("g"), new Validator.Failure());
+        // the queue is full, the caller writes it while the batch with m is still being written
+        PersistenceRegistry.getInstance().saveValidated(ValKey.of("m"), new Validator.Failure());
+        flush.join();
+
+        assertThat(provider.events).containsExactly("batch", "single");
+    }
+
+    private static class RecordingProvider implements PersistenceProvider {
+
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        private final List<Map<ValKey, Validator.ValidationResult>> validatedBatches = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> batchThreads = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch firstBatch = new CountDownLatch(1);
+        private final CountDownLatch batchStarted = new CountDownLatch(1);
+        private volatile long batchDelayMillis;
+
+        @Override
+        public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
+            events.add("single");
+        }
+
+        @Override
+        public Canonicalizer.CanonicalStepResult getCanonical(CanonKey key) {
+            return null;
+        }
+
+        @Override
+        public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical() {
+            return Map.of();
+        }
+
+        @Override
+        public void saveValidated(ValKey key, Validator.ValidationResult value) {
+            events.add("single");
+        }
+
+        @Override
+        public void saveAllValidated(Map<ValKey, Validator.ValidationResult> entries) {
+            batchStarted.countDown();
+            try {
+                Thread.sleep(batchDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            validatedBatches.add(Map.copyOf(entries));
+            batchThreads.add(Thread.currentThread().getName());
+            events.add("batch");
+            firstBatch.countDown();
+        }
+
+        @Override
+        public Validator.ValidationResult getValidated(ValKey key) {
+            return null;
+        }
+
+        @Override
+        public Map<ValKey, Validator.ValidationResult> getAllValidated() {
+            return Map.of();
+        }
+
+        @Override
+        public void close() {
+            events.add("close");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.fhnaumann.converter;
+
+import io.github.fhnaumann.funcs.ConversionPlan;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Felix Naumann
+ */
+public class BulkConversionTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "mg/dL, g/L",
+            "[in_i], cm",
+            "Cel, [degF]",
+            "K, Cel",
+            "[pH], mol/L",
+    })
+    public void doubles_match_single_conversions(String from, String to) {
+        double[] values = new double[1001];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = i * 0.37 + 0.5;
+        }
+        double[] out = new double[values.length];
+        assertThat(UCUMService.plan(from, to).applyAll(values, out)).isInstanceOf(Converter.Success.class);
+        for(int i = 0; i < values.length; i++) {
+            double expected = ((Converter.Success) UCUMService.convert(new PreciseDecimal(BigDecimal.valueOf(values[i]).toPlainString()), from, to)).conversionFactor().getValue().doubleValue();
+            assertThat(out[i]).as("%s %s", values[i], from).isCloseTo(expected, within(Math.abs(expected) * 1e-12));
+        }
+    }
+
+    @Test
+    public void doubles_in_place() {
+        double[] values = {1, 2.5, 10};
+        UCUMService.plan("g", "mg").applyAll(values, values);
+        assertThat(values).containsExactly(1000, 2500, 10000);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "mg/dL, g/L",
+            "Cel, [degF]",
+            "[pH], mol/L",
+            "B[SPL], Pa",
+    })
+    public void non_finite_doubles_convert_to_nan(String from, String to) {
+        double[] out = new double[4];
+        assertThat(UCUMService.plan(from, to).applyAll(new double[]{1, Double.NaN, Double.POSITIVE_INFINITY, 2}, out)).isInstanceOf(Converter.Success.class);
+        assertThat(out[1]).isNaN();
+        assertThat(Double.isFinite(out[2])).isFalse();
+        assertThat(out[0]).isFinite();
+        assertThat(out[3]).isFinite();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "Cel, [degF], 0, 32",
+            "Cel, [degF], 100, 212",
+            "Cel, [degF], 37, 98.6",
+            "[degF], Cel, 32, 0",
+            "[degF], Cel, 98.6, 37",
+            "K, Cel, 310.15, 37",
+    })
+    public void common_temperatures_are_within_one_ulp(String from, String to, double value, double expected) {
+        double[] out = new double[1];
+        UCUMService.plan(from, to).applyAll(new double[]{value}, out);
+        assertThat(out[0]).isCloseTo(expected, within(Math.ulp(expected)));
+    }
+
+    @Test
+    public void big_decimals_are_identical_to_single_conversions() {
+        BigDecimal[] values = {new BigDecimal("1"), new BigDecimal("98.6"), new BigDecimal("-40"), new BigDecimal("0.001")};
+        for(String[] pair : new String[][]{{"mg/dL", "g/L"}, {"[degF]", "Cel"}, {"[ft_i]", "m"}}) {
+            BigDecimal[] out = new BigDecimal[values.length];
+            UCUMService.plan(pair[0], pair[1]).applyAll(values, out);
+            for(int i = 0; i < values.length; i++) {
+                Converter.Success expected = (Converter.Success) UCUMService.convert(new PreciseDecimal(values[i].toPlainString()), pair[0], pair[1]);
+                assertThat(out[i]).isEqualTo(expected.conversionFactor().getValue());
+            }
+        }
+    }
+
+    @Test
+    public void scaled_longs() {
+        long[] out = new long[3];
+        // 1.25 g, 0.5 g, 3 g with scale 2 -> mg with scale 0
+        UCUMService.plan("g", "mg").applyAll(new long[]{125, 50, 300}, 2, out, 0);
+        assertThat(out).containsExactly(1250, 500, 3000);
+        // 1 [in_i] with scale 0 -> cm with scale 3
+        UCUMService.plan("[in_i]", "cm").applyAll(new long[]{1, 10}, 0, out, 3);
+        assertThat(Arrays.copyOf(out, 2)).containsExactly(2540, 25400);
+        // 37.0 Cel with scale 1 -> K with scale 2
+        UCUMService.plan("Cel", "K").applyAll(new long[]{370}, 1, out, 2);
+        assertThat(out[0]).isEqualTo(31015);
+    }
+
+    @Test
+    public void failed_plans_do_not_write() {
+        double[] out = new double[]{-1};
+        ConversionPlan plan = UCUMService.plan("m", "g");
+        assertThat(plan.applyAll(new double[]{1}, out)).isInstanceOf(Converter.BaseDimensionMismatch.class);
+        assertThat(out).containsExactly(-1);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.fhnaumann.converter;
+
+import io.github.fhnaumann.funcs.ConversionPlan;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class ConversionPlanTest {
+
+    @ParameterizedTest(name = "{0}: {1} {2} -> {3}")
+    @MethodSource("io.github.fhnaumann.converter.FactorOnlyConversionTest#provide_functional_conversions")
+    public void same_result_as_convert(String id, String factor, String from, String to) {
+        PreciseDecimal preciseFactor = new PreciseDecimal(factor);
+        assertThat(UCUMService.plan(from, to).apply(preciseFactor)).isEqualTo(UCUMService.convert(preciseFactor, from, to));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "Cel, K, 37",
+            "K, Cel, 310.15",
+            "[degF], Cel, 98.6",
+            "[pH], mol/L, 7.4",
+            "mg/dL, g/L, 5",
+            "m, [in_i], 2.54",
+    })
+    public void can_be_applied_repeatedly(String from, String to, String factor) {
+        ConversionPlan plan = UCUMService.plan(from, to);
+        for(String value : new String[]{factor, "1", "0", "123.456"}) {
+            PreciseDecimal preciseValue = new PreciseDecimal(value);
+            assertThat(plan.apply(preciseValue)).as(value).isEqualTo(UCUMService.convert(preciseValue, from, to));
+        }
+    }
+
+    @Test
+    public void plans_are_cached() {
+        assertThat(UCUMService.plan("mmol/L", "umol/L")).isSameAs(UCUMService.plan("mmol/L", "umol/L"));
+        assertThat(UCUMService.plan("mmol/L", "umol/L")).isInstanceOf(ConversionPlan.Linear.class);
+        assertThat(UCUMService.plan("Cel", "[degF]")).isInstanceOf(ConversionPlan.Special.class);
+    }
+
+    @Test
+    public void failures_are_planned_once() {
+        assertThat(UCUMService.plan("m", "s").apply(PreciseDecimal.ONE)).isInstanceOf(Converter.BaseDimensionMismatch.class);
+        assertThat(UCUMService.plan("[IU]", "mg").apply(PreciseDecimal.ONE)).isInstanceOf(Converter.FailedCanonicalization.class);
+        assertThat(UCUMService.plan("m/", "s").apply(PreciseDecimal.ONE)).isInstanceOf(Validator.ParserError.class);
+    }
+}
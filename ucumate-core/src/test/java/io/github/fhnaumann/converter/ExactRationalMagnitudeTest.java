@@ -0,0 +1,122 @@
+package io.github.fhnaumann.converter;
+
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.ConversionPlan;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.util.PreciseDecimal;
+import io.github.fhnaumann.util.Rational;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * With exact rational magnitudes, conversions without special units are only rounded once. They may only differ from
+ * the default conversion in the last digits, which the default rounds several times.
+ *
+ * @author Felix Naumann
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExactRationalMagnitudeTest {
+
+    private static final Configuration DEFAULT = Configuration.builder().build();
+    private static final Configuration EXACT = Configuration.builder().enableExactRationalMagnitudes(true).build();
+
+    @BeforeAll
+    public void setup() {
+        ConfigurationRegistry.initialize(EXACT);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        ConfigurationRegistry.initialize(DEFAULT);
+    }
+
+    @ParameterizedTest(name = "{0}: {1} {2} -> {3}")
+    @MethodSource("io.github.fhnaumann.converter.FactorOnlyConversionTest#provide_functional_conversions")
+    public void same_result_as_default_conversion_up_to_the_last_digits(String id, String factor, String from, String to) {
+        Converter.ConversionResult exact;
+        Converter.ConversionResult rounded;
+        try {
+            exact = UCUMService.convert(factor, from, to);
+            ConfigurationRegistry.initialize(DEFAULT);
+            rounded = UCUMService.convert(factor, from, to);
+        } catch (RuntimeException e) {
+            // nothing to compare against
+            assumeTrue(false);
+            return;
+        } finally {
+            ConfigurationRegistry.initialize(EXACT);
+        }
+        switch (rounded) {
+            case Converter.FailedConversion failedConversion -> assertThat(exact).isEqualTo(failedConversion);
+            case Converter.Success success -> {
+                BigDecimal expected = success.conversionFactor().getValue();
+                BigDecimal actual = ((Converter.Success) exact).conversionFactor().getValue();
+                BigDecimal tolerance = expected.abs().movePointLeft(PreciseDecimal.getUnlimitedPrecision() - 5);
+                assertThat(actual.subtract(expected).abs()).isLessThanOrEqualTo(tolerance);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, [ft_i], [in_i], 12, 1",
+            "1, /[in_i], /[ft_i], 12, 1",
+            "1000, /[ft_i], /[in_i], 1000, 12",
+            "1, [in_i]/[ft_i], 1, 1, 12",
+            "1, [yd_i]3, [ft_i]3, 27, 1",
+    })
+    public void rounds_only_once(String factor, String from, String to, long numerator, long denominator) {
+        PreciseDecimal expected = Rational.of(numerator).divide(Rational.of(denominator)).toPreciseDecimal();
+        assertThat(UCUMService.convert(factor, from, to)).isEqualTo(new Converter.Success(expected));
+    }
+
+    @Test
+    public void plans_contain_the_exact_ratio() {
+        ConversionPlan plan = UCUMService.plan("/[ft_i]", "/[in_i]");
+        assertThat(plan).isEqualTo(new ConversionPlan.ExactRatio(Rational.ONE.divide(Rational.of(12))));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, /[ft_i], /[in_i]",
+            "3, [in_i], [ft_i]",
+            "7, [in_i], [yd_i]",
+            "0.3, [ft_i]2, [yd_i]2",
+            "-5, [in_i]/[ft_i], 1",
+    })
+    public void plans_have_the_same_result_as_convert(String factor, String from, String to) {
+        ConversionPlan plan = UCUMService.plan(from, to);
+        assertThat(plan).isInstanceOf(ConversionPlan.ExactRatio.class);
+        assertThat(plan.apply(new PreciseDecimal(factor))).isEqualTo(UCUMService.convert(factor, from, to));
+    }
+
+    @Test
+    public void plans_round_only_once() {
+        assertThat(UCUMService.plan("[in_i]", "[ft_i]").apply(new PreciseDecimal("3")))
+                .isEqualTo(new Converter.Success(Rational.of(1).divide(Rational.of(4)).toPreciseDecimal()));
+    }
+
+    @Test
+    public void special_units_are_converted_as_before() {
+        assertThat(UCUMService.plan("Cel", "[degF]")).isInstanceOf(ConversionPlan.Special.class);
+        Converter.ConversionResult exact = UCUMService.convert("37", "Cel", "[degF]");
+        ConfigurationRegistry.initialize(DEFAULT);
+        try {
+            assertThat(exact).isEqualTo(UCUMService.convert("37", "Cel", "[degF]"));
+        } finally {
+            ConfigurationRegistry.initialize(EXACT);
+        }
+    }
+}
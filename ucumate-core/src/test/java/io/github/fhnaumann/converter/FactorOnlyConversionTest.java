@@ -0,0 +1,82 @@
+package io.github.fhnaumann.converter;
+
+import io.github.fhnaumann.TestCase;
+import io.github.fhnaumann.TestCaseLoader;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.DimensionAnalyzer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.functionaltests.XmlUtils;
+import io.github.fhnaumann.model.UCUMExpression;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The converter no longer canonicalizes into terms. The results have to be identical to converting with the canonical
+ * forms, which is done by hand here.
+ *
+ * @author Felix Naumann
+ */
+public class FactorOnlyConversionTest {
+
+    @ParameterizedTest(name = "{0}: {1} {2} -> {3}")
+    @MethodSource("provide_functional_conversions")
+    public void same_result_as_canonical_conversion(String id, String factor, String from, String to) {
+        assumeTrue(Validator.validate(from) instanceof Validator.Success && Validator.validate(to) instanceof Validator.Success);
+        UCUMExpression.Term fromTerm = ((Validator.Success) Validator.validate(from)).term();
+        UCUMExpression.Term toTerm = ((Validator.Success) Validator.validate(to)).term();
+        PreciseDecimal preciseFactor = new PreciseDecimal(factor);
+
+        Converter.ConversionResult expected = convertCanonical(preciseFactor, fromTerm, toTerm);
+        Converter.ConversionResult actual = new Converter().convert(new Converter.Conversion(preciseFactor, fromTerm), toTerm, null);
+        assertThat(actual).isEqualTo(expected);
+        if(expected instanceof Converter.Success success) {
+            assertThat(((Converter.Success) actual).conversionFactor().toString()).isEqualTo(success.conversionFactor().toString());
+        }
+    }
+
+    private static Converter.ConversionResult convertCanonical(PreciseDecimal factor, UCUMExpression.Term from, UCUMExpression.Term to) {
+        Canonicalizer canonicalizer = new Canonicalizer();
+        if(!(canonicalizer.canonicalize(factor, from, true, true, Canonicalizer.UnitDirection.FROM, null) instanceof Canonicalizer.Success fromSuccess)) {
+            return new Converter.FailedCanonicalization((Canonicalizer.FailedCanonicalization) canonicalizer.canonicalize(factor, from));
+        }
+        if(!(canonicalizer.canonicalize(fromSuccess.magnitude(), to, true, true, Canonicalizer.UnitDirection.TO, null) instanceof Canonicalizer.Success toSuccess)) {
+            return new Converter.FailedCanonicalization((Canonicalizer.FailedCanonicalization) canonicalizer.canonicalize(to));
+        }
+        return switch(DimensionAnalyzer.compare(fromSuccess.canonicalTerm(), toSuccess.canonicalTerm())) {
+            case DimensionAnalyzer.Failure failure -> new Converter.BaseDimensionMismatch(failure);
+            case DimensionAnalyzer.Success success -> new Converter.Success(toSuccess.magnitude());
+        };
+    }
+
+    static Stream<Arguments> provide_functional_conversions() throws Exception {
+        List<Arguments> arguments = new ArrayList<>();
+        for(TestCase.ConvertTestCase testCase : TestCaseLoader.load().convert) {
+            if(testCase.substanceMolarMassCoeff() == null) {
+                arguments.add(Arguments.of(testCase.id(), testCase.conversionFactor(), testCase.from(), testCase.to()));
+            }
+        }
+        Element root = XmlUtils.parseDOM(TestCaseLoader.loadGrahamFunctionalTests()).getDocumentElement();
+        for(Element conversion : XmlUtils.getNamedChildren(root, "conversion")) {
+            for(Element testCase : XmlUtils.getNamedChildren(conversion, "case")) {
+                arguments.add(Arguments.of(
+                        testCase.getAttribute("id"),
+                        testCase.getAttribute("value"),
+                        testCase.getAttribute("srcUnit"),
+                        testCase.getAttribute("dstUnit")
+                ));
+            }
+        }
+        return arguments.stream();
+    }
+}
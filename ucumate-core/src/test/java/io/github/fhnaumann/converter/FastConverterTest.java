@@ -0,0 +1,96 @@
+package io.github.fhnaumann.converter;
+
+import io.github.fhnaumann.funcs.ConversionPlan;
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.FastConverter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The fast converter has to stay within its documented error bound of the exact conversion.
+ *
+ * @author Felix Naumann
+ */
+public class FastConverterTest {
+
+    @ParameterizedTest(name = "{0}: {1} {2} -> {3}")
+    @MethodSource("io.github.fhnaumann.converter.FactorOnlyConversionTest#provide_functional_conversions")
+    public void within_error_bound_of_exact_conversion(String id, String factor, String from, String to) {
+        Converter.ConversionResult exact;
+        try {
+            exact = UCUMService.convert(factor, from, to);
+        } catch (RuntimeException e) {
+            // nothing to compare against
+            assumeTrue(false);
+            return;
+        }
+        FastConverter.FastConversionResult fast = UCUMService.fast().convert(Double.parseDouble(factor), from, to);
+        switch (exact) {
+            case Converter.FailedConversion failedConversion -> assertThat(fast).isInstanceOf(FastConverter.Failure.class);
+            case Converter.Success success -> {
+                double expected = success.conversionFactor().getValue().doubleValue();
+                double actual = ((FastConverter.Success) fast).conversionFactor();
+                if(UCUMService.plan(from, to) instanceof ConversionPlan.Linear) {
+                    assertThat(actual).isCloseTo(expected, within(Math.abs(expected) * 1e-12));
+                }
+                else {
+                    assertThat(actual).isCloseTo(expected, within(Math.max(Math.abs(expected), 1) * 1e-12));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "5, mg/dL, g/L, 0.05",
+            "1, [ft_i], [in_i], 12",
+            "37, Cel, [degF], 98.6",
+            "1, 10*9/L, /nL, 1",
+            "1, m2, 10*4.cm2, 1",
+    })
+    public void converts(double factor, String from, String to, double expected) {
+        assertThat(((FastConverter.Success) UCUMService.fast().convert(factor, from, to)).conversionFactor()).isCloseTo(expected, within(1e-12));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, Cel, [degF], 32",
+            "37, Cel, [degF], 98.6",
+            "32, [degF], Cel, 0",
+            "212, [degF], Cel, 100",
+            "310.15, K, Cel, 37",
+    })
+    public void common_temperatures_are_within_one_ulp(double factor, String from, String to, double expected) {
+        assertThat(((FastConverter.Success) UCUMService.fast().convert(factor, from, to)).conversionFactor()).isCloseTo(expected, within(Math.ulp(expected)));
+    }
+
+    @Test
+    public void failures_are_the_same_as_the_exact_conversion() {
+        assertThat(UCUMService.fast().convert(1, "m", "g")).isEqualTo(new FastConverter.Failure((Converter.FailedConversion) UCUMService.convert("m", "g")));
+        assertThat(UCUMService.fast().convert(1, "[IU]/L", "[IU]/mL")).isEqualTo(new FastConverter.Failure((Converter.FailedConversion) UCUMService.convert("[IU]/L", "[IU]/mL")));
+        assertThat(UCUMService.fast().convert(1, "m/", "m")).isEqualTo(new FastConverter.Failure(new Validator.ParserError()));
+    }
+
+    @Test
+    public void non_finite_factors_fail_if_the_conversion_fails() {
+        assertThat(UCUMService.fast().convert(Double.NaN, "m", "g")).isEqualTo(new FastConverter.Failure((Converter.FailedConversion) UCUMService.convert("m", "g")));
+        assertThat(UCUMService.fast().convert(Double.POSITIVE_INFINITY, "[IU]", "g")).isEqualTo(new FastConverter.Failure((Converter.FailedConversion) UCUMService.convert("[IU]", "g")));
+        assertThat(UCUMService.fast().convert(Double.NaN, "[IU]", "g")).isInstanceOf(FastConverter.Failure.class);
+    }
+
+    @Test
+    public void factors_outside_of_double_fall_back_to_exact_conversion() {
+        assertThat(UCUMService.fast().convert(3, "10*200.m", "10*-200.m")).isEqualTo(new FastConverter.Success(
+                ((Converter.Success) UCUMService.convert(new PreciseDecimal("3"), "10*200.m", "10*-200.m")).conversionFactor().getValue().doubleValue()
+        ));
+    }
+}
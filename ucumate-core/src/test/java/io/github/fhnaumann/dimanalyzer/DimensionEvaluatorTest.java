@@ -0,0 +1,80 @@
+package io.github.fhnaumann.dimanalyzer;
+
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Dimension;
+import io.github.fhnaumann.funcs.DimensionAnalyzer;
+import io.github.fhnaumann.funcs.DimensionEvaluator;
+import io.github.fhnaumann.funcs.RelationChecker;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.fhnaumann.TestUtil.parse;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class DimensionEvaluatorTest {
+
+    @Test
+    public void every_unit_matches_canonicalization() {
+        UCUMRegistry registry = UCUMRegistry.getInstance();
+        List<String> codes = new ArrayList<>();
+        registry.getBaseUnits().forEach(unit -> codes.add(unit.code()));
+        registry.getDefinedUnits().forEach(unit -> codes.add(unit.code()));
+        for(String code : codes) {
+            for(String input : new String[]{code, "k" + code, code + "3", "/" + code, "m/" + code + "2", "(" + code + ".s)/g"}) {
+                if(!(Validator.validate(input) instanceof Validator.Success success)) {
+                    continue;
+                }
+                Canonicalizer.CanonicalizationResult canonicalizationResult;
+                try {
+                    canonicalizationResult = new Canonicalizer().canonicalize(success.term());
+                } catch (RuntimeException e) {
+                    // some special units can't be canonicalized in every position, nothing to compare against
+                    continue;
+                }
+                long expected = switch(canonicalizationResult) {
+                    case Canonicalizer.Success canonicalSuccess -> DimensionAnalyzer.vectorOf(canonicalSuccess.canonicalTerm());
+                    case Canonicalizer.FailedCanonicalization failed -> DimensionEvaluator.UNKNOWN;
+                };
+                assertThat(DimensionEvaluator.evaluate(success.term())).as(input).isEqualTo(expected);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "mg/dL, g/L, true",
+            "mmol/L, umol/mL, true",
+            "mmol/L, mg/dL, false",
+            "[in_i], m, true",
+            "N, kg.m/s2, true",
+            "Cel, K, true",
+            // arbitrary units can't be canonicalized and are never commensurable
+            "[IU]/L, [IU]/mL, false",
+            "[IU]/L, mg/L, false",
+    })
+    public void same_result_as_canonicalizing(String first, String second, boolean commensurable) {
+        RelationChecker.CommensurableResult result = UCUMService.checkCommensurable(parse(first), parse(second), false);
+        assertThat(result instanceof RelationChecker.IsCommensurable).isEqualTo(commensurable);
+    }
+
+    @Test
+    public void difference_is_reported() {
+        assertThat(UCUMService.checkCommensurable(parse("m/s"), parse("g"), false))
+                .isEqualTo(new RelationChecker.NotCommensurable(Map.of(
+                        Dimension.LENGTH, 1,
+                        Dimension.TIME, -1,
+                        Dimension.MASS, -1
+                )));
+    }
+}
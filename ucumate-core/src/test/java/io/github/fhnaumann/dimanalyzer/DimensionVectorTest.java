@@ -0,0 +1,87 @@
+package io.github.fhnaumann.dimanalyzer;
+
+import io.github.fhnaumann.funcs.Dimension;
+import io.github.fhnaumann.funcs.DimensionAnalyzer;
+import io.github.fhnaumann.funcs.DimensionVector;
+import io.github.fhnaumann.model.UCUMExpression;
+import io.github.fhnaumann.util.MapUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Map;
+
+import static io.github.fhnaumann.TestUtil.parse_canonical;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class DimensionVectorTest {
+
+    @Test
+    public void lanes_are_signed() {
+        long vector = DimensionVector.add(DimensionVector.of(Dimension.LENGTH, -3), DimensionVector.of(Dimension.LUMINOUS_INTENSITY, 255));
+        vector = DimensionVector.add(vector, DimensionVector.of(Dimension.MASS, -256));
+        assertThat(DimensionVector.toMap(vector)).isEqualTo(Map.of(
+                Dimension.LENGTH, -3,
+                Dimension.MASS, -256,
+                Dimension.LUMINOUS_INTENSITY, 255
+        ));
+        assertThat(DimensionVector.get(vector, Dimension.TIME)).isZero();
+        assertThat(DimensionVector.scale(vector, 0)).isEqualTo(DimensionVector.ZERO);
+    }
+
+    @Test
+    public void overflow_is_sticky() {
+        long vector = DimensionVector.of(Dimension.TIME, 200);
+        assertThat(DimensionVector.add(vector, vector)).isEqualTo(DimensionVector.OVERFLOW);
+        assertThat(DimensionVector.scale(vector, -2)).isEqualTo(DimensionVector.OVERFLOW);
+        assertThat(DimensionVector.add(DimensionVector.OVERFLOW, DimensionVector.scale(vector, -1))).isEqualTo(DimensionVector.OVERFLOW);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "m, m",
+            "s/4/m, s/m",
+            "kg.m/s2, N",
+            "J, W.s",
+            "m3, L",
+            "/s, Hz",
+            "S, g-1.m-2.C2.s",
+            "cd.sr, lm",
+            "K, m",
+            "m2, m-2",
+            "10*3{rbc}, 1",
+            "(m.s)/(g/(K.rad)), mm.s2",
+            "m+100.s-100, m100/s+100",
+    })
+    public void vector_matches_map(String first, String second) {
+        UCUMExpression.CanonicalTerm term = parse_canonical(first);
+        UCUMExpression.CanonicalTerm otherTerm = parse_canonical(second);
+        assertThat(DimensionVector.toMap(DimensionAnalyzer.vectorOf(term))).isEqualTo(MapUtil.filterEmpty(DimensionAnalyzer.analyze(term)));
+
+        Map<Dimension, Integer> expectedDiff = MapUtil.calculateDiff(DimensionAnalyzer.analyze(term), DimensionAnalyzer.analyze(otherTerm), true);
+        DimensionAnalyzer.ComparisonResult result = DimensionAnalyzer.compare(term, otherTerm);
+        if(expectedDiff.isEmpty()) {
+            assertThat(result).isInstanceOf(DimensionAnalyzer.Success.class);
+        }
+        else {
+            assertThat(result).isEqualTo(new DimensionAnalyzer.Failure(expectedDiff));
+        }
+    }
+
+    @Test
+    public void exponents_outside_of_the_vector_fall_back_to_maps() {
+        UCUMExpression.CanonicalTerm term = parse_canonical("m300");
+        assertThat(DimensionAnalyzer.vectorOf(term)).isEqualTo(DimensionVector.OVERFLOW);
+        assertThat(DimensionAnalyzer.compare(term, parse_canonical("m"))).isEqualTo(new DimensionAnalyzer.Failure(Map.of(Dimension.LENGTH, 299)));
+        assertThat(DimensionAnalyzer.compare(term, parse_canonical("m300"))).isInstanceOf(DimensionAnalyzer.Success.class);
+    }
+
+    @Test
+    public void differences_outside_of_the_vector_fall_back_to_maps() {
+        assertThat(DimensionAnalyzer.compare(parse_canonical("m255"), parse_canonical("m-1"))).isEqualTo(new DimensionAnalyzer.Failure(Map.of(Dimension.LENGTH, 256)));
+        assertThat(DimensionAnalyzer.compare(parse_canonical("m-1"), parse_canonical("m-256"))).isEqualTo(new DimensionAnalyzer.Failure(Map.of(Dimension.LENGTH, 255)));
+    }
+}
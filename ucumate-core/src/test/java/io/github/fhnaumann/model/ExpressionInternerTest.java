@@ -0,0 +1,51 @@
+package io.github.fhnaumann.model;
+
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.persistence.InMemoryPersistenceProvider;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class ExpressionInternerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"m", "cm/s2", "kg.m/s2", "(m.s){a}", "/g", "10*3.[ft_i]", "{rbc}", "mg/(24.h)"})
+    public void interning_equal_terms_returns_same_instance(String input) {
+        UCUMExpression.Term first = ExpressionInterner.internDeep(Validator.parseByPassChecks(input));
+        UCUMExpression.Term second = Validator.parseByPassChecks(input);
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        assertThat(ExpressionInterner.internDeep(second)).isSameAs(first);
+    }
+
+    @Test
+    public void different_terms_share_sub_terms() {
+        UCUMExpression.BinaryTerm first = ExpressionInterner.internDeep((UCUMExpression.BinaryTerm) Validator.parseByPassChecks("mg/(24.h)"));
+        UCUMExpression.BinaryTerm second = ExpressionInterner.internDeep((UCUMExpression.BinaryTerm) Validator.parseByPassChecks("ug/(24.h)"));
+        assertThat(second).isNotEqualTo(first);
+        assertThat(second.right()).isSameAs(first.right());
+    }
+
+    @Test
+    public void in_memory_caches_keep_interned_terms() {
+        InMemoryPersistenceProvider provider = new InMemoryPersistenceProvider(10, 10, false);
+        provider.setEnabled(true);
+        UCUMExpression.Term term = Validator.parseByPassChecks("kg.m/s2");
+        provider.saveCanonical(CanonKey.of(term), new Canonicalizer.CanonicalStepResult(term, PreciseDecimal.ONE, PreciseDecimal.ONE, false, null));
+        provider.saveValidated(ValKey.of("kg.m/s2"), new Validator.Success(term));
+
+        UCUMExpression.Term interned = ExpressionInterner.internDeep(Validator.parseByPassChecks("kg.m/s2"));
+        Canonicalizer.CanonicalStepResult canonical = provider.getCanonical(CanonKey.of(Validator.parseByPassChecks("kg.m/s2")));
+        assertThat(canonical.term()).isSameAs(interned);
+        assertThat(provider.getAllCanonical().keySet()).singleElement().extracting(CanonKey::expression).isSameAs(interned);
+        assertThat(((Validator.Success) provider.getValidated(ValKey.of("kg.m/s2"))).term()).isSameAs(interned);
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.fhnaumann.model;
+
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.SpecialChecker;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class TermSummaryTest {
+
+    private static final UCUMRegistry registry = UCUMRegistry.getInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "m", "cm/s2", "kg.m/s2", "(m.s){a}", "(m.s){a}{b}", "/g", "10*3.[ft_i]", "{rbc}", "mg/(24.h)", "mol/L",
+            "umol/L", "eq/L", "osm", "[pH]", "Cel", "Cel/s", "Cel2", "/Cel", "5.Cel", "[IU]", "[IU]/L", "[iU]/mL",
+            "[arb'U]", "kg.(m/(s.(g){x})){y}", "{a}/Cel", "mol.[IU]"
+    })
+    public void summary_matches_term_walks(String input) {
+        UCUMExpression.Term term = Validator.parseByPassChecks(input);
+        TermSummary summary = TermSummary.of(term);
+        assertThat(summary.containsMol()).isEqualTo(containsMol(term, false)).isEqualTo(containsMol(term, true));
+        assertThat(summary.hasAnnotationAfterParens()).isEqualTo(hasAnnotationAfterParens(term));
+        assertThat(summary.isSpecialUsageValid()).isEqualTo(SpecialChecker.checkForSpecialUnitInTerm(term, new SpecialChecker.SpecialCheckResult(false, false, false)).isValid());
+        boolean arbitrary = new Canonicalizer().canonicalize(term) instanceof Canonicalizer.TermHasArbitraryUnit;
+        assertThat(summary.containsArbitraryUnit()).isEqualTo(arbitrary);
+    }
+
+    @Test
+    public void summary_is_computed_once_per_instance() {
+        UCUMExpression.Term term = Validator.parseByPassChecks("kg.m/s2");
+        assertThat(TermSummary.of(term)).isSameAs(TermSummary.of(term));
+    }
+
+    @Test
+    public void depth_and_atom_count() {
+        TermSummary summary = TermSummary.of(Validator.parseByPassChecks("kg.m/s2"));
+        assertThat(summary.atomCount()).isEqualTo(3);
+        assertThat(summary.maxDepth()).isEqualTo(3);
+        assertThat(TermSummary.of(Validator.parseByPassChecks("{rbc}")).atomCount()).isZero();
+    }
+
+    @Test
+    public void unit_flags_of_every_defined_unit() {
+        for(UCUMDefinition.DefinedUnit definedUnit : registry.getDefinedUnits()) {
+            int flags = registry.getUnitFlags(definedUnit);
+            assertThat((flags & TermSummary.CONTAINS_SPECIAL_UNIT) != 0).as(definedUnit.code()).isEqualTo(definedUnit instanceof UCUMDefinition.SpecialUnit);
+            assertThat((flags & TermSummary.CONTAINS_MOL) != 0).as(definedUnit.code())
+                    .isEqualTo(containsMol(Validator.parseByPassChecks(definedUnit.code()), false));
+            if(definedUnit instanceof UCUMDefinition.ArbitraryUnit) {
+                assertThat(flags & TermSummary.CONTAINS_ARBITRARY_UNIT).as(definedUnit.code()).isNotZero();
+            }
+        }
+    }
+
+    // the term walks that were used before the summary existed
+
+    private static boolean containsMol(UCUMExpression.Term term, boolean enableMolMassConversion) {
+        return switch (term) {
+            case UCUMExpression.ComponentTerm componentTerm -> switch (componentTerm.component().unit()) {
+                case UCUMExpression.IntegerUnit integerUnit -> false;
+                case UCUMExpression.SimpleUnit simpleUnit -> simpleUnit.ucumUnit().code().equals("mol")
+                        || simpleUnit.ucumUnit() instanceof UCUMDefinition.DefinedUnit definedUnit
+                        && containsMol(registry.getDefinedUnitSourceDefinition(definedUnit, enableMolMassConversion), enableMolMassConversion);
+            };
+            case UCUMExpression.BinaryTerm binaryTerm -> containsMol(binaryTerm.left(), enableMolMassConversion) || containsMol(binaryTerm.right(), enableMolMassConversion);
+            case UCUMExpression.UnaryDivTerm unaryDivTerm -> containsMol(unaryDivTerm.term(), enableMolMassConversion);
+            case UCUMExpression.AnnotTerm annotTerm -> containsMol(annotTerm.term(), enableMolMassConversion);
+            case UCUMExpression.ParenTerm parenTerm -> containsMol(parenTerm.term(), enableMolMassConversion);
+            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> false;
+        };
+    }
+
+    private static boolean hasAnnotationAfterParens(UCUMExpression.Term term) {
+        return switch (term) {
+            case UCUMExpression.ComponentTerm componentTerm -> false;
+            case UCUMExpression.AnnotOnlyTerm annotOnlyTerm -> false;
+            case UCUMExpression.BinaryTerm binaryTerm -> hasAnnotationAfterParens(binaryTerm.left()) || hasAnnotationAfterParens(binaryTerm.right());
+            case UCUMExpression.UnaryDivTerm unaryDivTerm -> hasAnnotationAfterParens(unaryDivTerm.term());
+            case UCUMExpression.AnnotTerm annotTerm -> annotTerm.term() instanceof UCUMExpression.ParenTerm;
+            case UCUMExpression.ParenTerm parenTerm -> hasAnnotationAfterParens(parenTerm.term());
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.fhnaumann.special;
+
+import io.github.fhnaumann.funcs.Converter;
+import io.github.fhnaumann.funcs.FastConverter;
+import io.github.fhnaumann.funcs.UCUMService;
+import io.github.fhnaumann.model.special.DefaultSpecialUnitsFunctionProvider;
+import io.github.fhnaumann.model.special.SpecialUnits;
+import io.github.fhnaumann.model.special.SpecialUnitsFunctionProvider;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Felix Naumann
+ */
+public class SpecialUnitsRegistryTest {
+
+    @Test
+    public void functions_are_resolved_once_per_provider() {
+        SpecialUnitsFunctionProvider.ConversionFunction cel = SpecialUnits.getFunction("Cel");
+        assertThat(SpecialUnits.getFunction("Cel")).isSameAs(cel);
+        assertThatThrownBy(() -> SpecialUnits.getFunction("unknown")).isInstanceOf(IllegalArgumentException.class);
+
+        SpecialUnitsFunctionProvider.ConversionFunction custom = SpecialUnitsFunctionProvider.offset(new PreciseDecimal("1"));
+        try {
+            SpecialUnits.setProvider(() -> Map.of("Cel", custom));
+            assertThat(SpecialUnits.getFunction("Cel")).isSameAs(custom);
+        } finally {
+            SpecialUnits.setProvider(new DefaultSpecialUnitsFunctionProvider());
+        }
+        assertThat(SpecialUnits.getFunction("Cel").offset()).isEqualTo(new PreciseDecimal("273.15"));
+    }
+
+    @Test
+    public void only_shifts_have_an_offset() {
+        assertThat(SpecialUnits.getFunction("degF").offset()).isEqualTo(new PreciseDecimal("459.67"));
+        assertThat(SpecialUnits.getFunction("degRe").offset()).isEqualTo(new PreciseDecimal("218.52"));
+        assertThat(SpecialUnits.getFunction("pH").offset()).isNull();
+        assertThat(SpecialUnits.getFunction("lgTimes2").offset()).isNull();
+    }
+
+    @Test
+    public void exact_shifts_are_exact() {
+        SpecialUnitsFunctionProvider.ConversionFunction shift = SpecialUnitsFunctionProvider.offset(new PreciseDecimal("273.15"));
+        assertThat(shift.toCanonical(new PreciseDecimal("37")).getValue()).isEqualByComparingTo("310.15");
+        assertThat(shift.fromCanonical(new PreciseDecimal("310.15")).getValue()).isEqualByComparingTo("37");
+        assertThat(shift.toCanonical(37d)).isEqualTo(310.15);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "37, Cel, [degF]",
+            "98.6, [degF], Cel",
+            "-40, [degF], mCel",
+            "20, [degRe], [degF]",
+            "300, K, Cel",
+            "25, Cel, K",
+    })
+    public void fused_shifts_match_exact_conversion(double factor, String from, String to) {
+        double expected = ((Converter.Success) UCUMService.convert(Double.toString(factor), from, to)).conversionFactor().getValue().doubleValue();
+        double fast = ((FastConverter.Success) UCUMService.fast().convert(factor, from, to)).conversionFactor();
+        assertThat(fast).isCloseTo(expected, within(Math.max(Math.abs(expected), 1) * 1e-12));
+        double[] values = {factor, factor, factor};
+        UCUMService.plan(from, to).applyAll(values, values);
+        for(double value : values) {
+            assertThat(value).isCloseTo(expected, within(Math.max(Math.abs(expected), 1) * 1e-12));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the trie based {@link ParseUtil#separatePrefixFromUnit(String, UCUMRegistry)} with the original suffix
+ * enumeration.
+ *
+ * @author Felix Naumann
+ */
+public class ParseUtilTest {
+
+    private static final UCUMRegistry registry = UCUMRegistry.getInstance();
+
+    @ParameterizedTest
+    @MethodSource("provide_atoms")
+    public void trie_matches_suffix_enumeration(String atom) {
+        assertThat(ParseUtil.separatePrefixFromUnit(atom, registry)).isEqualTo(separateBySuffixEnumeration(atom));
+    }
+
+    @Test
+    public void trie_matches_suffix_enumeration_for_all_prefixed_units() {
+        List<String> units = new ArrayList<>();
+        registry.getBaseUnits().forEach(baseUnit -> units.add(baseUnit.code()));
+        registry.getDefinedUnits().forEach(definedUnit -> units.add(definedUnit.code()));
+        List<String> atoms = new ArrayList<>(units);
+        for(UCUMDefinition.UCUMPrefix prefix : registry.getPrefixes()) {
+            units.forEach(unit -> atoms.add(prefix.code() + unit));
+            atoms.add(prefix.code());
+        }
+        List<String> mismatches = atoms.stream()
+                .filter(atom -> !ParseUtil.separatePrefixFromUnit(atom, registry).equals(separateBySuffixEnumeration(atom)))
+                .toList();
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    public void range_overload_resolves_inside_larger_text() {
+        assertThat(ParseUtil.separatePrefixFromUnit("(cm.s)", 1, 3, registry))
+                .isEqualTo(new ParseUtil.SuccessPrefixUnit(registry.getPrefix("c").orElseThrow(), registry.getUCUMUnit("m").orElseThrow()));
+    }
+
+    private static Stream<String> provide_atoms() {
+        return Stream.of("m", "cm", "cd", "da", "dam", "mm", "Kibit", "kg", "g", "xyz", "xm", "", "c", "m[H2O]", "cm[H2O]", "[ft_i]", "c[ft_i]", "10*", "k10*", "%", "k%", "mg%");
+    }
+
+    /*
+    The original implementation before the trie was introduced.
+     */
+    private static ParseUtil.MatchResult separateBySuffixEnumeration(String text) {
+        List<ParseUtil.MatchResult> matchResults = IntStream.iterate(text.length() - 1, i -> i >= 0, i -> i - 1)
+                .mapToObj(text::substring)
+                .map(suffix -> {
+                    Optional<UCUMDefinition.UCUMUnit> unit = registry.getUCUMUnit(suffix);
+                    if(unit.isEmpty()) {
+                        return new ParseUtil.InvalidUnit(text);
+                    }
+                    String remaining = text.substring(0, text.length() - suffix.length());
+                    if(remaining.isEmpty()) {
+                        return new ParseUtil.SuccessNoPrefixUnit(unit.get());
+                    }
+                    return registry.getPrefix(remaining)
+                            .<ParseUtil.MatchResult>map(prefix -> new ParseUtil.SuccessPrefixUnit(prefix, unit.get()))
+                            .orElse(new ParseUtil.InvalidPrefix(remaining));
+                })
+                .toList();
+        return matchResults.stream()
+                .filter(matchResult -> matchResult instanceof ParseUtil.SuccessNoPrefixUnit || matchResult instanceof ParseUtil.SuccessPrefixUnit)
+                .sorted(Comparator.comparingInt(matchResult -> matchResult instanceof ParseUtil.SuccessNoPrefixUnit ? 0 : 1))
+                .findFirst()
+                .orElse(new ParseUtil.InvalidResults(matchResults.stream()
+                        .distinct()
+                        .filter(matchResult -> matchResult instanceof ParseUtil.FailureResult)
+                        .map(ParseUtil.FailureResult.class::cast)
+                        .toList()));
+    }
+}
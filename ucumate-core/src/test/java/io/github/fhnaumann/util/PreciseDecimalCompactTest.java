@@ -0,0 +1,101 @@
+package io.github.fhnaumann.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Values with at most 18 digits are computed on longs. The results have to be the same as computing them with
+ * BigDecimals, also when the longs overflow.
+ *
+ * @author Felix Naumann
+ */
+public class PreciseDecimalCompactTest {
+
+    @Test
+    public void unlimited_arithmetic_is_the_same_as_with_big_decimals() {
+        List<BigDecimal> values = randomValues();
+        for(int i = 0; i + 1 < values.size(); i++) {
+            BigDecimal a = values.get(i);
+            BigDecimal b = values.get(i + 1);
+            PreciseDecimal first = new PreciseDecimal(a);
+            PreciseDecimal second = new PreciseDecimal(b);
+            assertThat(first.multiply(second)).as("%s * %s", a, b).isEqualTo(new PreciseDecimal(stripFractionZeros(first.getValue().multiply(second.getValue()))));
+            assertThat(first.add(second).getValue()).as("%s + %s", a, b).isEqualTo(first.getValue().add(second.getValue()));
+            assertThat(first.subtract(second).getValue()).as("%s - %s", a, b).isEqualTo(first.getValue().subtract(second.getValue()));
+            if(b.signum() != 0 && !first.equals(second)) {
+                BigDecimal quotient = first.getValue().divide(second.getValue(), PreciseDecimal.getUnlimitedPrecision(), RoundingMode.HALF_UP);
+                assertThat(first.divide(second)).as("%s / %s", a, b).isEqualTo(new PreciseDecimal(stripFractionZeros(quotient)));
+            }
+            int exponent = i % 5;
+            assertThat(first.pow(exponent).getValue()).as("%s ^ %s", a, exponent).isEqualTo(exponent == 0 ? BigDecimal.ONE : first.getValue().pow(exponent));
+        }
+    }
+
+    @Test
+    public void limited_arithmetic_is_the_same_as_with_big_decimals() {
+        List<BigDecimal> values = randomValues();
+        for(int i = 0; i + 1 < values.size(); i++) {
+            PreciseDecimal first = new PreciseDecimal(values.get(i).toPlainString() + (values.get(i).scale() <= 0 ? ".0" : ""), true);
+            PreciseDecimal second = new PreciseDecimal(values.get(i + 1));
+
+            PreciseDecimal product = first.multiply(second);
+            BigDecimal expectedProduct = first.getValue().multiply(second.getValue(), new MathContext(first.getPrecision(), RoundingMode.HALF_UP));
+            assertThat(product.getValue()).as("%s * %s", first, second).isEqualTo(expectedProduct);
+            assertThat(product.getScale()).isEqualTo(expectedProduct.scale());
+            assertThat(product.getPrecision()).isEqualTo(first.getPrecision());
+
+            PreciseDecimal sum = first.add(second);
+            BigDecimal expectedSum = first.getValue().add(second.getValue()).setScale(first.getScale(), RoundingMode.HALF_UP);
+            assertThat(sum.getValue()).as("%s + %s", first, second).isEqualTo(expectedSum);
+            assertThat(sum.getPrecision()).isEqualTo(expectedSum.abs().toPlainString().replace(".", "").length());
+        }
+    }
+
+    @Test
+    public void rounding_carries_into_another_digit() {
+        PreciseDecimal product = new PreciseDecimal("9.99", true).multiply(new PreciseDecimal("1.0", true));
+        assertThat(product.getValue()).isEqualTo(new BigDecimal("10"));
+        assertThat(product.toString()).isEqualTo(new BigDecimal("9.99").multiply(BigDecimal.ONE, new MathContext(2, RoundingMode.HALF_UP)).toPlainString());
+    }
+
+    @Test
+    public void compact_and_big_values_are_equal() {
+        PreciseDecimal compact = new PreciseDecimal("0.125");
+        PreciseDecimal big = new PreciseDecimal("1").divide(new PreciseDecimal("8"));
+        assertThat(compact).isEqualTo(big);
+        assertThat(compact.hashCode()).isEqualTo(big.hashCode());
+        assertThat(new PreciseDecimal("123456789012345678901234567890").multiply(new PreciseDecimal("0.1")))
+                .isEqualTo(new PreciseDecimal("12345678901234567890123456789"));
+    }
+
+    private static List<BigDecimal> randomValues() {
+        Random random = new Random(7);
+        List<BigDecimal> values = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            long unscaled = switch (i % 4) {
+                case 0 -> random.nextLong(-1000, 1000);
+                case 1 -> random.nextLong(-1_000_000_000L, 1_000_000_000L);
+                case 2 -> random.nextLong(-999_999_999_999_999_999L, 999_999_999_999_999_999L);
+                default -> random.nextBoolean() ? 0 : (long) Math.pow(10, random.nextInt(0, 18));
+            };
+            values.add(BigDecimal.valueOf(unscaled, random.nextInt(-3, 12)));
+        }
+        return values;
+    }
+
+    private static BigDecimal stripFractionZeros(BigDecimal value) {
+        if(value.scale() <= 0) {
+            return value;
+        }
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+}
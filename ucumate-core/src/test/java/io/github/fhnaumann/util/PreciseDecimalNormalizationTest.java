@@ -0,0 +1,85 @@
+package io.github.fhnaumann.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The arithmetic no longer prints and parses its results. It has to produce the same numbers as before.
+ *
+ * @author Felix Naumann
+ */
+public class PreciseDecimalNormalizationTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "2, 3",
+            "0.5, 4",
+            "2.5, 0.4",
+            "1000, 0.001",
+            "-0.50, 2",
+            "1e3, 1",
+            "1.000e2, 1",
+            "0.000, 7",
+            "3, 7",
+            "-1, 3",
+            "1, 8",
+            "1, 1024",
+            "123456789012345678901.5000, 2",
+            "123456789012345678901.5000, 0.25",
+    })
+    public void unlimited_results_are_the_same_as_reparsing_them(String first, String second) {
+        PreciseDecimal a = new PreciseDecimal(first);
+        PreciseDecimal b = new PreciseDecimal(second);
+        assertThat(a.multiply(b)).isEqualTo(reparsed(a.getValue().multiply(b.getValue())));
+        assertThat(a.divide(b)).isEqualTo(a.equals(b) ? PreciseDecimal.ONE : reparsed(a.getValue().divide(b.getValue(), PreciseDecimal.getUnlimitedPrecision(), RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    public void random_unlimited_results_are_the_same_as_reparsing_them() {
+        Random random = new Random(42);
+        List<BigDecimal> values = new ArrayList<>();
+        for(int i = 0; i < 500; i++) {
+            values.add(BigDecimal.valueOf(random.nextLong(-1_000_000, 1_000_000), random.nextInt(-8, 12)));
+        }
+        for(BigDecimal value : values) {
+            assertThat(new PreciseDecimal(value)).isEqualTo(new PreciseDecimal(value.toPlainString()));
+            PreciseDecimal product = new PreciseDecimal(value).multiply(new PreciseDecimal("10"));
+            assertThat(product).isEqualTo(reparsed(value.multiply(BigDecimal.TEN)));
+        }
+    }
+
+    @Test
+    public void limited_precision_is_the_same_as_counting_digits() {
+        assertThat(new PreciseDecimal("1.001", true).add(new PreciseDecimal("2.00", true)).getPrecision()).isEqualTo(3);
+        assertThat(new PreciseDecimal("0.05", true).subtract(new PreciseDecimal("0.01", true)).getPrecision()).isEqualTo(3);
+        assertThat(new PreciseDecimal("-12.5", true).add(new PreciseDecimal("0.25", true)).getPrecision()).isEqualTo(3);
+        // 1.2E+4 after rounding to 2 digits, which is printed as 12000
+        PreciseDecimal rounded = new PreciseDecimal("12345").multiply(new PreciseDecimal("1.0", true));
+        assertThat(rounded.add(new PreciseDecimal("1")).getPrecision()).isEqualTo(5);
+        assertThat(PreciseDecimal.fromDoubleFixedScale(-0.0012)).isEqualTo(new PreciseDecimal("-0.00120000000000000000", true));
+        assertThat(PreciseDecimal.fromDoubleFixedScale(310.15)).isEqualTo(new PreciseDecimal("310.15000000000000000000", true));
+    }
+
+    /*
+    How unlimited results were created before: printed, trailing zeros cut off and parsed again.
+     */
+    private static PreciseDecimal reparsed(BigDecimal result) {
+        String s = result.toPlainString();
+        if(s.contains(".")) {
+            s = s.replaceFirst("0+$", "");
+            if(s.endsWith(".")) {
+                s = s.substring(0, s.length() - 1);
+            }
+        }
+        return new PreciseDecimal(s);
+    }
+}
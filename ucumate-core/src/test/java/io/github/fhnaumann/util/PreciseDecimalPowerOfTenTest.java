@@ -0,0 +1,82 @@
+package io.github.fhnaumann.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Multiplying and dividing by powers of ten (and raising them) only shifts the scale. The results have to be the same
+ * as computing them with BigDecimals.
+ *
+ * @author Felix Naumann
+ */
+public class PreciseDecimalPowerOfTenTest {
+
+    private static final List<String> POWERS_OF_TEN = List.of("1", "10", "1000", "0.01", "1e3", "1e-3", "1e24", "1e-24", "1e-6", "100000000000000000000");
+
+    private static final List<PreciseDecimal> VALUES = List.of(
+            new PreciseDecimal("2.54"),
+            new PreciseDecimal("-0.000125"),
+            new PreciseDecimal("123456789012345678901234567890"),
+            new PreciseDecimal("1e-40"),
+            new PreciseDecimal("1").divide(new PreciseDecimal("3")),
+            new PreciseDecimal("2").divide(new PreciseDecimal("7")).multiply(new PreciseDecimal("1e40")),
+            new PreciseDecimal("0")
+    );
+
+    @Test
+    public void multiplying_is_the_same_as_with_big_decimals() {
+        for(String powerOfTen : POWERS_OF_TEN) {
+            PreciseDecimal factor = new PreciseDecimal(powerOfTen);
+            for(PreciseDecimal value : VALUES) {
+                PreciseDecimal expected = new PreciseDecimal(stripFractionZeros(value.getValue().multiply(factor.getValue())));
+                assertThat(value.multiply(factor)).as("%s * %s", value, powerOfTen).isEqualTo(expected);
+                assertThat(factor.multiply(value)).as("%s * %s", powerOfTen, value).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void dividing_is_the_same_as_with_big_decimals() {
+        for(String powerOfTen : POWERS_OF_TEN) {
+            PreciseDecimal divisor = new PreciseDecimal(powerOfTen);
+            for(PreciseDecimal value : VALUES) {
+                if(value.equals(divisor)) {
+                    continue;
+                }
+                BigDecimal quotient = value.getValue().divide(divisor.getValue(), PreciseDecimal.getUnlimitedPrecision(), RoundingMode.HALF_UP);
+                assertThat(value.divide(divisor)).as("%s / %s", value, powerOfTen).isEqualTo(new PreciseDecimal(stripFractionZeros(quotient)));
+            }
+        }
+        // rounded because the quotient has more than 50 fraction digits
+        assertThat(new PreciseDecimal("1e-40").divide(new PreciseDecimal("1e20"))).isEqualTo(PreciseDecimal.ZERO);
+    }
+
+    @Test
+    public void negative_powers_are_the_same_as_with_big_decimals() {
+        MathContext mc = new MathContext(PreciseDecimal.getUnlimitedPrecision(), RoundingMode.HALF_UP);
+        for(String powerOfTen : POWERS_OF_TEN) {
+            PreciseDecimal base = new PreciseDecimal(powerOfTen);
+            for(int exponent = 1; exponent <= 9; exponent++) {
+                BigDecimal expected = BigDecimal.ONE.divide(base.getValue().pow(exponent, mc), mc);
+                PreciseDecimal powered = base.pow(-exponent);
+                // BigDecimal#equals also compares the scale
+                assertThat(powered.getValue()).as("%s ^ -%s", powerOfTen, exponent).isEqualTo(expected);
+                assertThat(powered.toString()).isEqualTo(expected.round(new MathContext(100)).toPlainString());
+            }
+        }
+    }
+
+    private static BigDecimal stripFractionZeros(BigDecimal value) {
+        if(value.scale() <= 0) {
+            return value;
+        }
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+}
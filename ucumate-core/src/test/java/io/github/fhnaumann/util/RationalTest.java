@@ -0,0 +1,49 @@
+package io.github.fhnaumann.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Felix Naumann
+ */
+public class RationalTest {
+
+    @Test
+    public void decimals_are_reduced() {
+        assertThat(Rational.of(new BigDecimal("0.0254"))).hasToString("127/5000");
+        assertThat(Rational.of(new BigDecimal("-2.50"))).hasToString("-5/2");
+        assertThat(Rational.of(new BigDecimal("1E+3"))).isEqualTo(Rational.of(1000));
+        assertThat(Rational.of(new PreciseDecimal("0.001")).getDenominator()).isEqualTo(BigInteger.valueOf(1000));
+    }
+
+    @Test
+    public void arithmetic_is_exact() {
+        Rational third = Rational.ONE.divide(Rational.of(3));
+        assertThat(third.multiply(Rational.of(3))).isEqualTo(Rational.ONE);
+        assertThat(third.pow(-2)).isEqualTo(Rational.of(9));
+        assertThat(Rational.of(new BigDecimal("0.1")).pow(3).reciprocal()).isEqualTo(Rational.of(1000));
+        assertThat(Rational.of(-4).reciprocal()).hasToString("-1/4");
+        assertThat(Rational.of(0).multiply(third)).isEqualTo(Rational.of(0));
+    }
+
+    @Test
+    public void rounded_once_to_unlimited_precision() {
+        PreciseDecimal third = Rational.of(1).divide(Rational.of(3)).toPreciseDecimal();
+        assertThat(third).isEqualTo(PreciseDecimal.ONE.divide(new PreciseDecimal("3")));
+        assertThat(third.getValue()).isEqualTo(BigDecimal.ONE.divide(BigDecimal.valueOf(3), PreciseDecimal.getUnlimitedPrecision(), RoundingMode.HALF_UP));
+        assertThat(Rational.of(new BigDecimal("12.50")).toPreciseDecimal()).isEqualTo(new PreciseDecimal("12.5"));
+    }
+
+    @Test
+    public void zero_has_no_reciprocal() {
+        assertThatThrownBy(() -> Rational.of(0).reciprocal()).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Rational.ONE.divide(Rational.of(0))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Rational.of(new PreciseDecimal("1.5", true))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.model.UCUMExpression;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Felix Naumann
+ */
+public class RegistrySnapshotTest {
+
+    private static final UCUMRegistry registry = UCUMRegistry.getInstance();
+    private static byte[] xml;
+
+    @BeforeAll
+    public static void readXML() throws IOException {
+        try(InputStream in = RegistrySnapshotTest.class.getClassLoader().getResourceAsStream("ucum-essence.xml")) {
+            xml = in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void generated_snapshot_matches_xml() {
+        RegistrySnapshot.Snapshot snapshot = RegistrySnapshot.load(xml);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.essence()).isEqualTo(UCUMRegistry.readEssenceXML(new ByteArrayInputStream(xml)));
+        assertThat(snapshot.sourceDefinitions()).hasSize(registry.getDefinedUnits().size());
+        for(UCUMDefinition.DefinedUnit definedUnit : registry.getDefinedUnits()) {
+            assertThat(snapshot.sourceDefinitions().get(definedUnit.code()))
+                    .as(definedUnit.code())
+                    .isEqualTo(registry.getDefinedUnitSourceDefinition(definedUnit, false));
+        }
+    }
+
+    @Test
+    public void round_trip() throws IOException {
+        UCUMDefinition.UCUMEssence essence = UCUMRegistry.readEssenceXML(new ByteArrayInputStream(xml));
+        Map<String, UCUMExpression.Term> sourceDefinitions = new LinkedHashMap<>();
+        for(String code : new String[]{"L", "[ft_i]", "Cel", "[pH]", "mol", "[IU]"}) {
+            sourceDefinitions.put(code, registry.getDefinedUnitSourceDefinition(registry.getDefinedUnit(code).orElseThrow(), false));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RegistrySnapshot.write(42, essence, sourceDefinitions, out);
+
+        RegistrySnapshot.Snapshot snapshot = RegistrySnapshot.read(42, new ByteArrayInputStream(out.toByteArray()));
+        assertThat(snapshot.essence()).isEqualTo(essence);
+        assertThat(snapshot.sourceDefinitions()).isEqualTo(sourceDefinitions);
+    }
+
+    @Test
+    public void snapshot_of_different_xml_is_ignored() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RegistrySnapshot.write(42, UCUMRegistry.readEssenceXML(new ByteArrayInputStream(xml)), Map.of(), out);
+        assertThat(RegistrySnapshot.read(43, new ByteArrayInputStream(out.toByteArray()))).isNull();
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.fhnaumann.util;
+
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.model.UCUMExpression;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+/**
+ * @author Felix Naumann
+ */
+public class UCUMRegistryTest {
+
+    private static final UCUMRegistry registry = UCUMRegistry.getInstance();
+
+    @Test
+    public void parsed_definitions_match_the_snapshot() throws Exception {
+        UCUMRegistry fromXML;
+        try(InputStream in = getClass().getClassLoader().getResourceAsStream("ucum-essence.xml")) {
+            fromXML = new UCUMRegistry(UCUMRegistry.readEssenceXML(in), Map.of());
+        }
+        for(UCUMDefinition.DefinedUnit definedUnit : registry.getDefinedUnits()) {
+            UCUMDefinition.DefinedUnit other = fromXML.getDefinedUnit(definedUnit.code()).orElseThrow();
+            assertThat(fromXML.getDefinedUnitSourceDefinition(other, false))
+                    .as(definedUnit.code())
+                    .isEqualTo(registry.getDefinedUnitSourceDefinition(definedUnit, false));
+            assertThat(fromXML.getUnitFlags(other)).as(definedUnit.code()).isEqualTo(registry.getUnitFlags(definedUnit));
+        }
+    }
+
+    @Test
+    public void concurrent_reads_return_the_same_instances() {
+        List<UCUMDefinition.DefinedUnit> definedUnits = List.copyOf(registry.getDefinedUnits());
+        List<UCUMExpression.Term> expected = definedUnits.stream().map(unit -> registry.getDefinedUnitSourceDefinition(unit, false)).toList();
+        for(int i = 0; i < 20; i++) {
+            List<UCUMExpression.Term> actual = definedUnits.parallelStream().map(unit -> registry.getDefinedUnitSourceDefinition(unit, false)).toList();
+            for(int j = 0; j < expected.size(); j++) {
+                assertThat(actual.get(j)).isSameAs(expected.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void warmup_resolves_every_unit() {
+        assertThatCode(registry::warmup).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.fhnaumann.validator;
+
+import io.github.fhnaumann.TestCaseLoader;
+import io.github.fhnaumann.TestSuite;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.FastUCUMParser;
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Differential test that uses the ANTLR parser as the oracle for the hand-written {@link FastUCUMParser}.
+ *
+ * @author Felix Naumann
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FastUCUMParserTest {
+
+    private static final String INVALID = "<invalid>";
+    private static final String ALPHABET = "mgsLK%10*^[]{}()/.+-2_ipa ";
+
+    private TestSuite testSuite;
+
+    @BeforeAll
+    public void setup() throws IOException {
+        testSuite = TestCaseLoader.load();
+        ConfigurationRegistry.initialize(Configuration.builder().parserMode(Configuration.ParserMode.ANTLR).build());
+    }
+
+    @AfterAll
+    public void tearDown() {
+        ConfigurationRegistry.initialize(Configuration.builder().build());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provide_edge_cases")
+    public void fast_parser_matches_antlr_on_edge_cases(String input) {
+        assertThat(parseFast(input)).isEqualTo(parseAntlr(input));
+    }
+
+    @Test
+    public void fast_parser_matches_antlr_on_test_corpus() {
+        List<String> inputs = new ArrayList<>();
+        testSuite.validate.forEach(testCase -> inputs.add(testCase.inputExpression()));
+        testSuite.commensurable.forEach(testCase -> {
+            inputs.add(testCase.expr1());
+            inputs.add(testCase.expr2());
+        });
+        testSuite.convert.forEach(testCase -> {
+            inputs.add(testCase.from());
+            inputs.add(testCase.to());
+        });
+        assertNoMismatches(inputs);
+    }
+
+    @Test
+    public void fast_parser_matches_antlr_on_all_prefixed_units() {
+        UCUMRegistry registry = UCUMRegistry.getInstance();
+        List<String> unitCodes = new ArrayList<>();
+        registry.getBaseUnits().forEach(baseUnit -> unitCodes.add(baseUnit.code()));
+        registry.getDefinedUnits().forEach(definedUnit -> unitCodes.add(definedUnit.code()));
+        List<String> inputs = new ArrayList<>(unitCodes);
+        for(UCUMDefinition.UCUMPrefix prefix : registry.getPrefixes()) {
+            unitCodes.forEach(unitCode -> inputs.add(prefix.code() + unitCode));
+        }
+        assertNoMismatches(inputs);
+    }
+
+    @Test
+    public void fast_parser_matches_antlr_on_random_inputs() {
+        Random random = new Random(42);
+        List<String> inputs = new ArrayList<>();
+        for(int i = 0; i < 20_000; i++) {
+            int length = 1 + random.nextInt(10);
+            StringBuilder sb = new StringBuilder();
+            for(int j = 0; j < length; j++) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs.add(sb.toString());
+        }
+        assertNoMismatches(inputs);
+    }
+
+    private void assertNoMismatches(List<String> inputs) {
+        List<String> mismatches = new ArrayList<>();
+        for(String input : inputs) {
+            String expected;
+            try {
+                expected = parseAntlr(input);
+            } catch(NumberFormatException e) {
+                // ANTLR path does not handle integer overflow, the fast parser reports it as invalid
+                continue;
+            }
+            String actual = parseFast(input);
+            if(!expected.equals(actual)) {
+                mismatches.add("'%s': antlr=%s fast=%s".formatted(input, expected, actual));
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    private static String parseAntlr(String input) {
+        try {
+            return Validator.parseByPassChecks(input).toString();
+        } catch(Validator.LexerException | Validator.ParserException e) {
+            return INVALID;
+        }
+    }
+
+    private static String parseFast(String input) {
+        try {
+            return FastUCUMParser.parse(input, UCUMRegistry.getInstance()).toString();
+        } catch(Validator.LexerException | Validator.ParserException e) {
+            return INVALID;
+        }
+    }
+
+    private static Stream<String> provide_edge_cases() {
+        return Stream.of(
+                "m", "cm", "cd", "da", "dam", "mm", "k%", "10*3", "10^-3", "[ft_i]2", "c[ft_i]", "cm[H2O]", "mg%", "%[slope]",
+                "m.s/g", "m/s.g", "m/s/g", "m.s.g", "m/s{x}", "(m){a}{b}", "{}", "{a b}", "{ }", "2+3",
+                "/m", "/m)", "/m m", "/m.s", "/m/s", "/m/(", "/m+", "/cm[", "/m{ab",
+                "{10*3}", "{%}", "{[pi]}", "m)", "/", "", "a.b/c", "m+", "m\t", "g{正}", "[", "[]", "m[", "(m"
+        );
+    }
+}
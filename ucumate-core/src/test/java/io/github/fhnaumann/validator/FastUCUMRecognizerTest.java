@@ -0,0 +1,117 @@
+package io.github.fhnaumann.validator;
+
+import io.github.fhnaumann.TestCaseLoader;
+import io.github.fhnaumann.TestSuite;
+import io.github.fhnaumann.configuration.Configuration;
+import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.FastUCUMRecognizer;
+import io.github.fhnaumann.model.UCUMDefinition;
+import io.github.fhnaumann.util.UCUMRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Differential test that uses {@link Validator#validate(String)} as the oracle for the {@link FastUCUMRecognizer}.
+ *
+ * @author Felix Naumann
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FastUCUMRecognizerTest {
+
+    private static final String ALPHABET = "mgsLK%10*^[]{}()/.+-2_ipaCel ";
+
+    private TestSuite testSuite;
+    private List<String> inputs;
+
+    @BeforeAll
+    public void setup() throws IOException {
+        testSuite = TestCaseLoader.load();
+        inputs = new ArrayList<>();
+        testSuite.validate.forEach(testCase -> inputs.add(testCase.inputExpression()));
+        testSuite.commensurable.forEach(testCase -> {
+            inputs.add(testCase.expr1());
+            inputs.add(testCase.expr2());
+        });
+        testSuite.convert.forEach(testCase -> {
+            inputs.add(testCase.from());
+            inputs.add(testCase.to());
+        });
+        UCUMRegistry registry = UCUMRegistry.getInstance();
+        List<String> unitCodes = new ArrayList<>();
+        registry.getBaseUnits().forEach(baseUnit -> unitCodes.add(baseUnit.code()));
+        registry.getDefinedUnits().forEach(definedUnit -> unitCodes.add(definedUnit.code()));
+        inputs.addAll(unitCodes);
+        for(UCUMDefinition.UCUMPrefix prefix : registry.getPrefixes()) {
+            unitCodes.forEach(unitCode -> inputs.add(prefix.code() + unitCode));
+        }
+        Random random = new Random(42);
+        for(int i = 0; i < 20_000; i++) {
+            int length = 1 + random.nextInt(10);
+            StringBuilder sb = new StringBuilder();
+            for(int j = 0; j < length; j++) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs.add(sb.toString());
+        }
+        inputs.addAll(provide_edge_cases().toList());
+    }
+
+    @AfterAll
+    public void tearDown() {
+        ConfigurationRegistry.initialize(Configuration.builder().build());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provide_configurations")
+    public void recognizer_matches_validator(Configuration configuration) {
+        ConfigurationRegistry.initialize(configuration);
+        List<String> mismatches = new ArrayList<>();
+        for(String input : inputs) {
+            boolean expected = Validator.validate(input) instanceof Validator.Success;
+            boolean actual = FastUCUMRecognizer.recognize(input, UCUMRegistry.getInstance());
+            if(expected != actual) {
+                mismatches.add("'%s': validate=%s recognize=%s".formatted(input, expected, actual));
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    public void validate_to_bool_uses_recognizer_result() {
+        ConfigurationRegistry.initialize(Configuration.builder().build());
+        assertThat(Validator.validateToBool("m/s")).isTrue();
+        assertThat(Validator.validateToBool("m/s")).isTrue();
+        assertThat(Validator.validateToBool("Cel/s")).isFalse();
+        assertThat(Validator.validateToBool("xyz")).isFalse();
+    }
+
+    private static Stream<Configuration> provide_configurations() {
+        return Stream.of(
+                Configuration.builder().build(),
+                Configuration.builder().allowAnnotAfterParens(false).build(),
+                Configuration.builder().enablePrefixOnNonMetricUnits(false).build()
+        );
+    }
+
+    private static Stream<String> provide_edge_cases() {
+        return Stream.of(
+                "(m){a}", "(m){a}{b}", "((m){a}).s", "(m.s){a}/g", "m.(s){a}", "/(m){a}", "{a}", "(m{a})",
+                "Cel", "Cel2", "/Cel", "Cel/s", "Cel.2", "2.Cel", "(Cel)", "(Cel).m", "Cel.m2", "Cel{a}", "10*3.Cel",
+                "[degF]", "m[degF]", "k[degF]", "[pH]/2", "k[ft_i]", "c[in_i]", "2147483647", "2147483648", "m2147483648",
+                "m-2147483648", "m-2147483649", "{ }", "{}", "{a b}", "/m m", "/m)", "m)", "", "/"
+        );
+    }
+}
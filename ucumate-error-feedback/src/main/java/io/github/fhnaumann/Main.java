@@ -4,6 +4,7 @@ import io.github.fhnaumann.funcs.UCUMService;
 import io.github.fhnaumann.funcs.Validator;
 import io.github.fhnaumann.funcs.printer.Printer;
 import io.github.fhnaumann.model.UCUMExpression;
+import io.github.fhnaumann.util.AntlrParsingContext;
 import io.github.fhnaumann.util.UCUMRegistry;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -15,6 +16,10 @@ import java.util.List;
  * @author Felix Naumann
  */
 public class Main {
+
+    private static final ThreadLocal<AntlrParsingContext<ErrorFeedbackUCUMLexer, ErrorFeedbackUCUMParser>> PARSING_CONTEXT =
+            ThreadLocal.withInitial(() -> new AntlrParsingContext<>(ErrorFeedbackUCUMLexer::new, ErrorFeedbackUCUMParser::new));
+
     public static void main(String[] args) {
         visit("cft_i");
 
@@ -27,15 +32,8 @@ public class Main {
     public record Failure(List<String> errorMessages) implements Result {}
 
     public static Result visit(String input) {
-        ErrorFeedbackUCUMLexer lexer = new ErrorFeedbackUCUMLexer(CharStreams.fromString(input));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-                throw new Validator.LexerException("Lexical error at line " + line + ":" + charPositionInLine + ": " + msg);
-            }
-        });
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        AntlrParsingContext<ErrorFeedbackUCUMLexer, ErrorFeedbackUCUMParser> context = PARSING_CONTEXT.get();
+        CommonTokenStream tokens = context.reset(input);
 
         List<String> errorMessages = new ArrayList<>();
         SyntaxMatchHelper.checkWhiteSpace(tokens, errorMessages);
@@ -43,16 +41,7 @@ public class Main {
         // small hack to continue parsing if an error with spacing has occurred
 
 
-        ErrorFeedbackUCUMParser parser = new ErrorFeedbackUCUMParser(tokens);
-        // parser.getInterpreter().setPredictionMode(PredictionMode.LL);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-                throw new Validator.ParserException("Syntax error at line " + line + ":" + charPositionInLine + ": " + msg);
-            }
-        });
-        ParserRuleContext tree = parser.mainTerm();
+        ParserRuleContext tree = context.parse(ErrorFeedbackUCUMParser::mainTerm);
 
         SyntaxMatchHelper.searchForAnyUnbalancedParens(tokens, tree, errorMessages);
 
@@ -33,12 +33,34 @@ public class ConnectionPoolFactory {
         config.setIdleTimeout(30000);
         config.setConnectionTimeout(10000);
         config.setPoolName("UCUMatePool-" + key.hashCode());
+        addDriverProperties(config, jdbcUrl);
 
         HikariDataSource newDs = new HikariDataSource(config);
         pools.put(key, newDs);
         return newDs;
     }
 
+    /*
+    Lets the driver cache the prepared statements of a connection, so that preparing the same query again for a borrowed
+    connection is cheap, and lets it send a batch of inserts as one statement.
+     */
+    private static void addDriverProperties(HikariConfig config, String jdbcUrl) {
+        if (jdbcUrl.startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        } else if (jdbcUrl.startsWith("jdbc:postgresql:")) {
+            // the statement cache is enabled by default (preparedStatementCacheQueries=256)
+            config.addDataSourceProperty("prepareThreshold", "1");
+            config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        } else if (jdbcUrl.startsWith("jdbc:sqlite:")) {
+            // readers do not block the writer and a second writer waits instead of failing with SQLITE_BUSY
+            config.addDataSourceProperty("journal_mode", "WAL");
+            config.addDataSourceProperty("busy_timeout", "10000");
+        }
+    }
 
     public static void shutdownAll() {
         pools.values().forEach(HikariDataSource::close);
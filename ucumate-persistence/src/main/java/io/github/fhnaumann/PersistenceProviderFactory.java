@@ -11,7 +11,6 @@ import io.github.fhnaumann.providers.SQLitePersistenceProvider;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.SQLException;
 
 /**
  * @author Felix Naumann
@@ -20,31 +19,19 @@ public class PersistenceProviderFactory {
 
     public static PostgresPersistenceProvider createPostgres(String jdbcUrl, String username, String password) {
         HikariDataSource ds = ConnectionPoolFactory.getOrCreate(jdbcUrl, username, password);
-        try {
-            return new PostgresPersistenceProvider(ds.getConnection(), null, null);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return new PostgresPersistenceProvider(ds, null, null);
     }
 
     public static MySQLPersistenceProvider createMySQL(String jdbcUrl, String username, String password) {
         HikariDataSource ds = ConnectionPoolFactory.getOrCreate(jdbcUrl, username, password);
-        try {
-            return new MySQLPersistenceProvider(ds.getConnection(), null, null);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return new MySQLPersistenceProvider(ds, null, null);
     }
 
     public static SQLitePersistenceProvider createDefaultSQLiteProvider() {
         Path defaultSQLitePath = Paths.get(ConfigurationRegistry.get().getSqliteDBPath());
         String jdbcUrl = "jdbc:sqlite:" + defaultSQLitePath.toAbsolutePath();
         HikariDataSource ds = ConnectionPoolFactory.getOrCreate(jdbcUrl, "", "");
-        try {
-            return new SQLitePersistenceProvider(ds.getConnection(), null, null);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to create SQLitePersistenceProvider", e);
-        }
+        return new SQLitePersistenceProvider(ds, null, null);
     }
 
 
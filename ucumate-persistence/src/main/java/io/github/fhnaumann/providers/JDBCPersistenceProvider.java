@@ -1,8 +1,6 @@
 package io.github.fhnaumann.providers;
 
 import io.github.fhnaumann.configuration.CanonKey;
-import io.github.fhnaumann.configuration.FeatureFlags;
-import io.github.fhnaumann.configuration.FeatureFlagsContext;
 import io.github.fhnaumann.configuration.ValKey;
 import io.github.fhnaumann.funcs.Canonicalizer;
 import io.github.fhnaumann.funcs.UCUMService;
@@ -15,26 +13,55 @@ import io.github.fhnaumann.util.PreciseDecimal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * Stores the results in two tables of a relational database. The provider either borrows a connection from a
+ * {@link DataSource} (i.e. the pool of {@link io.github.fhnaumann.ConnectionPoolFactory}) for every operation or uses a
+ * single connection, which is then only used by one thread at a time. Prepared statements are cached by the driver
+ * (see the pool settings), the batch methods write all entries in one transaction.
+ *
  * @author Felix Naumann
  */
 public abstract class JDBCPersistenceProvider implements PersistenceProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JDBCPersistenceProvider.class);
 
+    /*
+    The number of rows per executeBatch call and the number of keys per SELECT ... IN (...). Stays below the variable
+    limit of older SQLite versions (999).
+     */
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * The single connection or null if the connections are borrowed from {@link #dataSource}.
+     */
     public final Connection connection;
+    protected final DataSource dataSource;
     protected final String canonicalTableName;
     protected final String validateTableName;
 
     public JDBCPersistenceProvider(Connection connection, String canonicalTableName, String validateTableName) {
+        this(connection, null, canonicalTableName, validateTableName);
+    }
+
+    public JDBCPersistenceProvider(DataSource dataSource, String canonicalTableName, String validateTableName) {
+        this(null, dataSource, canonicalTableName, validateTableName);
+    }
+
+    private JDBCPersistenceProvider(Connection connection, DataSource dataSource, String canonicalTableName, String validateTableName) {
         this.connection = connection;
+        this.dataSource = dataSource;
         this.canonicalTableName = canonicalTableName != null ? canonicalTableName : "ucumate_canonical";
         this.validateTableName = validateTableName != null ? validateTableName : "ucumate_validate";
         createCanonicalTable();
@@ -46,13 +73,47 @@ public abstract class JDBCPersistenceProvider implements PersistenceProvider {
     public abstract String getCanonicalUpsertQuery();
     public abstract String getValidateUpsertQuery();
 
+    /**
+     * @return The data source the connections are borrowed from or null if a single connection is used.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    @FunctionalInterface
+    protected interface ConnectionAction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder<E> {
+        void bind(PreparedStatement stmt, E entry) throws SQLException;
+    }
+
+    /**
+     * Runs the action with a borrowed connection that is returned to the pool afterward, or with the single connection.
+     */
+    protected <T> T withConnection(ConnectionAction<T> action) throws SQLException {
+        if(dataSource == null) {
+            // a JDBC connection must not be used by multiple threads at once
+            synchronized (connection) {
+                return action.apply(connection);
+            }
+        }
+        try (Connection borrowed = dataSource.getConnection()) {
+            return action.apply(borrowed);
+        }
+    }
+
     protected void executeSQLFile(String path) {
         try (InputStream input = getClass().getClassLoader().getResourceAsStream(path)) {
             if (input == null) throw new RuntimeException("Missing SQL file: " + path);
             String sql = new String(input.readAllBytes(), StandardCharsets.UTF_8);
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(sql);
-            }
+            withConnection(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.execute(sql);
+                }
+            });
         } catch (IOException | SQLException e) {
             throw new RuntimeException("Failed to execute SQL file: " + path, e);
         }
@@ -61,123 +122,197 @@ public abstract class JDBCPersistenceProvider implements PersistenceProvider {
 
     @Override
     public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
-        try (PreparedStatement stmt = connection.prepareStatement(getCanonicalUpsertQuery())) {
-            String keyString  = key.toStorageKey(FeatureFlagsContext.get());
-            stmt.setString(1, keyString);
-            stmt.setString(2, value.magnitude().toString());
-            stmt.setString(3, value.cfPrefix().toString());
-            String canonStep = UCUMService.print(value.term(), Printer.PrintType.UCUM_SYNTAX);
-            stmt.setString(4, canonStep);
-            stmt.setBoolean(5, value.specialHandlingActive());
-            if(value.specialHandlingActive()) {
-                stmt.setString(6, value.specialFunction().name());
-                stmt.setString(7, value.specialFunction().unit());
-                stmt.setString(8, value.specialFunction().value().toString());
-            }
-            else {
-                stmt.setNull(6, Types.VARCHAR);
-                stmt.setNull(7, Types.VARCHAR);
-                stmt.setNull(8, Types.VARCHAR);
-            }
-            stmt.executeUpdate();
-            logger.debug("Saved key={}, canonStep={} to {}.", keyString, canonStep, connection.getMetaData());
+        try {
+            withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(getCanonicalUpsertQuery())) {
+                    bindCanonical(stmt, Map.entry(key, value));
+                    return stmt.executeUpdate();
+                }
+            });
+            logger.debug("Saved key={} to {}.", key, canonicalTableName);
         } catch (Exception e) {
             throw new RuntimeException("Failed to save canonical data", e);
         }
     }
 
+    @Override
+    public void saveAllCanonical(Map<CanonKey, Canonicalizer.CanonicalStepResult> entries) {
+        try {
+            upsertAll(getCanonicalUpsertQuery(), entries.entrySet(), this::bindCanonical);
+            logger.debug("Saved {} canonical entries to {}.", entries.size(), canonicalTableName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save canonical data", e);
+        }
+    }
+
+    private void bindCanonical(PreparedStatement stmt, Map.Entry<CanonKey, Canonicalizer.CanonicalStepResult> entry) throws SQLException {
+        CanonKey key = entry.getKey();
+        Canonicalizer.CanonicalStepResult value = entry.getValue();
+        stmt.setString(1, key.toStorageKey(key.flags()));
+        stmt.setString(2, value.magnitude().toString());
+        stmt.setString(3, value.cfPrefix().toString());
+        stmt.setString(4, UCUMService.print(value.term(), Printer.PrintType.UCUM_SYNTAX));
+        stmt.setBoolean(5, value.specialHandlingActive());
+        if(value.specialHandlingActive()) {
+            stmt.setString(6, value.specialFunction().name());
+            stmt.setString(7, value.specialFunction().unit());
+            stmt.setString(8, value.specialFunction().value().toString());
+        }
+        else {
+            stmt.setNull(6, Types.VARCHAR);
+            stmt.setNull(7, Types.VARCHAR);
+            stmt.setNull(8, Types.VARCHAR);
+        }
+    }
+
     @Override
     public Canonicalizer.CanonicalStepResult getCanonical(CanonKey key) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT * FROM " + canonicalTableName + " WHERE unit_key = ?")) {
-            String keyString = key.toStorageKey(FeatureFlagsContext.get());
-            stmt.setString(1, keyString);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                PreciseDecimal magnitude = new PreciseDecimal(rs.getString("magnitude"));
-                PreciseDecimal cfPrefix = new PreciseDecimal(rs.getString("cfPrefix"));
-                UCUMExpression.Term term = Validator.parseCanonical(rs.getString("term"));
-                boolean special = rs.getBoolean("special");
-                UCUMDefinition.UCUMFunction ucumFunction = null;
-                if(special) {
-                    ucumFunction = new UCUMDefinition.UCUMFunction(
-                            rs.getString("specialName"),
-                            new PreciseDecimal(rs.getString("specialValue")),
-                            rs.getString("specialUnit")
-                    );
+        try {
+            String keyString = key.toStorageKey(key.flags());
+            return withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM " + canonicalTableName + " WHERE unit_key = ?")) {
+                    stmt.setString(1, keyString);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            logger.debug("Read from {}: key={}, canonStep={}", canonicalTableName, keyString, rs.getString("term"));
+                            return readCanonical(rs);
+                        }
+                        return null;
+                    }
                 }
-                Canonicalizer.CanonicalStepResult canonicalStepResult = new Canonicalizer.CanonicalStepResult(term, magnitude, cfPrefix, special, ucumFunction);
-                logger.debug("Read from {}: key={}, canonStep={}", connection.getMetaData(), keyString, rs.getString("term"));
-                return canonicalStepResult;
-            }
-            return null;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to load canonical", e);
         }
     }
 
+    @Override
+    public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical(Collection<CanonKey> keys) {
+        Map<String, CanonKey> byStorageKey = new HashMap<>();
+        for(CanonKey key : keys) {
+            byStorageKey.put(key.toStorageKey(key.flags()), key);
+        }
+        Map<CanonKey, Canonicalizer.CanonicalStepResult> found = new HashMap<>();
+        try {
+            selectAll(canonicalTableName, "*", byStorageKey.keySet(), rs -> found.put(byStorageKey.get(rs.getString("unit_key")), readCanonical(rs)));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load canonical entries", e);
+        }
+        return found;
+    }
+
+    private static Canonicalizer.CanonicalStepResult readCanonical(ResultSet rs) throws SQLException {
+        PreciseDecimal magnitude = new PreciseDecimal(rs.getString("magnitude"));
+        PreciseDecimal cfPrefix = new PreciseDecimal(rs.getString("cfPrefix"));
+        UCUMExpression.Term term = Validator.parseCanonical(rs.getString("term"));
+        boolean special = rs.getBoolean("special");
+        UCUMDefinition.UCUMFunction ucumFunction = null;
+        if(special) {
+            ucumFunction = new UCUMDefinition.UCUMFunction(
+                    rs.getString("specialName"),
+                    new PreciseDecimal(rs.getString("specialValue")),
+                    rs.getString("specialUnit")
+            );
+        }
+        return new Canonicalizer.CanonicalStepResult(term, magnitude, cfPrefix, special, ucumFunction);
+    }
+
     @Override
     public void saveValidated(ValKey key, Validator.ValidationResult value) {
-        try (PreparedStatement stmt = connection.prepareStatement(getValidateUpsertQuery())) {
-            stmt.setString(1, key.toStorageKey(FeatureFlagsContext.get()));
-            stmt.setBoolean(2, switch (value) {
-                case Validator.Failure failure -> false;
-                case Validator.Success success -> true;
+        try {
+            withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(getValidateUpsertQuery())) {
+                    bindValidated(stmt, Map.entry(key, value));
+                    return stmt.executeUpdate();
+                }
             });
-            stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save validated data", e);
         }
     }
 
+    @Override
+    public void saveAllValidated(Map<ValKey, Validator.ValidationResult> entries) {
+        try {
+            upsertAll(getValidateUpsertQuery(), entries.entrySet(), this::bindValidated);
+            logger.debug("Saved {} validation entries to {}.", entries.size(), validateTableName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save validated data", e);
+        }
+    }
+
+    private void bindValidated(PreparedStatement stmt, Map.Entry<ValKey, Validator.ValidationResult> entry) throws SQLException {
+        stmt.setString(1, entry.getKey().toStorageKey(entry.getKey().flags()));
+        stmt.setBoolean(2, switch (entry.getValue()) {
+            case Validator.Failure failure -> false;
+            case Validator.Success success -> true;
+        });
+    }
 
     @Override
     public Validator.ValidationResult getValidated(ValKey key) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT valid FROM " + validateTableName + " WHERE unit_key = ?")) {
-            stmt.setString(1, key.toStorageKey(FeatureFlagsContext.get()));
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                boolean valid = rs.getBoolean("valid");
-                if(valid) {
-                    UCUMExpression.Term parsedKey = Validator.parseByPassChecks(key.expression());
-                    return new Validator.Success(parsedKey);
-                }
-                else {
-                    return new Validator.Failure();
+        try {
+            String keyString = key.toStorageKey(key.flags());
+            return withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT valid FROM " + validateTableName + " WHERE unit_key = ?")) {
+                    stmt.setString(1, keyString);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? readValidated(key.expression(), rs) : null;
+                    }
                 }
-            }
-            return null;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to load validated data", e);
         }
     }
 
+    @Override
+    public Map<ValKey, Validator.ValidationResult> getAllValidated(Collection<ValKey> keys) {
+        Map<String, ValKey> byStorageKey = new HashMap<>();
+        for(ValKey key : keys) {
+            byStorageKey.put(key.toStorageKey(key.flags()), key);
+        }
+        Map<ValKey, Validator.ValidationResult> found = new HashMap<>();
+        try {
+            selectAll(validateTableName, "unit_key, valid", byStorageKey.keySet(), rs -> {
+                ValKey key = byStorageKey.get(rs.getString("unit_key"));
+                found.put(key, readValidated(key.expression(), rs));
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load validation entries", e);
+        }
+        return found;
+    }
+
+    private static Validator.ValidationResult readValidated(String expression, ResultSet rs) throws SQLException {
+        if(rs.getBoolean("valid")) {
+            UCUMExpression.Term parsedKey = Validator.parseByPassChecks(expression);
+            return new Validator.Success(parsedKey);
+        }
+        return new Validator.Failure();
+    }
+
     @Override
     public Map<ValKey, Validator.ValidationResult> getAllValidated() {
         Map<ValKey, Validator.ValidationResult> resultMap = new HashMap<>();
 
-        String sql = "SELECT unit_key, valid FROM ucumate_validate";
+        String sql = "SELECT unit_key, valid FROM " + validateTableName;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        try {
+            withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
 
-            while (rs.next()) {
-                String key = rs.getString("unit_key");
-                boolean valid = rs.getBoolean("valid");
+                    while (rs.next()) {
+                        String key = rs.getString("unit_key");
+                        ValKey valKey = ValKey.fromStorageKey(key);
+                        resultMap.put(valKey, readValidated(valKey.expression(), rs));
 
-                Validator.ValidationResult result;
-                if (valid) {
-                    UCUMExpression.Term parsed = Validator.parseByPassChecks(key);
-                    result = new Validator.Success(parsed);
-                } else {
-                    result = new Validator.Failure();
+                        logger.debug("Loaded {} from data source into cache", key);
+                    }
                 }
-                resultMap.put(ValKey.fromStorageKey(key), result);
-
-                logger.debug("Loaded {} from data source into cache", key);
-            }
-
+                return null;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to load validation entries", e);
         }
@@ -189,43 +324,22 @@ public abstract class JDBCPersistenceProvider implements PersistenceProvider {
     public Map<CanonKey, Canonicalizer.CanonicalStepResult> getAllCanonical() {
         Map<CanonKey, Canonicalizer.CanonicalStepResult> resultMap = new HashMap<>();
 
-        String sql = "SELECT * FROM ucumate_canonical";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                String unitKey = rs.getString("unit_key");
-                CanonKey canonKey = CanonKey.fromStorageKey(unitKey);
-                String magnitudeStr = rs.getString("magnitude");
-                String cfPrefixStr = rs.getString("cfPrefix");
-                String termStr = rs.getString("term");
-                boolean special = rs.getBoolean("special");
-                UCUMExpression.Term term = Validator.parseCanonical(termStr);
-                PreciseDecimal magnitude = new PreciseDecimal(magnitudeStr);
-                PreciseDecimal cfPrefix = new PreciseDecimal(cfPrefixStr);
-
-                UCUMDefinition.UCUMFunction function = null;
-                if (special) {
-                    String name = rs.getString("specialName");
-                    String unit = rs.getString("specialUnit");
-                    String valueStr = rs.getString("specialValue");
-                    function = new UCUMDefinition.UCUMFunction(name, new PreciseDecimal(valueStr), unit);
-                }
+        String sql = "SELECT * FROM " + canonicalTableName;
 
-                Canonicalizer.CanonicalStepResult step = new Canonicalizer.CanonicalStepResult(
-                        term,
-                        magnitude,
-                        cfPrefix,
-                        special,
-                        function
-                );
+        try {
+            withConnection(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
 
-                logger.debug("Loaded {} from data source into cache.", unitKey);
-
-                resultMap.put(canonKey, step);
-            }
+                    while (rs.next()) {
+                        String unitKey = rs.getString("unit_key");
+                        resultMap.put(CanonKey.fromStorageKey(unitKey), readCanonical(rs));
 
+                        logger.debug("Loaded {} from data source into cache.", unitKey);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to load canonical entries", e);
         }
@@ -233,8 +347,80 @@ public abstract class JDBCPersistenceProvider implements PersistenceProvider {
         return resultMap;
     }
 
+    /*
+    Writes the entries with executeBatch in a single transaction.
+     */
+    private <E> void upsertAll(String sql, Collection<E> entries, StatementBinder<E> binder) throws SQLException {
+        if(entries.isEmpty()) {
+            return;
+        }
+        withConnection(conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int batched = 0;
+                for(E entry : entries) {
+                    binder.bind(stmt, entry);
+                    stmt.addBatch();
+                    if(++batched == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if(batched > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowConsumer {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    /*
+    SELECT ... WHERE unit_key IN (...) with at most BATCH_SIZE keys per query.
+     */
+    private void selectAll(String tableName, String columns, Collection<String> storageKeys, RowConsumer rowConsumer) throws SQLException {
+        if(storageKeys.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(storageKeys);
+        withConnection(conn -> {
+            for(int from = 0; from < keys.size(); from += BATCH_SIZE) {
+                List<String> chunk = keys.subList(from, Math.min(from + BATCH_SIZE, keys.size()));
+                String sql = "SELECT " + columns + " FROM " + tableName + " WHERE unit_key IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for(int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rowConsumer.accept(rs);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Closes the single connection. A data source is owned by its pool and is not closed here.
+     */
     @Override
     public void close() {
+        if(connection == null) {
+            return;
+        }
         try {
             connection.close();
         } catch (SQLException e) {
@@ -5,7 +5,6 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.ReplaceOptions;
 import io.github.fhnaumann.configuration.CanonKey;
-import io.github.fhnaumann.configuration.FeatureFlagsContext;
 import io.github.fhnaumann.configuration.ValKey;
 import io.github.fhnaumann.funcs.Canonicalizer;
 import io.github.fhnaumann.funcs.UCUMService;
@@ -40,7 +39,7 @@ public class MongoDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public void saveCanonical(CanonKey key, Canonicalizer.CanonicalStepResult value) {
-        String keyString = key.toStorageKey(FeatureFlagsContext.get());
+        String keyString = key.toStorageKey(key.flags());
         Document doc = new Document("unit_key", keyString)
                 .append("magnitude", value.magnitude().toString())
                 .append("cfPrefix", value.cfPrefix().toString())
@@ -60,7 +59,7 @@ public class MongoDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public Canonicalizer.CanonicalStepResult getCanonical(CanonKey key) {
-        String keyString = key.toStorageKey(FeatureFlagsContext.get());
+        String keyString = key.toStorageKey(key.flags());
         Document doc = canonicalColl.find(eq("unit_key", keyString)).first();
         if (doc == null) {
             return null;
@@ -116,14 +115,14 @@ public class MongoDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public void saveValidated(ValKey key, Validator.ValidationResult value) {
-        Document doc = new Document("key", key.toStorageKey(FeatureFlagsContext.get()))
+        Document doc = new Document("key", key.toStorageKey(key.flags()))
                 .append("valid", value instanceof Validator.Success);
-        validationColl.replaceOne(eq("key", key.toStorageKey(FeatureFlagsContext.get())), doc, new ReplaceOptions().upsert(true));
+        validationColl.replaceOne(eq("key", key.toStorageKey(key.flags())), doc, new ReplaceOptions().upsert(true));
     }
 
     @Override
     public Validator.ValidationResult getValidated(ValKey key) {
-        Document doc = validationColl.find(eq("key", key.toStorageKey(FeatureFlagsContext.get()))).first();
+        Document doc = validationColl.find(eq("key", key.toStorageKey(key.flags()))).first();
         if(doc == null) {
             return null;
         }
@@ -1,5 +1,6 @@
 package io.github.fhnaumann.providers;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 
 /**
@@ -11,6 +12,10 @@ public class MySQLPersistenceProvider extends JDBCPersistenceProvider {
         super(connection, canonicalTableName, validateTableName);
     }
 
+    public MySQLPersistenceProvider(DataSource dataSource, String canonicalTableName, String validateTableName) {
+        super(dataSource, canonicalTableName, validateTableName);
+    }
+
     @Override
     public void createCanonicalTable() {
         executeSQLFile("mysql/canonical_table.sql");
@@ -1,5 +1,6 @@
 package io.github.fhnaumann.providers;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 
 /**
@@ -11,6 +12,10 @@ public class PostgresPersistenceProvider extends JDBCPersistenceProvider {
         super(connection, canonicalTableName, validateTableName);
     }
 
+    public PostgresPersistenceProvider(DataSource dataSource, String canonicalTableName, String validateTableName) {
+        super(dataSource, canonicalTableName, validateTableName);
+    }
+
     @Override
     public void createCanonicalTable() {
         executeSQLFile("postgres/canonical_table.sql");
@@ -4,6 +4,7 @@ import io.github.fhnaumann.ConnectionPoolFactory;
 import io.github.fhnaumann.configuration.Configuration;
 import io.github.fhnaumann.configuration.ConfigurationRegistry;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -15,13 +16,17 @@ public class SQLitePersistenceProvider extends JDBCPersistenceProvider {
 
 
     public SQLitePersistenceProvider() throws SQLException {
-        super(ConnectionPoolFactory.getOrCreate("jdbc:sqlite:%s".formatted(ConfigurationRegistry.get().getSqliteDBPath()), "", "").getConnection(), null, null);
+        super(ConnectionPoolFactory.getOrCreate("jdbc:sqlite:%s".formatted(ConfigurationRegistry.get().getSqliteDBPath()), "", ""), null, null);
     }
 
     public SQLitePersistenceProvider(Connection connection, String canonicalTableName, String validateTableName) {
         super(connection, canonicalTableName, validateTableName);
     }
 
+    public SQLitePersistenceProvider(DataSource dataSource, String canonicalTableName, String validateTableName) {
+        super(dataSource, canonicalTableName, validateTableName);
+    }
+
     @Override
     public void createCanonicalTable() {
         executeSQLFile("sqlite/canonical_table.sql");
@@ -2,20 +2,39 @@ package io.github.fhnaumann;
 
 import io.github.fhnaumann.configuration.Configuration;
 import io.github.fhnaumann.configuration.ConfigurationRegistry;
+import io.github.fhnaumann.configuration.CanonKey;
+import io.github.fhnaumann.configuration.FeatureFlags;
+import io.github.fhnaumann.configuration.FeatureFlagsContext;
+import io.github.fhnaumann.configuration.ValKey;
+import io.github.fhnaumann.funcs.Canonicalizer;
+import io.github.fhnaumann.funcs.Validator;
+import io.github.fhnaumann.model.UCUMDefinition;
 import io.github.fhnaumann.persistence.PersistenceRegistry;
 import io.github.fhnaumann.providers.SQLitePersistenceProvider;
+import io.github.fhnaumann.util.PreciseDecimal;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Felix Naumann
  */
 public class SQLitePersistenceIntegrationTest extends DBPersistenceIntegrationTestBase {
 
-    private Connection connection;
+    private SQLitePersistenceProvider provider;
 
     @TempDir
     private static Path dbPath;
@@ -24,25 +43,86 @@ public class SQLitePersistenceIntegrationTest extends DBPersistenceIntegrationTe
     protected void registerPersistenceProvider() {
         ConfigurationRegistry.initialize(Configuration.builder().enableSQLitePersistence(true).sqliteDBPath(dbPath.resolve("ucumate.db").toString()).build());
         //System.setProperty("ucumate.persistence.sqlite.dbpath", dbPath.resolve("ucumate.db").toString());
-        SQLitePersistenceProvider provider = PersistenceProviderFactory.createDefaultSQLiteProvider();
-        connection = provider.connection;
+        provider = PersistenceProviderFactory.createDefaultSQLiteProvider();
 
         //PersistenceRegistry.getInstance().close(); // ensure old state is cleared
         PersistenceRegistry.register("sqlite", provider); // re-register per test
-        try {
-            connection.setAutoCommit(true);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
     }
 
     @Override
     protected void clearDatabaseState() {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = provider.getDataSource().getConnection();
+             Statement stmt = connection.createStatement()) {
             stmt.execute("DELETE FROM ucumate_canonical;");
             stmt.execute("DELETE FROM ucumate_validate;");
         } catch (SQLException e) {
             throw new RuntimeException("Failed to clear SQLite tables", e);
         }
     }
+
+    @Test
+    public void can_save_and_read_in_batches() {
+        // more than one executeBatch call and more than one SELECT ... IN (...)
+        Map<ValKey, Validator.ValidationResult> entries = new HashMap<>();
+        for(int i = 0; i < 1200; i++) {
+            entries.put(ValKey.of(i + "m"), new Validator.Failure());
+        }
+        provider.saveAllValidated(entries);
+
+        List<ValKey> keys = new ArrayList<>(entries.keySet());
+        keys.add(ValKey.of("not_saved"));
+        Map<ValKey, Validator.ValidationResult> found = provider.getAllValidated(keys);
+        assertThat(found).hasSize(1200).containsOnlyKeys(entries.keySet());
+        assertThat(found.values()).allMatch(result -> result instanceof Validator.Failure);
+    }
+
+    @Test
+    public void can_save_and_read_canonical_entries_in_batches() {
+        Map<CanonKey, Canonicalizer.CanonicalStepResult> entries = new HashMap<>();
+        for(int i = 1; i <= 600; i++) {
+            entries.put(CanonKey.of(Validator.parseByPassChecks("g{" + i + "}")), new Canonicalizer.CanonicalStepResult(
+                    Validator.parseCanonical("g"), new PreciseDecimal(String.valueOf(i)), PreciseDecimal.ONE, false, null
+            ));
+        }
+        CanonKey celsius = CanonKey.of(Validator.parseByPassChecks("Cel"));
+        entries.put(celsius, new Canonicalizer.CanonicalStepResult(
+                Validator.parseCanonical("K"), PreciseDecimal.ONE, PreciseDecimal.ONE, true,
+                new UCUMDefinition.UCUMFunction("Cel", PreciseDecimal.ONE, "K")
+        ));
+        provider.saveAllCanonical(entries);
+
+        List<CanonKey> keys = new ArrayList<>(entries.keySet());
+        keys.add(CanonKey.of(Validator.parseByPassChecks("m")));
+        Map<CanonKey, Canonicalizer.CanonicalStepResult> found = provider.getAllCanonical(keys);
+        assertThat(found).containsOnlyKeys(entries.keySet());
+        entries.forEach((key, value) -> {
+            assertThat(found.get(key).magnitude()).isEqualTo(value.magnitude());
+            assertThat(found.get(key).specialHandlingActive()).isEqualTo(value.specialHandlingActive());
+        });
+        assertThat(found.get(celsius).specialFunction().name()).isEqualTo("Cel");
+    }
+
+    @Test
+    public void point_lookups_use_the_flags_of_the_key() {
+        ValKey key = new ValKey("m", FeatureFlags.of(FeatureFlags.Flag.ANNOT_AFTER_PARENS));
+        provider.saveValidated(key, new Validator.Failure());
+        assertThat(FeatureFlagsContext.get()).isNotEqualTo(key.flags());
+        assertThat(provider.getValidated(key)).isInstanceOf(Validator.Failure.class);
+        assertThat(provider.getValidated(new ValKey("m", FeatureFlags.none()))).isNull();
+    }
+
+    @Test
+    public void can_read_and_write_from_multiple_threads() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for(int i = 0; i < 200; i++) {
+            ValKey key = ValKey.of(i + "g");
+            executor.submit(() -> {
+                provider.saveValidated(key, new Validator.Failure());
+                provider.getValidated(key);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertThat(provider.getAllValidated()).hasSize(200);
+    }
 }